@@ -0,0 +1,248 @@
+package myshgs;
+
+import java.util.List;
+
+/**
+ * Adapts the warm-up cutoff and the threshold Q of a U-INDG skyline query while it runs.
+ * <p>
+ * IQuadTree, IQuadPlusTree, IZBTree and ZIBBS test a point either by scanning the whole skyline, which they do
+ * during the warm-up, or by looking up the nodes that may dominate it through the skyline pointers of the NDG and then
+ * scanning the skyline points found since the last pointer update. The work of a test is its dominance tests and node
+ * visits, counted by wrapping the statistics of the query. Every SAMPLE-th test is a probe whose work is counted:
+ * while the engine scans, the probes alternate between scans and lookups, which gives the share of the skyline a scan
+ * reads before it stops; while it looks up, the probes are lookups, and the work a scan would have done is estimated
+ * from that share and the size of the skyline, since scanning to measure it would cost more than the lookups save.
+ * After WINDOW lookup probes, the ratio of their work to the estimated work of scans decides the mode. Below MARGIN
+ * the warm-up ends before curNum reaches WARMUP; the margin keeps the estimate, which is taken on the early skyline,
+ * from ending it on a small saving. Once the warm-up has ended, above 1 the engine scans until the next window.
+ * <p>
+ * While the engine looks up, every lookup also scans the skyline points found since the last pointer update, so the
+ * pointers are updated as soon as the estimated time of these scans since the last update exceeds the measured time
+ * of an update, instead of after Q new points. This is the rule of ski rental: the time lost waiting is at most the
+ * time of the update. It is counted in time rather than work since an update visits nodes through hash sets, which
+ * costs more than a dominance test; the time of a test is taken from the scan probes. Until an update has been
+ * measured, and while the engine scans, the pointers are updated after Q new points. Q also decides, in a lookup,
+ * whether the pointers of a node are followed; that Q is kept, but capped below curNum, since a lookup only checks
+ * the skyline points before curNum if a node on its way holds more than Q of them.
+ * <p>
+ * The engines only adapt when their adaptiveQuery field is set; otherwise the controller is disabled and they use the
+ * fixed cutoff WARMUP and their own Q, as in the paper. The pointer updates of an adaptive query are decided on
+ * measured times, so its dominance tests and node accesses vary between runs.
+ */
+public class AdaptiveThreshold {
+    public static final int WARMUP = 1000; // The initial cutoff
+    private static final int SAMPLE = 16; // One test in SAMPLE is a probe
+    private static final int WINDOW = 32; // The lookup probes between two adaptations
+    private static final double MARGIN = 0.5; // The ratio below which the lookups end the warm-up
+    private static final int SCAN = 1;
+    private static final int LOOKUP = 2;
+    public int cutoff = WARMUP; // The skyline is scanned while curNum is below the cutoff
+    public final int q; // The threshold of the index
+    private final boolean enabled; // Whether the cutoff and Q adapt during the query
+    private final Meter query = new Meter(); // Counts the work of the whole query
+    private boolean warm = true; // Whether the warm-up is still on
+    private int probing; // The kind of the current probe, 0 if the current test is not a probe
+    private int size; // The size of the skyline when the current probe started
+    private long probeStart; // The work of the query when the current probe started
+    private long probeTime; // The time when the current probe started
+    private long tests;
+    private double scanShare = 1; // The mean share of the skyline read by a scan
+    private long scanWork;
+    private long scanTime;
+    private long scanned;
+    private long lookupWork;
+    private double scanEstimate; // The estimated work of scans in place of the lookup probes of the window
+    private int lookups;
+    private double waiting; // The estimated dominance tests of the points found since the last pointer update
+    private long updateStart = -1; // The time when the current pointer update started
+    private long updateTime;
+    private int updates;
+
+    /**
+     * Constructs the controller of one query.
+     *
+     * @param Q       The threshold of the index
+     * @param enabled Whether the cutoff and Q adapt, otherwise they are fixed to WARMUP and Q
+     */
+    public AdaptiveThreshold(int Q, boolean enabled) {
+        this.q = Q;
+        this.enabled = enabled;
+    }
+
+    /**
+     * Wraps the statistics of the query, so that its work is counted.
+     *
+     * @param stats The statistics of the query
+     * @return The statistics to report the query to, stats itself if the controller is disabled
+     */
+    public QueryStats wrap(QueryStats stats) {
+        if (!enabled) {
+            return stats;
+        }
+        query.stats = stats;
+        return query;
+    }
+
+    /**
+     * Starts the test of a point.
+     *
+     * @param curNum The number of skyline points behind the skyline pointers
+     * @param size   The size of the skyline
+     * @return Whether to scan the skyline instead of looking up the NDG
+     */
+    public boolean scan(int curNum, int size) {
+        boolean scan = curNum < cutoff;
+        if (!enabled) {
+            return scan;
+        }
+        warm &= scan;
+        if (updateStart >= 0) {
+            updateTime += System.nanoTime() - updateStart;
+            updates++;
+            updateStart = -1;
+        }
+        if (!scan) {
+            waiting += scanShare * (size - curNum);
+        }
+        if (probing != 0) {
+            close();
+        }
+        if (++tests % SAMPLE != 0) {
+            return scan;
+        }
+        // Before the first pointer update a lookup scans the whole skyline too, so it is not worth a probe
+        probing = scan && (curNum == 0 || (tests / SAMPLE) % 2 == 0) ? SCAN : LOOKUP;
+        this.size = size;
+        probeStart = query.work;
+        probeTime = probing == SCAN ? System.nanoTime() : 0;
+        return probing == SCAN;
+    }
+
+    /**
+     * @param curNum The number of skyline points behind the skyline pointers
+     * @return The Q of the current lookup, q if the controller is disabled
+     */
+    public int threshold(int curNum) {
+        return enabled && curNum > 0 ? Math.min(q, curNum - 1) : q;
+    }
+
+    /**
+     * Decides whether to update the skyline pointers, after the points of a leaf have been tested.
+     *
+     * @param num The number of skyline points found since the last pointer update
+     * @return Whether to update the pointers now
+     */
+    public boolean update(int num) {
+        boolean lookingUp = enabled && !warm && cutoff != Integer.MAX_VALUE;
+        boolean update = lookingUp && updates > 0 && scanWork > 0
+                ? waiting * scanTime / scanWork > (double) updateTime / updates : num > q;
+        if (update && enabled) {
+            waiting = 0;
+            updateStart = System.nanoTime();
+        }
+        return update;
+    }
+
+    /**
+     * Adds the work of the finished probe to its window. The probe ends when the next test starts, so its work also
+     * holds the few node visits between the two tests, for scans and lookups alike.
+     */
+    private void close() {
+        long work = query.work - probeStart;
+        if (probing == SCAN) {
+            if (size > 0) {
+                scanWork += work;
+                scanTime += System.nanoTime() - probeTime;
+                scanned += size;
+                scanShare = (double) scanWork / scanned;
+            }
+        } else {
+            lookupWork += work;
+            scanEstimate += scanShare * size;
+            lookups++;
+        }
+        probing = 0;
+        if (lookups >= WINDOW) {
+            adapt();
+        }
+    }
+
+    private void adapt() {
+        if (lookupWork < scanEstimate * (warm ? MARGIN : 1)) {
+            cutoff = 0;
+            warm = false;
+        } else if (!warm) {
+            cutoff = Integer.MAX_VALUE;
+        }
+        lookupWork = 0;
+        scanEstimate = 0;
+        lookups = 0;
+    }
+
+    /**
+     * Counts the dominance tests and node visits reported to it, and reports everything to the statistics it wraps.
+     */
+    private static class Meter implements QueryStats {
+        private QueryStats stats;
+        private long work;
+
+        @Override
+        public void dominanceTest() {
+            work++;
+            stats.dominanceTest();
+        }
+
+        @Override
+        public void dominanceTests(long n) {
+            work += n;
+            stats.dominanceTests(n);
+        }
+
+        @Override
+        public void nodeVisit() {
+            work++;
+            stats.nodeVisit();
+        }
+
+        @Override
+        public void nodeVisits(long n) {
+            work += n;
+            stats.nodeVisits(n);
+        }
+
+        @Override
+        public void graphNode() {
+            stats.graphNode();
+        }
+
+        @Override
+        public void pointerUpdate() {
+            stats.pointerUpdate();
+        }
+
+        @Override
+        public void prune() {
+            stats.prune();
+        }
+
+        @Override
+        public void skylineSize(int size) {
+            stats.skylineSize(size);
+        }
+
+        @Override
+        public long start() {
+            return stats.start();
+        }
+
+        @Override
+        public void stop(Phase phase, long start) {
+            stats.stop(phase, start);
+        }
+
+        @Override
+        public List<long[]> finish(List<long[]> skyline, long start) {
+            return stats.finish(skyline, start);
+        }
+    }
+}
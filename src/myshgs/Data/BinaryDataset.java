@@ -0,0 +1,258 @@
+package myshgs.Data;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.stream.IntStream;
+
+/**
+ * A dataset stored in a compact binary file and loaded by mapping the file into memory.
+ * <p>
+ * The file starts with a 32-byte header (magic, version, number of points n as a long, dimension d), followed by
+ * the n * d coordinates as little-endian longs, one point after another. Opening a dataset maps the file and does
+ * not parse or copy anything: the coordinates are read straight from the mapping. Files larger than 2 GB are
+ * mapped in several chunks, each holding a whole number of points.
+ */
+public class BinaryDataset {
+    public static final int MAGIC = 0x55494E44;
+    public static final int VERSION = 1;
+    public static final int HEADER = 32;
+    private static final int CHUNK = Integer.MAX_VALUE; // The largest size of one mapping in bytes
+
+    private final int n; // The number of points
+    private final int d; // The dimension of the points
+    private final int rowsPerChunk; // The number of points held by each mapping
+    private final LongBuffer[] chunks; // The coordinates, one view per mapping
+
+    private BinaryDataset(int n, int d, int rowsPerChunk, LongBuffer[] chunks) {
+        this.n = n;
+        this.d = d;
+        this.rowsPerChunk = rowsPerChunk;
+        this.chunks = chunks;
+    }
+
+    /**
+     * Maps a binary dataset into memory.
+     *
+     * @param path The path of the binary file
+     * @return The mapped dataset
+     * @throws IOException if the file cannot be read or is not a binary dataset
+     */
+    public static BinaryDataset open(String path) throws IOException {
+        try (RandomAccessFile file = new RandomAccessFile(path, "r"); FileChannel channel = file.getChannel()) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER).order(ByteOrder.LITTLE_ENDIAN);
+            channel.read(header, 0);
+            header.flip();
+            if (header.remaining() < HEADER || header.getInt() != MAGIC) {
+                throw new IOException(path + " is not a binary dataset");
+            }
+            int version = header.getInt();
+            if (version != VERSION) {
+                throw new IOException("Unsupported binary dataset version " + version);
+            }
+            long n = header.getLong();
+            int d = header.getInt();
+            if (n < 0 || n > Integer.MAX_VALUE || d <= 0 || channel.size() < HEADER + n * d * Long.BYTES) {
+                throw new IOException(path + " is truncated or has a corrupt header");
+            }
+
+            int rowBytes = d * Long.BYTES;
+            int rowsPerChunk = CHUNK / rowBytes;
+            int chunkCount = (int) ((n + rowsPerChunk - 1) / rowsPerChunk);
+            LongBuffer[] chunks = new LongBuffer[chunkCount];
+            for (int c = 0; c < chunkCount; c++) {
+                long rows = Math.min(rowsPerChunk, n - (long) c * rowsPerChunk);
+                MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY,
+                        HEADER + (long) c * rowsPerChunk * rowBytes, rows * rowBytes);
+                chunks[c] = mapped.order(ByteOrder.LITTLE_ENDIAN).asLongBuffer();
+            }
+            return new BinaryDataset((int) n, d, rowsPerChunk, chunks);
+        }
+    }
+
+    /**
+     * Writes points into a binary dataset, with the dimension of the first point.
+     *
+     * @param path   The path of the binary file
+     * @param points The points to write, at least one and all of the same dimension
+     * @throws IOException if the file cannot be written
+     */
+    public static void write(String path, long[][] points) throws IOException {
+        if (points.length == 0) {
+            throw new IllegalArgumentException("The dimension of an empty dataset must be given");
+        }
+        write(path, points[0].length, points);
+    }
+
+    /**
+     * Writes points into a binary dataset.
+     *
+     * @param path   The path of the binary file
+     * @param d      The dimension of the points
+     * @param points The points to write, possibly none
+     * @throws IOException if the file cannot be written
+     */
+    public static void write(String path, int d, long[][] points) throws IOException {
+        try (Writer writer = new Writer(path, d)) {
+            for (long[] p : points) {
+                writer.add(p);
+            }
+        }
+    }
+
+    /**
+     * Converts a comma separated text file into a binary dataset, with the columns inferred by CsvLoader.
+     *
+     * @param csvPath The path of the text file
+     * @param binPath The path of the binary file
+     * @throws IOException if a file cannot be read or written
+     */
+    public static void convert(String csvPath, String binPath) throws IOException {
+        new CsvLoader().load(csvPath).writeBinary(binPath);
+    }
+
+    /**
+     * Opens the binary copy of a text dataset, converting the text file first when the binary copy is missing or
+     * older than the text file. The binary copy is kept next to the text file with the suffix .bin.
+     *
+     * @param csvPath The path of the text file
+     * @return The mapped dataset
+     * @throws IOException if a file cannot be read or written
+     */
+    public static BinaryDataset fromCsv(String csvPath) throws IOException {
+        File csv = new File(csvPath);
+        File bin = new File(csvPath + ".bin");
+        if (!bin.exists() || bin.lastModified() < csv.lastModified()) {
+            File tmp = new File(csvPath + ".bin.tmp");
+            convert(csvPath, tmp.getPath());
+            if (!tmp.renameTo(bin)) {
+                throw new IOException("Cannot move " + tmp + " to " + bin);
+            }
+        }
+        return open(bin.getPath());
+    }
+
+    /**
+     * @return The number of points
+     */
+    public int size() {
+        return n;
+    }
+
+    /**
+     * @return The dimension of the points
+     */
+    public int dimension() {
+        return d;
+    }
+
+    /**
+     * Reads one coordinate straight from the mapping.
+     *
+     * @param i The index of the point
+     * @param j The index of the dimension
+     * @return The j-th coordinate of the i-th point
+     */
+    public long get(int i, int j) {
+        return chunks[i / rowsPerChunk].get((i % rowsPerChunk) * d + j);
+    }
+
+    /**
+     * Copies one point into a caller-provided array.
+     *
+     * @param i   The index of the point
+     * @param dst The array receiving the d coordinates
+     * @return dst
+     */
+    public long[] get(int i, long[] dst) {
+        LongBuffer chunk = chunks[i / rowsPerChunk];
+        int base = (i % rowsPerChunk) * d;
+        for (int j = 0; j < d; j++) {
+            dst[j] = chunk.get(base + j);
+        }
+        return dst;
+    }
+
+    /**
+     * Copies the points into the array layout used by the indexes, in parallel.
+     *
+     * @return The points, one array per point
+     */
+    public long[][] toArray() {
+        long[][] points = new long[n][];
+        IntStream.range(0, n).parallel().forEach(i -> points[i] = get(i, new long[d]));
+        return points;
+    }
+
+    /**
+     * Writes points into a binary dataset one at a time. The number of points is patched into the header on close.
+     */
+    public static class Writer implements AutoCloseable {
+        private final RandomAccessFile file;
+        private final FileChannel channel;
+        private final ByteBuffer buffer;
+        private final int d;
+        private long n = 0;
+
+        /**
+         * Creates a binary dataset, replacing an existing file.
+         *
+         * @param path The path of the binary file
+         * @param d    The dimension of the points
+         * @throws IOException if the file cannot be created
+         */
+        public Writer(String path, int d) throws IOException {
+            if (d <= 0) {
+                throw new IllegalArgumentException("The dimension must be positive but got " + d);
+            }
+            this.file = new RandomAccessFile(path, "rw");
+            this.file.setLength(0);
+            this.channel = file.getChannel();
+            this.d = d;
+            this.buffer = ByteBuffer.allocateDirect(Math.max(1 << 16, d * Long.BYTES)).order(ByteOrder.LITTLE_ENDIAN);
+            channel.position(HEADER);
+        }
+
+        /**
+         * Appends a point.
+         *
+         * @param p The point, with at least d coordinates
+         * @throws IOException if the file cannot be written
+         */
+        public void add(long[] p) throws IOException {
+            if (buffer.remaining() < d * Long.BYTES) {
+                flush();
+            }
+            for (int j = 0; j < d; j++) {
+                buffer.putLong(p[j]);
+            }
+            n++;
+        }
+
+        private void flush() throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            buffer.clear();
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                flush();
+                ByteBuffer header = ByteBuffer.allocate(HEADER).order(ByteOrder.LITTLE_ENDIAN);
+                header.putInt(MAGIC).putInt(VERSION).putLong(n).putInt(d);
+                header.clear();
+                channel.write(header, 0);
+            } finally {
+                file.close();
+            }
+        }
+    }
+}
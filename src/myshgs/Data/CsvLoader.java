@@ -0,0 +1,326 @@
+package myshgs.Data;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.IntStream;
+
+/**
+ * Loads comma separated datasets into a flat primitive buffer in parallel.
+ * <p>
+ * The schema selects the columns to keep and a factor every value is multiplied by before it is truncated to a long.
+ * When no columns are given, the first d columns are kept, where d is taken from a "7D"-style token in the file
+ * name or, failing that, from the number of values on the first line. The file is split into byte ranges that start
+ * after a line break, every range is counted and then parsed on its own thread straight into the output buffer, and
+ * the numbers are parsed from the bytes without creating strings. Lines that do not start with a number, such as a
+ * header, are skipped.
+ */
+public class CsvLoader {
+    private static final Pattern DIMENSION = Pattern.compile("(\\d+)D");
+    private static final long RANGE = 64L << 20; // The largest number of bytes parsed by one task
+    private static final double[] POW10 = new double[19];
+
+    static {
+        POW10[0] = 1;
+        for (int i = 1; i < POW10.length; i++) {
+            POW10[i] = POW10[i - 1] * 10;
+        }
+    }
+
+    private final int[] columns; // The columns to keep, in output order, or null to infer them
+    private final double scale; // The factor applied to every value
+    private final byte delimiter;
+
+    /**
+     * Constructs a loader that infers the dimension and keeps the values unscaled.
+     */
+    public CsvLoader() {
+        this(null, 1.0);
+    }
+
+    /**
+     * Constructs a loader that keeps the first d columns.
+     *
+     * @param d The dimension of the points
+     */
+    public CsvLoader(int d) {
+        this(IntStream.range(0, d).toArray(), 1.0);
+    }
+
+    /**
+     * Constructs a loader for a schema.
+     *
+     * @param columns The columns to keep, in output order, or null to infer them
+     * @param scale   The factor every value is multiplied by before it is truncated to a long
+     */
+    public CsvLoader(int[] columns, double scale) {
+        if (columns != null) {
+            if (columns.length == 0) {
+                throw new IllegalArgumentException("At least one column is required");
+            }
+            if (Arrays.stream(columns).distinct().count() < columns.length) {
+                throw new IllegalArgumentException("Duplicate column in " + Arrays.toString(columns));
+            }
+            for (int c : columns) {
+                if (c < 0) {
+                    throw new IllegalArgumentException("Negative column " + c);
+                }
+            }
+        }
+        this.columns = columns;
+        this.scale = scale;
+        this.delimiter = ',';
+    }
+
+    /**
+     * Loads a dataset.
+     *
+     * @param path The path of the text file
+     * @return The loaded dataset
+     * @throws IOException if the file cannot be read
+     */
+    public Table load(String path) throws IOException {
+        try (RandomAccessFile file = new RandomAccessFile(path, "r"); FileChannel channel = file.getChannel()) {
+            long size = channel.size();
+            int[] cols = columns != null ? columns : inferColumns(path, channel);
+            int d = cols.length;
+            int maxCol = 0;
+            for (int c : cols) {
+                maxCol = Math.max(maxCol, c);
+            }
+            int[] target = new int[maxCol + 1]; // The output position of every column, -1 if it is skipped
+            Arrays.fill(target, -1);
+            for (int j = 0; j < d; j++) {
+                target[cols[j]] = j;
+            }
+
+            // Split the file into ranges that start right after a line break
+            int tasks = (int) Math.max(4L * ForkJoinPool.getCommonPoolParallelism(), (size + RANGE - 1) / RANGE);
+            List<Long> starts = new ArrayList<>();
+            starts.add(0L);
+            for (int t = 1; t < tasks; t++) {
+                long pos = Math.max(size * t / tasks, starts.get(starts.size() - 1));
+                long next = nextLine(channel, pos, size);
+                if (next > starts.get(starts.size() - 1) && next < size) {
+                    starts.add(next);
+                }
+            }
+            starts.add(size);
+            int ranges = starts.size() - 1;
+            MappedByteBuffer[] buffers = new MappedByteBuffer[ranges];
+            for (int r = 0; r < ranges; r++) {
+                buffers[r] = channel.map(FileChannel.MapMode.READ_ONLY, starts.get(r), starts.get(r + 1) - starts.get(r));
+            }
+
+            // Count the rows of every range, then parse every range into its slice of the buffer
+            int[] rows = new int[ranges];
+            IntStream.range(0, ranges).parallel().forEach(r -> rows[r] = countRows(buffers[r]));
+            long total = 0;
+            int[] offsets = new int[ranges];
+            for (int r = 0; r < ranges; r++) {
+                offsets[r] = (int) total;
+                total += rows[r];
+            }
+            if (total * d > Integer.MAX_VALUE - 8) {
+                throw new IllegalArgumentException(path + " has too many values for one buffer: " + total * d);
+            }
+            long[] data = new long[(int) total * d];
+            IntStream.range(0, ranges).parallel().forEach(r -> parseRows(buffers[r], target, d, data, offsets[r] * d));
+            return new Table((int) total, d, data);
+        }
+    }
+
+    /**
+     * Infers the columns from the file name or the first line.
+     */
+    private int[] inferColumns(String path, FileChannel channel) throws IOException {
+        String name = new File(path).getName();
+        Matcher m = DIMENSION.matcher(name);
+        if (m.find()) {
+            return IntStream.range(0, Integer.parseInt(m.group(1))).toArray();
+        }
+        MappedByteBuffer buf = channel.map(FileChannel.MapMode.READ_ONLY, 0, Math.min(channel.size(), 1 << 20));
+        int pos = 0;
+        while (pos < buf.limit() && !isDataLine(buf, pos)) {
+            pos = skipLine(buf, pos);
+        }
+        int fields = 1;
+        for (; pos < buf.limit() && buf.get(pos) != '\n' && buf.get(pos) != '\r'; pos++) {
+            if (buf.get(pos) == delimiter) {
+                fields++;
+            }
+        }
+        return IntStream.range(0, fields).toArray();
+    }
+
+    /**
+     * @return The position after the first line break at or after pos, or size if there is none
+     */
+    private static long nextLine(FileChannel channel, long pos, long size) throws IOException {
+        ByteBuffer buf = ByteBuffer.allocate(1 << 12);
+        while (pos < size) {
+            buf.clear();
+            int read = channel.read(buf, pos);
+            if (read <= 0) {
+                break;
+            }
+            for (int i = 0; i < read; i++) {
+                if (buf.get(i) == '\n') {
+                    return pos + i + 1;
+                }
+            }
+            pos += read;
+        }
+        return size;
+    }
+
+    private int countRows(MappedByteBuffer buf) {
+        int rows = 0;
+        for (int pos = 0; pos < buf.limit(); pos = skipLine(buf, pos)) {
+            if (isDataLine(buf, pos)) {
+                rows++;
+            }
+        }
+        return rows;
+    }
+
+    private void parseRows(MappedByteBuffer buf, int[] target, int d, long[] data, int out) {
+        int limit = buf.limit();
+        int pos = 0;
+        while (pos < limit) {
+            if (!isDataLine(buf, pos)) {
+                pos = skipLine(buf, pos);
+                continue;
+            }
+            int field = 0, found = 0;
+            while (true) {
+                // Parse one value: sign, digits, fraction and exponent
+                while (pos < limit && buf.get(pos) == ' ') {
+                    pos++;
+                }
+                if (field < target.length && target[field] >= 0) {
+                    int start = pos;
+                    boolean negative = false;
+                    if (pos < limit && (buf.get(pos) == '-' || buf.get(pos) == '+')) {
+                        negative = buf.get(pos++) == '-';
+                    }
+                    long mantissa = 0;
+                    int exponent = 0, digits = 0;
+                    boolean fraction = false;
+                    for (; pos < limit; pos++) {
+                        byte b = buf.get(pos);
+                        if (b >= '0' && b <= '9') {
+                            if (digits < 18) {
+                                mantissa = mantissa * 10 + (b - '0');
+                                if (mantissa != 0) {
+                                    digits++;
+                                }
+                                if (fraction) {
+                                    exponent--;
+                                }
+                            } else if (!fraction) {
+                                exponent++;
+                            }
+                        } else if (b == '.' && !fraction) {
+                            fraction = true;
+                        } else {
+                            break;
+                        }
+                    }
+                    if (pos < limit && (buf.get(pos) == 'e' || buf.get(pos) == 'E')) {
+                        pos++;
+                        boolean negExp = false;
+                        if (pos < limit && (buf.get(pos) == '-' || buf.get(pos) == '+')) {
+                            negExp = buf.get(pos++) == '-';
+                        }
+                        int e = 0;
+                        for (; pos < limit && buf.get(pos) >= '0' && buf.get(pos) <= '9'; pos++) {
+                            e = Math.min(e * 10 + (buf.get(pos) - '0'), 400);
+                        }
+                        exponent += negExp ? -e : e;
+                    }
+                    if (scale == 1.0 && digits > 15) {
+                        // More digits than a double holds, where its rounding can reach the next integer
+                        byte[] token = new byte[pos - start];
+                        buf.get(start, token);
+                        data[out + target[field]] = (long) Double.parseDouble(new String(token, StandardCharsets.US_ASCII));
+                    } else {
+                        data[out + target[field]] = toLong(negative ? -mantissa : mantissa, exponent);
+                    }
+                    found++;
+                }
+                // Move to the next field or the end of the line
+                while (pos < limit && buf.get(pos) != delimiter && buf.get(pos) != '\n') {
+                    pos++;
+                }
+                if (pos >= limit || buf.get(pos) == '\n') {
+                    break;
+                }
+                pos++;
+                field++;
+            }
+            if (found < d) {
+                throw new IllegalArgumentException("A row has fewer than " + d + " of the selected columns");
+            }
+            out += d;
+            pos++;
+        }
+    }
+
+    /**
+     * Converts a decimal mantissa and exponent into a scaled long, truncating towards zero, which gives the same
+     * long as (long) Double.parseDouble for unscaled values of at most 15 digits.
+     */
+    private long toLong(long mantissa, int exponent) {
+        if (scale == 1.0 && exponent >= 0 && exponent < POW10.length) {
+            long p = (long) POW10[exponent];
+            if (Math.abs(mantissa) <= Long.MAX_VALUE / p) {
+                return mantissa * p;
+            }
+        }
+        if (scale == 1.0 && exponent < 0 && -exponent < POW10.length) {
+            return mantissa / (long) POW10[-exponent];
+        }
+        double v = mantissa * scale;
+        if (exponent > 0) {
+            v *= exponent < POW10.length ? POW10[exponent] : Math.pow(10, exponent);
+        } else if (exponent < 0) {
+            v /= -exponent < POW10.length ? POW10[-exponent] : Math.pow(10, -exponent);
+        }
+        return (long) v;
+    }
+
+    /**
+     * @return Whether the line starting at pos holds a number
+     */
+    private static boolean isDataLine(MappedByteBuffer buf, int pos) {
+        while (pos < buf.limit() && buf.get(pos) == ' ') {
+            pos++;
+        }
+        if (pos >= buf.limit()) {
+            return false;
+        }
+        byte b = buf.get(pos);
+        return (b >= '0' && b <= '9') || b == '-' || b == '+' || b == '.';
+    }
+
+    /**
+     * @return The position after the line break that ends the line containing pos
+     */
+    private static int skipLine(MappedByteBuffer buf, int pos) {
+        while (pos < buf.limit() && buf.get(pos) != '\n') {
+            pos++;
+        }
+        return pos + 1;
+    }
+}
@@ -0,0 +1,184 @@
+package myshgs.Data;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.stream.IntStream;
+
+/**
+ * Generates synthetic datasets in parallel and reproducibly.
+ * <p>
+ * The points are generated in blocks of a fixed number of rows straight into a flat buffer. Every block draws from
+ * its own SplittableRandom seeded from the seed of the generator and the index of the block, so the output only
+ * depends on the seed and the parameters, not on the number of threads.
+ * <ul>
+ * <li>INDEPENDENT: every coordinate is uniform in [0, max).</li>
+ * <li>CORRELATED: the first coordinate is uniform and the others are spread around it, clamped to [0, max].</li>
+ * <li>ANTI_CORRELATED: the first coordinate x is uniform and the others are spread around max - x, clamped to
+ * [0, max].</li>
+ * <li>CLUSTERED: every point is drawn from a normal distribution around one of a few uniform centres, clamped to
+ * [0, max].</li>
+ * <li>ZIPF: every coordinate falls in one of a number of equal buckets with a Zipf distribution and is uniform
+ * within its bucket, so small values are much more frequent.</li>
+ * </ul>
+ */
+public class DataGenerator {
+    public enum Distribution {
+        INDEPENDENT, CORRELATED, ANTI_CORRELATED, CLUSTERED, ZIPF
+    }
+
+    private static final int BLOCK = 1 << 12; // The number of points generated from one random source
+    private static final long GAMMA = 0x9E3779B97F4A7C15L; // Separates the seeds of the blocks
+    private static final int BUCKETS = 1024; // The number of buckets of the Zipf distribution
+
+    private final long seed;
+    public double spread = 0.1; // The spread of the correlated and anti-correlated values around the related value
+    public int clusters = 10; // The number of centres of the clustered distribution
+    public double sigma = 0.05; // The standard deviation of a cluster, as a share of max
+    public double skew = 1.0; // The exponent of the Zipf distribution
+
+    /**
+     * Constructs a generator.
+     *
+     * @param seed The seed every dataset is derived from
+     */
+    public DataGenerator(long seed) {
+        this.seed = seed;
+    }
+
+    /**
+     * Generates a dataset into a flat buffer.
+     *
+     * @param distribution The distribution of the points
+     * @param d            The dimension of the points
+     * @param n            The number of points
+     * @param max          The bound of the coordinates, see the distributions
+     * @return The points one after another
+     */
+    public Table generate(Distribution distribution, int d, int n, long max) {
+        if (d <= 0 || n < 0 || max <= 0) {
+            throw new IllegalArgumentException("Invalid dataset shape: d=" + d + ", n=" + n + ", max=" + max);
+        }
+        if ((long) n * d > Integer.MAX_VALUE - 8) {
+            throw new IllegalArgumentException("Too many values for one buffer: " + (long) n * d);
+        }
+        long[] data = new long[n * d];
+        long[][] centres = distribution == Distribution.CLUSTERED ? centres(d, max) : null;
+        double[] cdf = distribution == Distribution.ZIPF ? zipf() : null;
+        int blocks = (n + BLOCK - 1) / BLOCK;
+        IntStream.range(0, blocks).parallel().forEach(b -> {
+            SplittableRandom random = new SplittableRandom(seed + (b + 1) * GAMMA);
+            int to = Math.min(n, (b + 1) * BLOCK);
+            for (int i = b * BLOCK; i < to; i++) {
+                int at = i * d;
+                switch (distribution) {
+                    case INDEPENDENT -> {
+                        for (int j = 0; j < d; j++) {
+                            data[at + j] = random.nextLong(max);
+                        }
+                    }
+                    case CORRELATED, ANTI_CORRELATED -> {
+                        data[at] = random.nextLong(max);
+                        long relatedValue = distribution == Distribution.CORRELATED ? data[at] : max - data[at];
+                        for (int j = 1; j < d; j++) {
+                            long t = (long) (relatedValue + (relatedValue * (random.nextDouble() - 0.5) * spread));
+                            data[at + j] = clamp(t, max);
+                        }
+                    }
+                    case CLUSTERED -> {
+                        long[] centre = centres[random.nextInt(centres.length)];
+                        for (int j = 0; j < d; j++) {
+                            data[at + j] = clamp((long) (centre[j] + gaussian(random) * sigma * max), max);
+                        }
+                    }
+                    case ZIPF -> {
+                        for (int j = 0; j < d; j++) {
+                            int bucket = Arrays.binarySearch(cdf, random.nextDouble());
+                            bucket = bucket < 0 ? -bucket - 1 : bucket;
+                            long lo = bound(max, bucket);
+                            long hi = Math.max(lo + 1, bound(max, bucket + 1));
+                            data[at + j] = random.nextLong(lo, hi);
+                        }
+                    }
+                }
+            }
+        });
+        return new Table(n, d, data);
+    }
+
+    /**
+     * Generates a dataset in the array layout used by the indexes.
+     *
+     * @param distribution The distribution of the points
+     * @param d            The dimension of the points
+     * @param n            The number of points
+     * @param max          The bound of the coordinates, see the distributions
+     * @return The points, one array per point
+     */
+    public long[][] points(Distribution distribution, int d, int n, long max) {
+        return generate(distribution, d, n, max).toArray();
+    }
+
+    /**
+     * Parses a distribution from its name or a short form such as "Ind", "Cor", "Anti", "Clu" or "Zipf".
+     *
+     * @param name The name of the distribution, case insensitive
+     * @return The distribution
+     */
+    public static Distribution distribution(String name) {
+        String s = name.trim().toUpperCase();
+        for (Distribution dist : Distribution.values()) {
+            if (dist.name().equals(s) || dist.name().replace("_", "").startsWith(s.replace("_", ""))) {
+                return dist;
+            }
+        }
+        throw new IllegalArgumentException("Unknown distribution " + name);
+    }
+
+    /**
+     * Draws the centres of the clustered distribution from the seed.
+     */
+    private long[][] centres(int d, long max) {
+        SplittableRandom random = new SplittableRandom(seed);
+        long[][] centres = new long[Math.max(1, clusters)][d];
+        for (long[] centre : centres) {
+            for (int j = 0; j < d; j++) {
+                centre[j] = random.nextLong(max);
+            }
+        }
+        return centres;
+    }
+
+    /**
+     * @return The cumulative distribution of the Zipf buckets
+     */
+    private double[] zipf() {
+        double[] cdf = new double[BUCKETS];
+        double sum = 0;
+        for (int k = 0; k < BUCKETS; k++) {
+            sum += 1 / Math.pow(k + 1, skew);
+            cdf[k] = sum;
+        }
+        for (int k = 0; k < BUCKETS; k++) {
+            cdf[k] /= sum;
+        }
+        cdf[BUCKETS - 1] = 1.0;
+        return cdf;
+    }
+
+    private static double gaussian(SplittableRandom random) {
+        // Box-Muller transform
+        double u = 1.0 - random.nextDouble();
+        return Math.sqrt(-2 * Math.log(u)) * Math.cos(2 * Math.PI * random.nextDouble());
+    }
+
+    private static long clamp(long v, long max) {
+        return Math.min(Math.max(v, 0), max);
+    }
+
+    /**
+     * @return The lower bound of a Zipf bucket, max * bucket / BUCKETS without overflowing
+     */
+    private static long bound(long max, int bucket) {
+        return max / BUCKETS * bucket + max % BUCKETS * bucket / BUCKETS;
+    }
+}
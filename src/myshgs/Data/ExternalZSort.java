@@ -0,0 +1,136 @@
+package myshgs.Data;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Sorts a binary dataset into Z-order under a fixed memory budget.
+ * <p>
+ * The points are read in runs that fit in the budget, every run is sorted on the heap and spilled to a temporary
+ * binary file, and the runs are merged k ways into the output. The Z-order comparison works on the coordinates
+ * directly: the most significant differing bit of the Morton code belongs to the dimension whose coordinates differ
+ * in the highest bit, the first such dimension on ties, so no Morton code is ever materialised. The order is the one
+ * of Utils.compare over Utils.fromPtoZ, so the Z-order bulk loaders can consume the output as it is.
+ */
+public class ExternalZSort {
+    private final long budget; // The number of heap bytes a run may use
+    private final File tmpDir; // The directory of the runs
+
+    /**
+     * Constructs a sorter.
+     *
+     * @param budget The number of heap bytes a run may use
+     * @param tmpDir The directory of the temporary runs, or null for the default temporary directory
+     */
+    public ExternalZSort(long budget, File tmpDir) {
+        if (budget <= 0) {
+            throw new IllegalArgumentException("The memory budget must be positive");
+        }
+        this.budget = budget;
+        this.tmpDir = tmpDir;
+    }
+
+    /**
+     * Sorts a binary dataset into Z-order.
+     *
+     * @param inPath  The path of the binary dataset to sort
+     * @param outPath The path of the sorted binary dataset
+     * @throws IOException if a file cannot be read or written
+     */
+    public void sort(String inPath, String outPath) throws IOException {
+        BinaryDataset input = BinaryDataset.open(inPath);
+        int n = input.size();
+        int d = input.dimension();
+        // A point costs its coordinates, the array header and two references during the sort
+        int runRows = (int) Math.max(2, Math.min(Integer.MAX_VALUE / Math.max(1, d), budget / (d * Long.BYTES + 24)));
+
+        if (n <= runRows) {
+            sortRun(input, 0, n, outPath);
+            return;
+        }
+        List<File> runs = new ArrayList<>();
+        try {
+            for (int from = 0; from < n; from += runRows) {
+                File run = File.createTempFile("zrun", ".bin", tmpDir);
+                runs.add(run);
+                sortRun(input, from, Math.min(n, from + runRows), run.getPath());
+            }
+            merge(runs, d, outPath);
+        } finally {
+            for (File run : runs) {
+                run.delete();
+            }
+        }
+    }
+
+    /**
+     * Sorts the points [from, to) of a dataset on the heap and writes them into a binary file.
+     */
+    private static void sortRun(BinaryDataset input, int from, int to, String path) throws IOException {
+        int d = input.dimension();
+        long[][] run = new long[to - from][];
+        for (int i = from; i < to; i++) {
+            run[i - from] = input.get(i, new long[d]);
+        }
+        Arrays.parallelSort(run, ExternalZSort::compare);
+        BinaryDataset.write(path, d, run);
+    }
+
+    /**
+     * Merges sorted runs into one sorted binary file.
+     */
+    private static void merge(List<File> runs, int d, String path) throws IOException {
+        BinaryDataset[] sources = new BinaryDataset[runs.size()];
+        int[] next = new int[runs.size()];
+        long[][] heads = new long[runs.size()][];
+        for (int r = 0; r < sources.length; r++) {
+            sources[r] = BinaryDataset.open(runs.get(r).getPath());
+        }
+        PriorityQueue<Integer> queue = new PriorityQueue<>((a, b) -> {
+            int c = compare(heads[a], heads[b]);
+            return c != 0 ? c : Integer.compare(a, b);
+        });
+        for (int r = 0; r < sources.length; r++) {
+            if (sources[r].size() > 0) {
+                heads[r] = sources[r].get(0, new long[d]);
+                next[r] = 1;
+                queue.add(r);
+            }
+        }
+        try (BinaryDataset.Writer writer = new BinaryDataset.Writer(path, d)) {
+            while (!queue.isEmpty()) {
+                int r = queue.poll();
+                writer.add(heads[r]);
+                if (next[r] < sources[r].size()) {
+                    sources[r].get(next[r]++, heads[r]);
+                    queue.add(r);
+                }
+            }
+        }
+    }
+
+    /**
+     * Compares two points by their Z-order values without computing them.
+     *
+     * @param a The first point, with non-negative coordinates
+     * @param b The second point, with non-negative coordinates
+     * @return A negative value, zero or a positive value as a precedes, equals or follows b in Z-order
+     */
+    public static int compare(long[] a, long[] b) {
+        int k = -1;
+        long top = 0;
+        for (int j = 0; j < a.length; j++) {
+            long x = a[j] ^ b[j];
+            // Keep the first dimension with the highest differing bit
+            if (x != 0 && (k < 0 || (top < x && top < (x ^ top)))) {
+                k = j;
+                top = x;
+            }
+        }
+        return k < 0 ? 0 : Long.compare(a[k], b[k]);
+    }
+}
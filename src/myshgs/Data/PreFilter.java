@@ -0,0 +1,202 @@
+package myshgs.Data;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+/**
+ * Removes points that are certainly not in the skyline before an index is built.
+ * <p>
+ * A few strong points are picked from the dataset: the k points with the smallest sum of coordinates and, for every
+ * dimension, the point with the smallest coordinate in that dimension (the smallest sum on ties). Every point that
+ * one of them dominates is dropped. The strong points are real points of the dataset, so a point that is dropped is
+ * dominated by a point that is kept and the skyline of the output is the skyline of the input. Both the selection
+ * and the filtering run in parallel over chunks of the dataset.
+ */
+public class PreFilter {
+    private final int k; // The number of points with the smallest sums to pick
+    private long[][] strong = new long[0][]; // The strong points of the last run
+    private int input = 0; // The number of points of the last run
+    private int kept = 0; // The number of points that survived the last run
+    private long nanos = 0; // The duration of the last run
+
+    /**
+     * Constructs a filter that picks 16 points with the smallest sums.
+     */
+    public PreFilter() {
+        this(16);
+    }
+
+    /**
+     * Constructs a filter.
+     *
+     * @param k The number of points with the smallest sums to pick as strong points
+     */
+    public PreFilter(int k) {
+        if (k < 1) {
+            throw new IllegalArgumentException("At least one strong point is required");
+        }
+        this.k = k;
+    }
+
+    /**
+     * Removes the points dominated by a strong point.
+     *
+     * @param points The dataset
+     * @return The points that are not dominated by a strong point, in their original order
+     */
+    public long[][] filter(long[][] points) {
+        long start = System.nanoTime();
+        input = points.length;
+        if (points.length == 0) {
+            strong = new long[0][];
+            kept = 0;
+            nanos = System.nanoTime() - start;
+            return points;
+        }
+        strong = pick(points);
+        long[][] out = Arrays.stream(points).parallel().filter(p -> {
+            for (long[] s : strong) {
+                if (dominates(s, p)) {
+                    return false;
+                }
+            }
+            return true;
+        }).toArray(long[][]::new);
+        kept = out.length;
+        nanos = System.nanoTime() - start;
+        return out;
+    }
+
+    /**
+     * Picks the strong points, the one with the smallest sum first. Strong points dominated by another one are left
+     * out since they cannot drop any point the other one does not.
+     */
+    private long[][] pick(long[][] points) {
+        int d = points[0].length;
+        int chunks = Math.min(points.length, 4 * ForkJoinPool.getCommonPoolParallelism());
+        // Every chunk keeps its k smallest sums in a max-heap and its minimum of every dimension
+        List<List<long[]>> best = IntStream.range(0, chunks).parallel().mapToObj(c -> {
+            int from = (int) ((long) points.length * c / chunks);
+            int to = (int) ((long) points.length * (c + 1) / chunks);
+            PriorityQueue<long[]> heap = new PriorityQueue<>((a, b) -> Long.compare(sum(b), sum(a)));
+            long[][] min = new long[d][];
+            for (int i = from; i < to; i++) {
+                long[] p = points[i];
+                if (heap.size() < k) {
+                    heap.add(p);
+                } else if (sum(p) < sum(heap.peek())) {
+                    heap.poll();
+                    heap.add(p);
+                }
+                for (int j = 0; j < d; j++) {
+                    if (min[j] == null || better(p, min[j], j)) {
+                        min[j] = p;
+                    }
+                }
+            }
+            List<long[]> list = new ArrayList<>(heap);
+            list.addAll(Arrays.asList(min));
+            return list;
+        }).toList();
+
+        // Merge the chunks
+        List<long[]> all = new ArrayList<>();
+        for (List<long[]> list : best) {
+            all.addAll(list);
+        }
+        all.sort((a, b) -> Long.compare(sum(a), sum(b)));
+        List<long[]> picked = new ArrayList<>(all.subList(0, Math.min(k, all.size())));
+        for (int j = 0; j < d; j++) {
+            long[] m = null;
+            for (long[] p : all) {
+                if (m == null || better(p, m, j)) {
+                    m = p;
+                }
+            }
+            picked.add(m);
+        }
+
+        List<long[]> result = new ArrayList<>();
+        for (long[] p : picked) {
+            boolean useful = true;
+            for (long[] q : picked) {
+                if (dominates(q, p)) {
+                    useful = false;
+                    break;
+                }
+            }
+            for (long[] q : result) {
+                if (Arrays.equals(q, p)) {
+                    useful = false;
+                    break;
+                }
+            }
+            if (useful) {
+                result.add(p);
+            }
+        }
+        return result.toArray(new long[0][]);
+    }
+
+    /**
+     * @return Whether p is a better minimum of dimension j than q: a smaller coordinate, or a smaller sum on ties
+     */
+    private static boolean better(long[] p, long[] q, int j) {
+        return p[j] < q[j] || (p[j] == q[j] && sum(p) < sum(q));
+    }
+
+    private static long sum(long[] p) {
+        long s = 0;
+        for (long v : p) {
+            s += v;
+        }
+        return s;
+    }
+
+    /**
+     * @return Whether a dominates b, without counting the test
+     */
+    private static boolean dominates(long[] a, long[] b) {
+        boolean strict = false;
+        for (int j = 0; j < a.length; j++) {
+            if (a[j] > b[j]) {
+                return false;
+            } else if (a[j] < b[j]) {
+                strict = true;
+            }
+        }
+        return strict;
+    }
+
+    /**
+     * @return The strong points picked by the last run
+     */
+    public long[][] getStrongPoints() {
+        return strong;
+    }
+
+    /**
+     * @return The number of points removed by the last run
+     */
+    public int getEliminated() {
+        return input - kept;
+    }
+
+    /**
+     * @return The share of the points removed by the last run
+     */
+    public double getEliminatedRatio() {
+        return input == 0 ? 0 : (input - kept) / (double) input;
+    }
+
+    /**
+     * @return The duration of the last run in milliseconds
+     */
+    public double getTime() {
+        return nanos / 1000000.0;
+    }
+}
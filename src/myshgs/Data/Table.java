@@ -0,0 +1,48 @@
+package myshgs.Data;
+
+import java.io.IOException;
+import java.util.stream.IntStream;
+
+/**
+ * A dataset loaded by CsvLoader or generated by DataGenerator: n points of dimension d stored one after another in a
+ * flat buffer.
+ */
+public class Table {
+    public final int n;
+    public final int d;
+    public final long[] data;
+
+    public Table(int n, int d, long[] data) {
+        this.n = n;
+        this.d = d;
+        this.data = data;
+    }
+
+    /**
+     * @return The points in the array layout used by the indexes
+     */
+    public long[][] toArray() {
+        long[][] points = new long[n][];
+        IntStream.range(0, n).parallel().forEach(i -> {
+            points[i] = new long[d];
+            System.arraycopy(data, i * d, points[i], 0, d);
+        });
+        return points;
+    }
+
+    /**
+     * Writes the points into a binary dataset.
+     *
+     * @param path The path of the binary file
+     * @throws IOException if the file cannot be written
+     */
+    public void writeBinary(String path) throws IOException {
+        try (BinaryDataset.Writer writer = new BinaryDataset.Writer(path, d)) {
+            long[] p = new long[d];
+            for (int i = 0; i < n; i++) {
+                System.arraycopy(data, i * d, p, 0, d);
+                writer.add(p);
+            }
+        }
+    }
+}
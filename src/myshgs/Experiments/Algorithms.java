@@ -0,0 +1,456 @@
+package myshgs.Experiments;
+
+import myshgs.Data.PreFilter;
+import myshgs.MyApproaches.IQuadPlusTree.IQuadPlusTree;
+import myshgs.MyApproaches.IQuadTree.IQuadTree;
+import myshgs.MyApproaches.IZOrderRTree.PagedZIBBS;
+import myshgs.MyApproaches.IZOrderRTree.ZIBBS;
+import myshgs.MyApproaches.IZSearch.IZBTree;
+import myshgs.Others.BBS.BBS;
+import myshgs.Others.BBS.PagedBBS;
+import myshgs.Others.MBR_Oriented.MBRSKY.MBRSky;
+import myshgs.Others.MBR_Oriented.MBRs_Zorder.ZMBRSky;
+import myshgs.Others.ZSearch.ZBTree;
+import myshgs.ParameterTuner;
+import myshgs.QueryStats;
+import myshgs.Storage.BufferPool;
+import myshgs.Storage.PageFile;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.List;
+
+/**
+ * The registry of the skyline algorithms compared by the benchmarks, with the page-derived default capacities
+ * and fanouts the benchmarks use. NAMES are the algorithms of the paper, which the benchmarks run by default;
+ * PARALLEL are the multi-threaded modes of the baselines, named after their sequential algorithm with a -par suffix,
+ * which run on the same index and parameters. PAGED are BBS and IZOrderRTree on R-trees in a temporary page file,
+ * read through a buffer pool of POOL_PAGES pages unless another size is given, whose nodes fit in one page by default.
+ */
+public class Algorithms {
+    public static final String[] NAMES = {"MBRSTR", "MBRZOrder", "BBS", "ZSearch", "IQuadPlusTree", "IQuadTree",
+            "IZOrderRTree", "IZSearch"};
+    public static final String[] PARALLEL = {"MBRSTR-par", "MBRZOrder-par", "ZSearch-par"};
+    public static final String[] PAGED = {"PagedBBS", "PagedZIBBS"};
+    public static final int POOL_PAGES = 1024; // The default buffer pool of PAGED, 4 MB
+
+    /**
+     * An algorithm of PAGED, whose index is read through a buffer pool. Closing it closes and deletes its page file.
+     */
+    public interface Paged extends SkylineAlgorithm, Closeable {
+        /**
+         * @return The buffer pool of the index built last, with the page reads of its queries
+         */
+        BufferPool getBufferPool();
+    }
+
+    /**
+     * Creates an algorithm by name.
+     *
+     * @param name The name of the algorithm, one of NAMES, PARALLEL or PAGED
+     * @param C    The capacity of a node, or 0 for the default of the algorithm
+     * @param F    The fanout of a directory node, or 0 for the default of the algorithm
+     * @param Q    The threshold of the skyline pointers, ignored by the algorithms without one
+     * @param d    The dimension of the data
+     * @return The algorithm, without an index yet
+     */
+    public static SkylineAlgorithm create(String name, int C, int F, int Q, int d) {
+        return create(name, C, F, Q, d, false);
+    }
+
+    /**
+     * Creates an algorithm by name.
+     *
+     * @param name     The name of the algorithm, one of NAMES, PARALLEL or PAGED
+     * @param C        The capacity of a node, or 0 for the default of the algorithm
+     * @param F        The fanout of a directory node, or 0 for the default of the algorithm
+     * @param Q        The threshold of the skyline pointers, ignored by the algorithms without one
+     * @param d        The dimension of the data
+     * @param adaptive Whether the queries adapt the warm-up cutoff and Q, see AdaptiveThreshold, ignored by the
+     *                 algorithms without skyline pointers
+     * @return The algorithm, without an index yet
+     */
+    public static SkylineAlgorithm create(String name, int C, int F, int Q, int d, boolean adaptive) {
+        return create(name, C, F, Q, d, adaptive, POOL_PAGES);
+    }
+
+    /**
+     * Creates an algorithm by name.
+     *
+     * @param name     The name of the algorithm, one of NAMES, PARALLEL or PAGED
+     * @param C        The capacity of a node, or 0 for the default of the algorithm
+     * @param F        The fanout of a directory node, or 0 for the default of the algorithm
+     * @param Q        The threshold of the skyline pointers, ignored by the algorithms without one
+     * @param d        The dimension of the data
+     * @param adaptive Whether the queries adapt the warm-up cutoff and Q, see AdaptiveThreshold, ignored by the
+     *                 algorithms without skyline pointers
+     * @param pool     The number of pages of the buffer pool, ignored by the algorithms that are not PAGED
+     * @return The algorithm, without an index yet
+     */
+    public static SkylineAlgorithm create(String name, int C, int F, int Q, int d, boolean adaptive, int pool) {
+        int c = C > 0 ? C : capacity(name, d);
+        int f = F > 0 ? F : fanout(name, d);
+        return switch (name) {
+            case "MBRSTR" -> new SkylineAlgorithm() {
+                private MBRSky loader;
+
+                public void build(long[][] points) {
+                    loader = new MBRSky(c, -1, d);
+                    loader.init(points);
+                }
+
+                public List<long[]> skyline(QueryStats stats) {
+                    return loader.skyline(stats);
+                }
+            };
+            case "MBRSTR-par" -> new SkylineAlgorithm() {
+                private MBRSky loader;
+
+                public void build(long[][] points) {
+                    loader = new MBRSky(c, -1, d);
+                    loader.init(points);
+                }
+
+                public List<long[]> skyline(QueryStats stats) {
+                    return loader.parallelSkyline(stats);
+                }
+            };
+            case "MBRZOrder" -> new SkylineAlgorithm() {
+                private ZMBRSky loader;
+
+                public void build(long[][] points) {
+                    loader = new ZMBRSky(c, -1, d);
+                    loader.init(points);
+                }
+
+                public List<long[]> skyline(QueryStats stats) {
+                    return loader.skyline(stats);
+                }
+            };
+            case "MBRZOrder-par" -> new SkylineAlgorithm() {
+                private ZMBRSky loader;
+
+                public void build(long[][] points) {
+                    loader = new ZMBRSky(c, -1, d);
+                    loader.init(points);
+                }
+
+                public List<long[]> skyline(QueryStats stats) {
+                    return loader.parallelSkyline(stats);
+                }
+            };
+            case "BBS" -> new SkylineAlgorithm() {
+                private BBS loader;
+
+                public void build(long[][] points) {
+                    loader = new BBS(c, f, d);
+                    loader.init(points);
+                }
+
+                public List<long[]> skyline(QueryStats stats) {
+                    return loader.skyline(stats);
+                }
+            };
+            case "ZSearch" -> new SkylineAlgorithm() {
+                private ZBTree loader;
+
+                public void build(long[][] points) {
+                    loader = new ZBTree(c, f, d);
+                    loader.init(points);
+                }
+
+                public List<long[]> skyline(QueryStats stats) {
+                    return loader.skyline(stats);
+                }
+            };
+            case "ZSearch-par" -> new SkylineAlgorithm() {
+                private ZBTree loader;
+
+                public void build(long[][] points) {
+                    loader = new ZBTree(c, f, d);
+                    loader.init(points);
+                }
+
+                public List<long[]> skyline(QueryStats stats) {
+                    return loader.parallelSkyline(stats);
+                }
+            };
+            case "IQuadPlusTree" -> new SkylineAlgorithm() {
+                private IQuadPlusTree loader;
+
+                public void build(long[][] points) {
+                    loader = new IQuadPlusTree(c, f, Q, d);
+                    loader.adaptiveQuery = adaptive;
+                    loader.bulkLoading(points);
+                }
+
+                public List<long[]> skyline(QueryStats stats) {
+                    return loader.skyline(stats);
+                }
+            };
+            case "IQuadTree" -> new SkylineAlgorithm() {
+                private IQuadTree loader;
+
+                public void build(long[][] points) {
+                    loader = new IQuadTree(c, Q, d);
+                    loader.adaptiveQuery = adaptive;
+                    loader.init(points);
+                }
+
+                public List<long[]> skyline(QueryStats stats) {
+                    return loader.skyline(stats);
+                }
+            };
+            case "IZOrderRTree" -> new SkylineAlgorithm() {
+                private ZIBBS loader;
+
+                public void build(long[][] points) {
+                    loader = new ZIBBS(c, f, Q, d);
+                    loader.adaptiveQuery = adaptive;
+                    loader.init(points);
+                }
+
+                public List<long[]> skyline(QueryStats stats) {
+                    return loader.skyline(stats);
+                }
+            };
+            case "IZSearch" -> new SkylineAlgorithm() {
+                private IZBTree loader;
+
+                public void build(long[][] points) {
+                    loader = new IZBTree(c, f, Q, d);
+                    loader.adaptiveQuery = adaptive;
+                    loader.init(points);
+                }
+
+                public List<long[]> skyline(QueryStats stats) {
+                    return loader.skyline(stats);
+                }
+            };
+            case "PagedBBS" -> new Paged() {
+                private PagedBBS loader;
+                private File file;
+
+                public void build(long[][] points) {
+                    try {
+                        if (loader != null) {
+                            loader.close();
+                        }
+                        file = file != null ? file : pageFile();
+                        loader = new PagedBBS(c, f, d, pool);
+                        loader.init(points, file.getPath());
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                }
+
+                public List<long[]> skyline(QueryStats stats) {
+                    return loader.skyline(stats);
+                }
+
+                public BufferPool getBufferPool() {
+                    return loader.getBufferPool();
+                }
+
+                public void close() throws IOException {
+                    if (loader != null) {
+                        loader.close();
+                        file.delete();
+                    }
+                }
+            };
+            case "PagedZIBBS" -> new Paged() {
+                private PagedZIBBS loader;
+                private File file;
+
+                public void build(long[][] points) {
+                    try {
+                        if (loader != null) {
+                            loader.close();
+                        }
+                        file = file != null ? file : pageFile();
+                        loader = new PagedZIBBS(c, f, Q, d, pool);
+                        loader.init(points, file.getPath());
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                }
+
+                public List<long[]> skyline(QueryStats stats) {
+                    return loader.skyline(stats);
+                }
+
+                public BufferPool getBufferPool() {
+                    return loader.getBufferPool();
+                }
+
+                public void close() throws IOException {
+                    if (loader != null) {
+                        loader.close();
+                        file.delete();
+                    }
+                }
+            };
+            default -> throw new IllegalArgumentException("Unknown algorithm " + name);
+        };
+    }
+
+    /**
+     * @return A new temporary page file, deleted when the JVM exits
+     */
+    private static File pageFile() throws IOException {
+        File file = File.createTempFile("index", ".pages");
+        file.deleteOnExit();
+        return file;
+    }
+
+    /**
+     * Runs an algorithm on the output of PreFilter. Every build filters the dataset first, so the build time includes
+     * the filter.
+     *
+     * @param alg The algorithm
+     * @return The algorithm over the pre-filtered dataset
+     */
+    public static SkylineAlgorithm prefiltered(SkylineAlgorithm alg) {
+        return new SkylineAlgorithm() {
+            public void build(long[][] points) {
+                alg.build(new PreFilter().filter(points));
+            }
+
+            public List<long[]> skyline(QueryStats stats) {
+                return alg.skyline(stats);
+            }
+        };
+    }
+
+    /**
+     * Recommends the parameters of an algorithm for a dataset, see ParameterTuner. Only the parameters given as
+     * ParameterTuner.AUTO are tuned, the others are kept. F and Q are ignored if the algorithm does not use them,
+     * and are 0 in the result.
+     *
+     * @param name   The name of the algorithm, one of NAMES, PARALLEL or PAGED
+     * @param points The dataset
+     * @param C      The capacity of a node, 0 for the default of the algorithm, or ParameterTuner.AUTO
+     * @param F      The fanout of a directory node, 0 for the default of the algorithm, or ParameterTuner.AUTO
+     * @param Q      The threshold of the skyline pointers, or ParameterTuner.AUTO
+     * @return The recommended parameters
+     */
+    public static ParameterTuner.Result tune(String name, long[][] points, int C, int F, int Q) {
+        int d = points[0].length;
+        int f = usesFanout(name) ? F : 0;
+        int q = usesThreshold(name) ? Q : 0;
+        return new ParameterTuner().tune(points, C, f, q, (tc, tf, tq, sample) -> {
+            SkylineAlgorithm alg = create(name, tc, tf, tq, d);
+            alg.build(sample);
+            return alg::skyline;
+        });
+    }
+
+    /**
+     * @return The number of entries of a 4 KB leaf page of the algorithm
+     */
+    public static int capacity(String name, int d) {
+        return switch (sequential(name)) {
+            case "MBRSTR", "MBRZOrder", "BBS", "IZOrderRTree" -> calculateRCapacity(d);
+            case "ZSearch", "IZSearch" -> calculateZCapacity(d);
+            case "PagedBBS", "PagedZIBBS" -> calculatePagedCapacity(d);
+            default -> calculateCapacity(d);
+        };
+    }
+
+    /**
+     * @return The default fanout of the algorithm: the fanout of a page for PAGED, 400 for the others
+     */
+    public static int fanout(String name, int d) {
+        return isPaged(name) ? calculatePagedFanOut(d) : 400;
+    }
+
+    /**
+     * @return The fanout of a 4 KB directory page of the algorithm, as used for the real datasets
+     */
+    public static int pageFanout(String name, int d) {
+        return switch (sequential(name)) {
+            case "MBRSTR", "MBRZOrder", "BBS", "IZOrderRTree" -> calculateRFanOut(d);
+            case "ZSearch", "IZSearch" -> calculateZFanOut(d);
+            case "PagedBBS", "PagedZIBBS" -> calculatePagedFanOut(d);
+            default -> calculateFanOut(d);
+        };
+    }
+
+    /**
+     * @return Whether the algorithm has directory nodes whose fanout is set by F
+     */
+    public static boolean usesFanout(String name) {
+        name = sequential(name);
+        return !name.equals("MBRSTR") && !name.equals("MBRZOrder") && !name.equals("IQuadTree");
+    }
+
+    /**
+     * @return Whether the algorithm has skyline pointers whose threshold is set by Q
+     */
+    public static boolean usesThreshold(String name) {
+        return name.startsWith("I") || name.equals("PagedZIBBS");
+    }
+
+    /**
+     * @return Whether the algorithm is one of PAGED, whose index is read through a buffer pool
+     */
+    public static boolean isPaged(String name) {
+        return name.equals("PagedBBS") || name.equals("PagedZIBBS");
+    }
+
+    /**
+     * @return The sequential algorithm of a parallel mode, or the name itself
+     */
+    private static String sequential(String name) {
+        return name.endsWith("-par") ? name.substring(0, name.length() - 4) : name;
+    }
+
+    private static int calculateRCapacity(int dimension) {
+        final int PAGE_SIZE = 4 * 1024 - 16 - dimension * Long.BYTES * 2 - 40; // 4 KB in bytes  40-byte for Tuple Information
+        int entrySize = dimension * Long.BYTES;
+        return PAGE_SIZE / entrySize;
+    }
+
+    private static int calculateZCapacity(int dimension) {
+        final int PAGE_SIZE = 4 * 1024 - 16 - (dimension * 30) / 4 - 40;  // 4 KB in bytes  40-byte for Tuple Information
+        int entrySize = (dimension * 30) / 8;
+        return PAGE_SIZE / entrySize;
+    }
+
+    private static int calculateCapacity(int dimension) {
+        final int PAGE_SIZE = 4 * 1024 - 16 - dimension * Long.BYTES - 40; // 4 KB in bytes  40-byte for Tuple Information
+        int entrySize = dimension * Long.BYTES;
+        return PAGE_SIZE / entrySize;
+    }
+
+    private static int calculateRFanOut(int dimension) {
+        final int PAGE_SIZE = 4 * 1024 - 16 - dimension * Long.BYTES * 2 - 40; // 4 KB in bytes  40-byte for Tuple Information
+        int entrySize = 4;
+        return PAGE_SIZE / entrySize;
+    }
+
+    private static int calculateZFanOut(int dimension) {
+        final int PAGE_SIZE = 4 * 1024 - 16 - (dimension * 30) / 4 - 40; // 4 KB in bytes  40-byte for Tuple Information
+        int entrySize = 4;
+        return PAGE_SIZE / entrySize;
+    }
+
+    private static int calculateFanOut(int dimension) {
+        final int PAGE_SIZE = 4 * 1024 - 16 - dimension * Long.BYTES - 40;// 4 KB in bytes
+        int entrySize = 4;
+        return PAGE_SIZE / entrySize;
+    }
+
+    // The points that fit in one page next to the node header of PagedRTree
+    private static int calculatePagedCapacity(int dimension) {
+        return (PageFile.PAGE_SIZE - 4 * Integer.BYTES) / (dimension * Long.BYTES);
+    }
+
+    // The directory entries (child id and MBR) that fit in one page next to the node header of PagedRTree
+    private static int calculatePagedFanOut(int dimension) {
+        return (PageFile.PAGE_SIZE - 4 * Integer.BYTES) / (Integer.BYTES + 2 * dimension * Long.BYTES);
+    }
+}
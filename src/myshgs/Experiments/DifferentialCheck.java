@@ -0,0 +1,368 @@
+package myshgs.Experiments;
+
+import myshgs.Data.BinaryDataset;
+import myshgs.Data.DataGenerator;
+import myshgs.Data.ExternalZSort;
+import myshgs.Data.PreFilter;
+import myshgs.MyApproaches.IQuadPlusTree.IQuadPlusTree;
+import myshgs.MyApproaches.IQuadTree.IQuadTree;
+import myshgs.MyApproaches.IZOrderRTree.ZIBBS;
+import myshgs.MyApproaches.IZSearch.IZBTree;
+import myshgs.MyApproaches.OffHeap.OffHeapUINDG;
+import myshgs.Others.ZSearch.ZBTree;
+import myshgs.ParameterTuner;
+import myshgs.QueryStats;
+import myshgs.SortFilterSkyline;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Checks every skyline algorithm against SortFilterSkyline on random and adversarial datasets.
+ * <p>
+ * For every dimension the datasets are the five distributions of DataGenerator and the adversarial cases: copies of
+ * every point, many ties on a small grid of values, a single point repeated, a single point, and points on a plane
+ * of equal sums, where every point is in the skyline. Besides the algorithms of Algorithms.NAMES, Algorithms.PARALLEL
+ * and Algorithms.PAGED, whose paged R-trees get a small buffer pool, the check runs the other ways to build and query
+ * the indexes, see VARIANTS: the adaptive build of IQuadTree, both trees of OffHeapUINDG,
+ * the U-INDG indexes restored from a snapshot, the Z-order indexes loaded from the output of ExternalZSort, the
+ * U-INDG indexes with their parameters tuned by ParameterTuner, and their adaptive queries. A tuning builds dozens of
+ * trial indexes, so the tuned indexes only run on the datasets of DataGenerator. With prefilter=true every algorithm
+ * also runs on the output of PreFilter.
+ * The skylines are compared as multisets of points, so their order does not matter. An algorithm that throws is
+ * reported as a failure too, and the check exits with status 1 if any case fails.
+ * <p>
+ * Parameters are given as key=value arguments: algorithm (comma separated, default all), d (comma separated or a
+ * range from:to, default 2:12), n (default 5000), seed (default 1), C, F (0 for the default of the algorithm), Q and
+ * prefilter. For example: algorithm=IZSearch,BBS d=2:6 n=20000
+ */
+public class DifferentialCheck {
+    private static final String[] VARIANTS = {"IQuadTree(adaptive)", "OffHeapUINDG(ZBTree)", "OffHeapUINDG(RTree)", "IQuadPlusTree(snapshot)", "IQuadTree(snapshot)",
+            "IZOrderRTree(snapshot)", "IZSearch(snapshot)", "ZSearch(sorted)", "IQuadTree(sorted)",
+            "IZOrderRTree(sorted)", "IZSearch(sorted)", "IQuadPlusTree(auto)", "IQuadTree(auto)", "IZOrderRTree(auto)",
+            "IZSearch(auto)", "IQuadPlusTree(adaptive query)", "IQuadTree(adaptive query)",
+            "IZOrderRTree(adaptive query)", "IZSearch(adaptive query)"};
+    private static final int POOL_PAGES = 8; // The buffer pool of the paged R-trees, small enough to evict pages
+    private static final long MAX = 1000000000;
+
+    public static void main(String[] args) {
+        Map<String, String> params = new LinkedHashMap<>();
+        for (String arg : args) {
+            int eq = arg.indexOf('=');
+            if (eq <= 0) {
+                throw new IllegalArgumentException("Expected key=value but got " + arg);
+            }
+            params.put(arg.substring(0, eq), arg.substring(eq + 1));
+        }
+        List<String> algorithms = new ArrayList<>(Arrays.asList(Algorithms.NAMES));
+        algorithms.addAll(Arrays.asList(Algorithms.PARALLEL));
+        algorithms.addAll(Arrays.asList(Algorithms.PAGED));
+        algorithms.addAll(Arrays.asList(VARIANTS));
+        if (params.containsKey("algorithm")) {
+            algorithms = Arrays.asList(params.get("algorithm").split(","));
+        }
+        String[] range = params.getOrDefault("d", "2:12").split(":");
+        List<Integer> dims = new ArrayList<>();
+        if (range.length == 2) {
+            for (int d = Integer.parseInt(range[0]); d <= Integer.parseInt(range[1]); d++) {
+                dims.add(d);
+            }
+        } else {
+            for (String d : range[0].split(",")) {
+                dims.add(Integer.parseInt(d.trim()));
+            }
+        }
+        int n = Integer.parseInt(params.getOrDefault("n", "5000"));
+        long seed = Long.parseLong(params.getOrDefault("seed", "1"));
+        int C = Integer.parseInt(params.getOrDefault("C", "0"));
+        int F = Integer.parseInt(params.getOrDefault("F", "0"));
+        int Q = Integer.parseInt(params.getOrDefault("Q", "100"));
+        boolean prefilter = Boolean.parseBoolean(params.getOrDefault("prefilter", "false"));
+
+        int cases = 0, failures = 0;
+        for (int d : dims) {
+            for (Map.Entry<String, long[][]> dataset : datasets(d, n, seed).entrySet()) {
+                long[][] points = dataset.getValue();
+                List<long[]> expected = SortFilterSkyline.skyline(points);
+                for (String algorithm : algorithms) {
+                    if (algorithm.endsWith("(auto)") && !generated(dataset.getKey())) {
+                        continue;
+                    }
+                    for (int filtered = 0; filtered <= (prefilter ? 1 : 0); filtered++) {
+                        String name = algorithm + (filtered == 1 ? "+PreFilter" : "") + " on " + dataset.getKey()
+                                + " d=" + d + " n=" + points.length;
+                        cases++;
+                        String error;
+                        try {
+                            long[][] input = filtered == 1 ? new PreFilter().filter(points) : points;
+                            error = compare(expected, run(algorithm, input, C, F, Q, d));
+                        } catch (IOException | RuntimeException e) {
+                            error = e.toString();
+                        }
+                        if (error != null) {
+                            failures++;
+                            System.out.println("FAIL " + name + ": " + error);
+                        }
+                    }
+                }
+            }
+            System.out.println("d=" + d + ": " + cases + " cases, " + failures + " failures");
+        }
+        if (failures > 0) {
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Builds the index of an algorithm or variant over a dataset and computes its skyline.
+     */
+    private static List<long[]> run(String algorithm, long[][] points, int C, int F, int Q, int d) throws IOException {
+        int paren = algorithm.indexOf('(');
+        String name = paren < 0 ? algorithm : algorithm.substring(0, paren);
+        String variant = paren < 0 ? "" : algorithm.substring(paren + 1, algorithm.length() - 1);
+        int c = C > 0 ? C : Algorithms.capacity(name, d);
+        int f = F > 0 ? F : Algorithms.fanout(name, d);
+        switch (variant) {
+            case "adaptive": {
+                IQuadTree tree = new IQuadTree(c, Q, d);
+                tree.initAdaptive(points);
+                return tree.skyline(QueryStats.NONE);
+            }
+            case "snapshot":
+                return snapshot(name, points, c, f, Q, d);
+            case "sorted":
+                return sorted(name, points, c, f, Q, d);
+            case "auto":
+                return create(name, ParameterTuner.AUTO, ParameterTuner.AUTO, ParameterTuner.AUTO, d, false,
+                        points);
+            case "adaptive query":
+                return create(name, C, F, Q, d, true, points);
+            case "ZBTree":
+            case "RTree": {
+                OffHeapUINDG loader = new OffHeapUINDG(c, f, Q, d);
+                if (variant.equals("ZBTree")) {
+                    loader.initZBTree(points);
+                } else {
+                    loader.initRTree(points);
+                }
+                return loader.skyline(new long[2]);
+            }
+        }
+        if (Algorithms.isPaged(name)) {
+            try (Algorithms.Paged alg = (Algorithms.Paged) Algorithms.create(name, C, F, Q, d, false, POOL_PAGES)) {
+                alg.build(points);
+                return alg.skyline(QueryStats.NONE);
+            }
+        }
+        return create(algorithm, C, F, Q, d, false, points);
+    }
+
+    private static List<long[]> create(String algorithm, int C, int F, int Q, int d, boolean adaptive,
+                                       long[][] points) {
+        SkylineAlgorithm alg = Algorithms.create(algorithm, C, F, Q, d, adaptive);
+        alg.build(points);
+        return alg.skyline(QueryStats.NONE);
+    }
+
+    /**
+     * Builds a U-INDG index, saves it into a snapshot and queries the index restored from it. The restored index is
+     * constructed with AUTO parameters, so that it reads them from the snapshot.
+     */
+    private static List<long[]> snapshot(String name, long[][] points, int c, int f, int Q, int d)
+            throws IOException {
+        int auto = ParameterTuner.AUTO;
+        File file = File.createTempFile("check", ".snapshot");
+        try {
+            switch (name) {
+                case "IQuadPlusTree": {
+                    IQuadPlusTree tree = new IQuadPlusTree(c, f, Q, d);
+                    tree.bulkLoading(points);
+                    tree.save(file.getPath());
+                    IQuadPlusTree restored = new IQuadPlusTree(auto, auto, auto, d);
+                    restored.restore(file.getPath());
+                    return restored.skyline(QueryStats.NONE);
+                }
+                case "IQuadTree": {
+                    IQuadTree tree = new IQuadTree(c, Q, d);
+                    tree.init(points);
+                    tree.save(file.getPath());
+                    IQuadTree restored = new IQuadTree(auto, auto, d);
+                    restored.restore(file.getPath());
+                    return restored.skyline(QueryStats.NONE);
+                }
+                case "IZOrderRTree": {
+                    ZIBBS tree = new ZIBBS(c, f, Q, d);
+                    tree.init(points);
+                    tree.save(file.getPath());
+                    ZIBBS restored = new ZIBBS(auto, auto, auto, d);
+                    restored.restore(file.getPath());
+                    return restored.skyline(QueryStats.NONE);
+                }
+                case "IZSearch": {
+                    IZBTree tree = new IZBTree(c, f, Q, d);
+                    tree.init(points);
+                    tree.save(file.getPath());
+                    IZBTree restored = new IZBTree(auto, auto, auto, d);
+                    restored.restore(file.getPath());
+                    return restored.skyline(QueryStats.NONE);
+                }
+                default:
+                    throw new IllegalArgumentException("No snapshot of " + name);
+            }
+        } finally {
+            file.delete();
+        }
+    }
+
+    /**
+     * Sorts the dataset into Z-order with ExternalZSort, with a memory budget of a quarter of the dataset so that
+     * the runs are merged, and builds a Z-order index from the sorted file.
+     */
+    private static List<long[]> sorted(String name, long[][] points, int c, int f, int Q, int d) throws IOException {
+        File input = File.createTempFile("check", ".bin");
+        File output = File.createTempFile("check", ".zbin");
+        try {
+            BinaryDataset.write(input.getPath(), d, points);
+            new ExternalZSort(Math.max(1, (long) points.length * d * Long.BYTES / 4), null)
+                    .sort(input.getPath(), output.getPath());
+            BinaryDataset sorted = BinaryDataset.open(output.getPath());
+            switch (name) {
+                case "ZSearch": {
+                    ZBTree tree = new ZBTree(c, f, d);
+                    tree.init(sorted);
+                    return tree.skyline(QueryStats.NONE);
+                }
+                case "IQuadTree": {
+                    IQuadTree tree = new IQuadTree(c, Q, d);
+                    tree.init(sorted);
+                    return tree.skyline(QueryStats.NONE);
+                }
+                case "IZOrderRTree": {
+                    ZIBBS tree = new ZIBBS(c, f, Q, d);
+                    tree.init(sorted);
+                    return tree.skyline(QueryStats.NONE);
+                }
+                case "IZSearch": {
+                    IZBTree tree = new IZBTree(c, f, Q, d);
+                    tree.init(sorted);
+                    return tree.skyline(QueryStats.NONE);
+                }
+                default:
+                    throw new IllegalArgumentException("No sorted build of " + name);
+            }
+        } finally {
+            input.delete();
+            output.delete();
+        }
+    }
+
+    /**
+     * Compares two skylines as multisets of points.
+     *
+     * @return null if they are equal, otherwise a description of the difference
+     */
+    private static String compare(List<long[]> expected, List<long[]> actual) {
+        long[][] a = expected.toArray(new long[0][]);
+        long[][] b = actual.toArray(new long[0][]);
+        Arrays.sort(a, Arrays::compare);
+        Arrays.sort(b, Arrays::compare);
+        List<long[]> missing = new ArrayList<>();
+        List<long[]> extra = new ArrayList<>();
+        int i = 0, j = 0;
+        while (i < a.length || j < b.length) {
+            int c = i == a.length ? 1 : j == b.length ? -1 : Arrays.compare(a[i], b[j]);
+            if (c == 0) {
+                i++;
+                j++;
+            } else if (c < 0) {
+                missing.add(a[i++]);
+            } else {
+                extra.add(b[j++]);
+            }
+        }
+        if (missing.isEmpty() && extra.isEmpty()) {
+            return null;
+        }
+        return "expected " + a.length + " points but got " + b.length + ", " + missing.size() + " missing"
+                + (missing.isEmpty() ? "" : " (e.g. " + Arrays.toString(missing.get(0)) + ")") + ", " + extra.size()
+                + " extra" + (extra.isEmpty() ? "" : " (e.g. " + Arrays.toString(extra.get(0)) + ")");
+    }
+
+    /**
+     * @return The datasets of one dimension by name
+     */
+    private static Map<String, long[][]> datasets(int d, int n, long seed) {
+        Map<String, long[][]> datasets = new LinkedHashMap<>();
+        DataGenerator generator = new DataGenerator(seed + d);
+        for (DataGenerator.Distribution distribution : DataGenerator.Distribution.values()) {
+            datasets.put(distribution.name(), generator.points(distribution, d, n, MAX));
+        }
+        Random random = new Random(seed * 31 + d);
+
+        // Every point three times, shuffled
+        long[][] base = generator.points(DataGenerator.Distribution.ANTI_CORRELATED, d, n / 3, MAX);
+        long[][] copies = new long[base.length * 3][];
+        for (int i = 0; i < copies.length; i++) {
+            copies[i] = base[i % base.length].clone();
+        }
+        shuffle(copies, random);
+        datasets.put("Duplicates", copies);
+
+        // Values from 0 to 7, so that most coordinates tie
+        long[][] ties = new long[n][d];
+        for (long[] p : ties) {
+            for (int j = 0; j < d; j++) {
+                p[j] = random.nextInt(8);
+            }
+        }
+        datasets.put("Ties", ties);
+
+        long[][] equal = new long[n][];
+        long[] point = base[0];
+        for (int i = 0; i < n; i++) {
+            equal[i] = point.clone();
+        }
+        datasets.put("Equal", equal);
+        datasets.put("Single", new long[][]{point.clone()});
+
+        // The coordinates of every point add up to the same sum, so no point dominates another
+        long[][] plane = new long[n][d];
+        for (long[] p : plane) {
+            long sum = 0;
+            for (int j = 0; j < d - 1; j++) {
+                p[j] = (long) (random.nextDouble() * MAX);
+                sum += p[j];
+            }
+            p[d - 1] = (d - 1) * MAX - sum;
+        }
+        datasets.put("Plane", plane);
+        return datasets;
+    }
+
+    /**
+     * @return Whether a dataset is one of the distributions of DataGenerator
+     */
+    private static boolean generated(String dataset) {
+        for (DataGenerator.Distribution distribution : DataGenerator.Distribution.values()) {
+            if (distribution.name().equals(dataset)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static void shuffle(long[][] points, Random random) {
+        for (int i = points.length - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            long[] t = points[i];
+            points[i] = points[j];
+            points[j] = t;
+        }
+    }
+}
@@ -0,0 +1,386 @@
+package myshgs.Experiments;
+
+import myshgs.Data.BinaryDataset;
+import myshgs.Data.DataGenerator;
+import myshgs.Monitoring.MemoryMeter;
+import myshgs.QueryStats;
+
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * Runs the experiments described by spec files, see the .properties files in the specs folder next to this class.
+ * <p>
+ * A spec is a properties file with the keys:
+ * <ul>
+ * <li>name: the name of the experiment, used for the default output file.</li>
+ * <li>algorithms: the algorithms to compare, see Algorithms.NAMES, Algorithms.PARALLEL and Algorithms.PAGED
+ * (default NAMES).</li>
+ * <li>dataset: real datasets as comma separated text files, looked up as files and then on the classpath. When
+ * given, the synthetic keys below are ignored.</li>
+ * <li>distribution, spread, n, d, seed: the synthetic datasets, see DataGenerator.</li>
+ * <li>C, F, Q: the capacity, fanout and threshold of the indexes. C=0 and F=0 pick the default of the algorithm,
+ * F=page picks the fanout of a 4 KB directory page.</li>
+ * <li>adaptive: true adapts the warm-up cutoff and Q of the U-INDG queries, see AdaptiveThreshold (default false).
+ * Their dominance tests and node accesses then depend on measured times, so the Q sweeps keep it off.</li>
+ * <li>prefilter: true builds the indexes on the output of PreFilter, and the build time includes the filter
+ * (default false).</li>
+ * <li>pool: the pages of the buffer pool of the paged algorithms (default Algorithms.POOL_PAGES).</li>
+ * <li>repetitions, warmup: the measured and discarded runs of each cell (default 10 and 1).</li>
+ * <li>forks: the number of JVMs per cell, 0 runs every cell in this JVM (default 1).</li>
+ * <li>jvm: extra options of the forked JVMs, separated by spaces.</li>
+ * <li>output: the CSV file of the results (default benchmark_results_[name].csv).</li>
+ * </ul>
+ * Except name and output every key takes a comma separated list, and an integer key also takes a range from:to:step,
+ * so that the grid of the experiment is every combination of the listed values. Each dataset of the grid is
+ * generated once and shared by all its cells through a binary dataset file, and every algorithm/parameter cell runs in
+ * its own JVM. A cell whose algorithm ignores the swept F, Q, adaptive or pool is measured once and its result reused.
+ * <p>
+ * Besides the times and the counters of the queries, a cell reports the bytes allocated by a build and by a query,
+ * and the retained size of the index estimated by MemoryMeter. A paged algorithm also reports the page reads and the
+ * hit ratio of its buffer pool, which starts empty for every query. The query times of the repetitions of all forks
+ * are kept in a LatencyHistogram, which gives their 50th, 90th, 99th and 99.9th percentiles.
+ * <p>
+ * Usage: ExperimentRunner [spec...] [key=value...], where key=value overrides the keys of every spec, for example
+ * ExperimentRunner IndDim.properties repetitions=5.
+ */
+public class ExperimentRunner {
+    private static final String SPECS = "/myshgs/Experiments/specs/";
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        if (args.length > 0 && args[0].equals("--cell")) {
+            runCell(args[1], args[2], Integer.parseInt(args[3]), Integer.parseInt(args[4]), Integer.parseInt(args[5]),
+                    Boolean.parseBoolean(args[6]), Boolean.parseBoolean(args[7]), Integer.parseInt(args[8]),
+                    Integer.parseInt(args[9]), Integer.parseInt(args[10]));
+            return;
+        }
+        List<String> specs = new ArrayList<>();
+        Map<String, String> overrides = new HashMap<>();
+        for (String arg : args) {
+            int eq = arg.indexOf('=');
+            if (eq > 0) {
+                overrides.put(arg.substring(0, eq), arg.substring(eq + 1));
+            } else {
+                specs.add(arg);
+            }
+        }
+        if (specs.isEmpty()) {
+            throw new IllegalArgumentException("Usage: ExperimentRunner spec.properties... [key=value...]");
+        }
+        for (String path : specs) {
+            Properties spec = load(path);
+            spec.putAll(overrides);
+            run(spec);
+        }
+    }
+
+    /**
+     * Loads a spec from a file, or from the classpath, where the bare name of a bundled spec is enough.
+     */
+    static Properties load(String path) throws IOException {
+        Properties spec = new Properties();
+        File file = new File(path);
+        if (file.isFile()) {
+            try (Reader reader = new FileReader(file, StandardCharsets.UTF_8)) {
+                spec.load(reader);
+            }
+            return spec;
+        }
+        String name = path.endsWith(".properties") ? path : path + ".properties";
+        InputStream in = ExperimentRunner.class.getResourceAsStream(name.startsWith("/") ? name : SPECS + name);
+        if (in == null) {
+            throw new IOException("Cannot find the experiment spec " + path);
+        }
+        try (Reader reader = new InputStreamReader(in, StandardCharsets.UTF_8)) {
+            spec.load(reader);
+        }
+        return spec;
+    }
+
+    /**
+     * Runs every cell of the grid of a spec and writes one CSV line per cell.
+     */
+    static void run(Properties spec) throws IOException, InterruptedException {
+        String name = spec.getProperty("name", "experiment");
+        String[] algorithms = values(spec, "algorithms", String.join(",", Algorithms.NAMES));
+        String[] Cs = values(spec, "C", "0");
+        String[] Fs = values(spec, "F", "0");
+        String[] Qs = values(spec, "Q", "100");
+        String[] adaptives = values(spec, "adaptive", "false");
+        String[] prefilters = values(spec, "prefilter", "false");
+        String[] pools = values(spec, "pool", Integer.toString(Algorithms.POOL_PAGES));
+        int repetitions = Integer.parseInt(spec.getProperty("repetitions", "10").trim());
+        int warmup = Integer.parseInt(spec.getProperty("warmup", "1").trim());
+        int forks = Integer.parseInt(spec.getProperty("forks", "1").trim());
+        String jvm = spec.getProperty("jvm", "");
+
+        try (FileWriter writer = new FileWriter(spec.getProperty("output", "benchmark_results_" + name + ".csv"))) {
+            writer.write("Dataset,Spread,DataSize,Dimension,Algorithm,C,F,Q,Adaptive,PreFilter,Pool,"
+                    + "BuildTime(ms),QueryTime(ms),DT,IO,SL,BuildAlloc(bytes),QueryAlloc(bytes),IndexSize(bytes),"
+                    + "QueryP50(ms),QueryP90(ms),QueryP99(ms),QueryP999(ms),PageReads,HitRatio\n");
+            for (Map<String, String> dataset : datasets(spec)) {
+                System.out.println(name + ": preparing " + dataset);
+                File file = null;
+                long[][] points = null;
+                if (dataset.containsKey("file")) {
+                    String csv = resolve(dataset.get("file"));
+                    BinaryDataset.fromCsv(csv);
+                    file = new File(csv + ".bin");
+                    if (forks == 0) {
+                        points = BinaryDataset.open(file.getPath()).toArray();
+                    }
+                } else {
+                    DataGenerator generator = new DataGenerator(Long.parseLong(dataset.get("seed")));
+                    generator.spread = Double.parseDouble(dataset.get("spread"));
+                    points = generator.points(DataGenerator.distribution(dataset.get("distribution")),
+                            Integer.parseInt(dataset.get("d")), Integer.parseInt(dataset.get("n")), 1000000000);
+                    if (forks > 0) {
+                        // The cells read the dataset from a binary file instead of generating it again
+                        file = File.createTempFile("dataset", ".bin");
+                        file.deleteOnExit();
+                        BinaryDataset.write(file.getPath(), Integer.parseInt(dataset.get("d")), points);
+                        points = null;
+                    }
+                }
+                int n, d;
+                if (points != null) {
+                    n = points.length;
+                    d = points[0].length;
+                } else {
+                    BinaryDataset data = BinaryDataset.open(file.getPath());
+                    n = data.size();
+                    d = data.dimension();
+                }
+
+                Map<String, double[]> measured = new HashMap<>();
+                for (String algorithm : algorithms) {
+                    for (String C : Cs) {
+                        for (String F : Fs) {
+                            for (String Q : Qs) {
+                                for (String adaptive : adaptives) {
+                                    for (String prefilter : prefilters) {
+                                        for (String pool : pools) {
+                                            int c = Integer.parseInt(C);
+                                            int f = F.equals("page") ? Algorithms.pageFanout(algorithm, d)
+                                                    : Integer.parseInt(F);
+                                            int q = Integer.parseInt(Q);
+                                            boolean a = Boolean.parseBoolean(adaptive);
+                                            boolean p = Boolean.parseBoolean(prefilter);
+                                            int b = Integer.parseInt(pool);
+                                            boolean paged = Algorithms.isPaged(algorithm);
+                                            // A cell does not depend on the parameters its algorithm ignores
+                                            String key = algorithm + "," + c + ","
+                                                    + (Algorithms.usesFanout(algorithm) ? f : "-") + ","
+                                                    + (Algorithms.usesThreshold(algorithm) ? q + "," + a : "-")
+                                                    + "," + p + "," + (paged ? b : "-");
+                                            double[] result = measured.get(key);
+                                            if (result == null) {
+                                                System.out.println(name + ": " + algorithm + " C=" + C + " F=" + F
+                                                        + " Q=" + Q + " adaptive=" + a + " prefilter=" + p
+                                                        + (paged ? " pool=" + b : ""));
+                                                LatencyHistogram latencies = new LatencyHistogram();
+                                                result = forks == 0
+                                                        ? measure(points, algorithm, c, f, q, a, p, b, warmup,
+                                                        repetitions, latencies)
+                                                        : fork(file, algorithm, c, f, q, a, p, b, warmup,
+                                                        repetitions, forks, jvm, latencies);
+                                                result = Arrays.copyOf(result, 14);
+                                                result[10] = latencies.percentile(50) / 1000000.0;
+                                                result[11] = latencies.percentile(90) / 1000000.0;
+                                                result[12] = latencies.percentile(99) / 1000000.0;
+                                                result[13] = latencies.percentile(99.9) / 1000000.0;
+                                                measured.put(key, result);
+                                            }
+                                            writer.write(dataset.getOrDefault("file", dataset.get("distribution"))
+                                                    + "," + dataset.getOrDefault("spread", "") + "," + n + "," + d
+                                                    + "," + algorithm + "," + C + "," + F + "," + Q + "," + a + ","
+                                                    + p + "," + (paged ? pool : "") + "," + result[0] + ","
+                                                    + result[1] + "," + (long) result[2] + "," + (long) result[3]
+                                                    + "," + (long) result[4] + "," + (long) result[5] + ","
+                                                    + (long) result[6] + "," + (long) result[7] + "," + result[10]
+                                                    + "," + result[11] + "," + result[12] + "," + result[13] + ","
+                                                    + (paged ? (long) result[8] + "," + result[9] : ",") + "\n");
+                                            writer.flush();
+                                        }
+                                    }
+                                }
+                            }
+                        }
+                    }
+                }
+                if (file != null && !dataset.containsKey("file")) {
+                    file.delete();
+                }
+            }
+        }
+    }
+
+    /**
+     * @return The datasets of the grid of a spec, as their keys
+     */
+    private static List<Map<String, String>> datasets(Properties spec) {
+        List<Map<String, String>> datasets = new ArrayList<>();
+        if (spec.getProperty("dataset") != null) {
+            for (String file : values(spec, "dataset", "")) {
+                Map<String, String> dataset = new LinkedHashMap<>();
+                dataset.put("file", file);
+                datasets.add(dataset);
+            }
+            return datasets;
+        }
+        for (String seed : values(spec, "seed", "1")) {
+            for (String distribution : values(spec, "distribution", "Ind")) {
+                for (String spread : values(spec, "spread", "0.1")) {
+                    for (String n : values(spec, "n", "100000")) {
+                        for (String d : values(spec, "d", "4")) {
+                            Map<String, String> dataset = new LinkedHashMap<>();
+                            dataset.put("distribution", distribution);
+                            dataset.put("spread", spread);
+                            dataset.put("n", n);
+                            dataset.put("d", d);
+                            dataset.put("seed", seed);
+                            datasets.add(dataset);
+                        }
+                    }
+                }
+            }
+        }
+        return datasets;
+    }
+
+    /**
+     * Reads the values of a key: a comma separated list where an element from:to:step is an integer range.
+     */
+    private static String[] values(Properties spec, String key, String def) {
+        List<String> values = new ArrayList<>();
+        for (String value : spec.getProperty(key, def).split(",")) {
+            String[] range = value.trim().split(":");
+            if (range.length == 3) {
+                long from = Long.parseLong(range[0].trim()), to = Long.parseLong(range[1].trim());
+                long step = Long.parseLong(range[2].trim());
+                if (step == 0 || (to - from) / step < 0) {
+                    throw new IllegalArgumentException("Invalid range " + value + " of " + key);
+                }
+                for (long v = from; step > 0 ? v <= to : v >= to; v += step) {
+                    values.add(Long.toString(v));
+                }
+            } else if (!value.isBlank()) {
+                values.add(value.trim());
+            }
+        }
+        return values.toArray(new String[0]);
+    }
+
+    /**
+     * Finds a real dataset as a file or on the classpath.
+     */
+    private static String resolve(String name) throws IOException {
+        if (new File(name).isFile()) {
+            return name;
+        }
+        URL url = ExperimentRunner.class.getClassLoader().getResource(name);
+        if (url == null) {
+            throw new IOException("Cannot find the dataset " + name);
+        }
+        return new File(url.getPath()).getPath();
+    }
+
+    /**
+     * Measures one cell in new JVMs and averages the repetitions of all of them.
+     */
+    private static double[] fork(File file, String algorithm, int c, int f, int q, boolean adaptive, boolean prefilter,
+                                 int pool, int warmup, int repetitions, int forks, String jvm,
+                                 LatencyHistogram latencies) throws IOException, InterruptedException {
+        List<String> args = Arrays.asList("--cell", file.getPath(), algorithm, Integer.toString(c), Integer.toString(f),
+                Integer.toString(q), Boolean.toString(adaptive), Boolean.toString(prefilter), Integer.toString(pool),
+                Integer.toString(warmup), Integer.toString(repetitions));
+        double[] total = new double[10];
+        for (int i = 0; i < forks; i++) {
+            String[] result = Fork.run(ExperimentRunner.class, jvm, args, "RESULT ").get(0).split(" ");
+            for (int j = 0; j < total.length; j++) {
+                total[j] += Double.parseDouble(result[j]) / forks;
+            }
+            latencies.add(LatencyHistogram.decode(result[total.length]));
+        }
+        return total;
+    }
+
+    /**
+     * The body of a forked JVM: measures one cell over the binary dataset and prints its averages.
+     */
+    private static void runCell(String path, String algorithm, int c, int f, int q, boolean adaptive,
+                                boolean prefilter, int pool, int warmup, int repetitions) throws IOException {
+        long[][] points = BinaryDataset.open(path).toArray();
+        LatencyHistogram latencies = new LatencyHistogram();
+        double[] result = measure(points, algorithm, c, f, q, adaptive, prefilter, pool, warmup, repetitions,
+                latencies);
+        System.out.println("RESULT " + result[0] + " " + result[1] + " " + (long) result[2] + " " + (long) result[3]
+                + " " + (long) result[4] + " " + (long) result[5] + " " + (long) result[6] + " " + (long) result[7]
+                + " " + result[8] + " " + result[9] + " " + latencies.encode());
+    }
+
+    /**
+     * Builds and queries the index of an algorithm repeatedly, then builds it once more to estimate its retained
+     * size outside of the measured runs.
+     *
+     * @param latencies The histogram the query times of the measured runs are recorded in
+     * @return The average build time and query time in milliseconds, DT, IO, the skyline size, the average bytes
+     * allocated by a build and by a query, the retained size of the index in bytes, and for a paged algorithm the
+     * average page reads and hit ratio of its buffer pool
+     */
+    private static double[] measure(long[][] points, String algorithm, int c, int f, int q, boolean adaptive,
+                                    boolean prefilter, int pool, int warmup, int repetitions,
+                                    LatencyHistogram latencies) throws IOException {
+        SkylineAlgorithm index = Algorithms.create(algorithm, c, f, q, points[0].length, adaptive, pool);
+        SkylineAlgorithm alg = prefilter ? Algorithms.prefiltered(index) : index;
+        double[] total = new double[10];
+        for (int i = 0; i < warmup + repetitions; i++) {
+            QueryStats.Counter stats = new QueryStats.Counter();
+            long allocated = MemoryMeter.allocatedBytes();
+            long startTime = System.nanoTime();
+            alg.build(points);
+            double buildTime = (System.nanoTime() - startTime) / 1000000.0;
+            long buildAlloc = MemoryMeter.allocatedBytes() - allocated;
+            allocated = MemoryMeter.allocatedBytes();
+            startTime = System.nanoTime();
+            List<long[]> skyline = alg.skyline(stats);
+            long queryNanos = System.nanoTime() - startTime;
+            double queryTime = queryNanos / 1000000.0;
+            long queryAlloc = MemoryMeter.allocatedBytes() - allocated;
+            if (i >= warmup) {
+                total[0] += buildTime / repetitions;
+                total[1] += queryTime / repetitions;
+                total[2] += (double) stats.dominanceTests / repetitions;
+                total[3] += (double) stats.nodeVisits / repetitions;
+                total[4] = skyline.size();
+                total[5] += (double) Math.max(buildAlloc, 0) / repetitions;
+                total[6] += (double) Math.max(queryAlloc, 0) / repetitions;
+                if (index instanceof Algorithms.Paged paged) {
+                    total[8] += (double) paged.getBufferPool().getPageReads() / repetitions;
+                    total[9] += paged.getBufferPool().getHitRatio() / repetitions;
+                }
+                latencies.record(queryNanos);
+            }
+        }
+        alg.build(points);
+        total[7] = MemoryMeter.retainedSize(alg);
+        if (index instanceof Algorithms.Paged paged) {
+            paged.close();
+        }
+        return total;
+    }
+}
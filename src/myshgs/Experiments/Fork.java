@@ -0,0 +1,53 @@
+package myshgs.Experiments;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Runs the main method of a class in a new JVM with the classpath of this one, so that JIT and heap state do not
+ * leak from one measurement into the next.
+ */
+class Fork {
+    /**
+     * Runs a new JVM and waits for it.
+     *
+     * @param main   The class whose main method is run
+     * @param jvm    The extra options of the JVM separated by spaces, or an empty string
+     * @param args   The arguments of the main method
+     * @param prefix The prefix of the result lines, the other lines of the output are printed as they are
+     * @return The result lines without the prefix
+     * @throws IOException if the JVM cannot be started or does not exit normally
+     */
+    static List<String> run(Class<?> main, String jvm, List<String> args, String prefix)
+            throws IOException, InterruptedException {
+        List<String> command = new ArrayList<>();
+        command.add(ProcessHandle.current().info().command().orElse("java"));
+        if (!jvm.trim().isEmpty()) {
+            command.addAll(Arrays.asList(jvm.trim().split("\\s+")));
+        }
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path"));
+        command.add(main.getName());
+        command.addAll(args);
+        Process process = new ProcessBuilder(command).redirectError(ProcessBuilder.Redirect.INHERIT).start();
+        List<String> results = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.startsWith(prefix)) {
+                    results.add(line.substring(prefix.length()));
+                } else {
+                    System.out.println(line);
+                }
+            }
+        }
+        if (process.waitFor() != 0) {
+            throw new IOException("The forked JVM exited with " + process.exitValue() + " for " + args);
+        }
+        return results;
+    }
+}
@@ -0,0 +1,130 @@
+package myshgs.Experiments;
+
+/**
+ * A histogram of latencies in nanoseconds with a bounded relative error, in the manner of HdrHistogram.
+ * <p>
+ * Values below 256 have a bucket each. Above, every power of two range is split into 128 linear buckets, so a
+ * percentile is reported as the upper end of its bucket and is at most 1% above the recorded value. Recording is
+ * constant time, and histograms of different runs can be merged, for example after being sent as text by the forks.
+ */
+public class LatencyHistogram {
+    private static final int SUB_BITS = 8; // log2 of the number of buckets below the first power of two range
+    private static final int HALF = 1 << (SUB_BITS - 1);
+    private final long[] counts = new long[(1 << SUB_BITS) + (63 - SUB_BITS + 1) * HALF];
+    private long count;
+    private long max;
+    private long total;
+
+    /**
+     * Records a value.
+     *
+     * @param value The latency in nanoseconds, negative values are recorded as 0
+     */
+    public void record(long value) {
+        value = Math.max(value, 0);
+        counts[index(value)]++;
+        count++;
+        total += value;
+        max = Math.max(max, value);
+    }
+
+    /**
+     * Adds the values of another histogram to this one.
+     */
+    public void add(LatencyHistogram other) {
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] += other.counts[i];
+        }
+        count += other.count;
+        total += other.total;
+        max = Math.max(max, other.max);
+    }
+
+    /**
+     * @return The number of recorded values
+     */
+    public long count() {
+        return count;
+    }
+
+    /**
+     * @return The mean of the recorded values in nanoseconds
+     */
+    public double mean() {
+        return count == 0 ? 0 : (double) total / count;
+    }
+
+    /**
+     * @return The largest recorded value in nanoseconds
+     */
+    public long max() {
+        return max;
+    }
+
+    /**
+     * @param percentile The percentile, between 0 and 100
+     * @return The smallest value that is not below the given percentage of the recorded values, in nanoseconds
+     */
+    public long percentile(double percentile) {
+        if (percentile < 0 || percentile > 100) {
+            throw new IllegalArgumentException("The percentile must be between 0 and 100: " + percentile);
+        }
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100 * count));
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return Math.min(upper(i), max);
+            }
+        }
+        return max;
+    }
+
+    /**
+     * @return The histogram as text, the non-empty buckets as index:count separated by commas
+     */
+    public String encode() {
+        StringBuilder sb = new StringBuilder().append(max).append(',').append(total);
+        for (int i = 0; i < counts.length; i++) {
+            if (counts[i] > 0) {
+                sb.append(',').append(i).append(':').append(counts[i]);
+            }
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Reads a histogram written by encode.
+     */
+    public static LatencyHistogram decode(String text) {
+        LatencyHistogram h = new LatencyHistogram();
+        String[] parts = text.split(",");
+        h.max = Long.parseLong(parts[0]);
+        h.total = Long.parseLong(parts[1]);
+        for (int i = 2; i < parts.length; i++) {
+            int colon = parts[i].indexOf(':');
+            long c = Long.parseLong(parts[i].substring(colon + 1));
+            h.counts[Integer.parseInt(parts[i].substring(0, colon))] = c;
+            h.count += c;
+        }
+        return h;
+    }
+
+    private static int index(long value) {
+        if (value < (1 << SUB_BITS)) {
+            return (int) value;
+        }
+        int shift = 64 - Long.numberOfLeadingZeros(value) - SUB_BITS; // value >>> shift is in [HALF, 2 * HALF)
+        return (1 << SUB_BITS) + (shift - 1) * HALF + (int) (value >>> shift) - HALF;
+    }
+
+    private static long upper(int index) {
+        if (index < (1 << SUB_BITS)) {
+            return index;
+        }
+        int shift = (index - (1 << SUB_BITS)) / HALF + 1;
+        long sub = (index - (1 << SUB_BITS)) % HALF + HALF;
+        long upper = ((sub + 1) << shift) - 1;
+        return upper < 0 ? Long.MAX_VALUE : upper; // The last bucket ends at Long.MAX_VALUE
+    }
+}
@@ -0,0 +1,25 @@
+package myshgs.Experiments;
+
+import myshgs.QueryStats;
+
+import java.util.List;
+
+/**
+ * A skyline algorithm together with its index, as run by the benchmarks.
+ */
+public interface SkylineAlgorithm {
+    /**
+     * Builds the index over a dataset, replacing the previous one.
+     *
+     * @param points The dataset.
+     */
+    void build(long[][] points);
+
+    /**
+     * Computes the skyline over the index built last.
+     *
+     * @param stats The statistics of the query
+     * @return The skyline points.
+     */
+    List<long[]> skyline(QueryStats stats);
+}
@@ -0,0 +1,339 @@
+package myshgs.Experiments;
+
+import myshgs.Data.DataGenerator;
+import myshgs.ParameterTuner;
+import myshgs.QueryStats;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * A benchmark harness for index build and skyline query times.
+ * <p>
+ * Every configuration is run in a number of fresh JVMs (forks) so that JIT and heap state do not leak from one
+ * configuration into the next. Each fork generates the seeded dataset, runs warm-up iterations that are discarded,
+ * then measured iterations. In build mode an iteration times the construction of the index; in query mode the index
+ * is rebuilt before every iteration outside the timed region, since a queried index keeps its skyline pointers, and
+ * the iteration times skyline(). Results are folded into a sink so the JIT cannot drop the work. The samples of all
+ * forks give the mean, the standard deviation and the 99% confidence interval of the mean, and a LatencyHistogram
+ * gives the 50th, 90th, 99th and 99.9th percentiles.
+ * <p>
+ * The throughput mode runs queries from a number of threads in a closed loop. An iteration prebuilds batch indexes
+ * per thread, since a queried index cannot be queried again, then releases the threads together; each thread
+ * queries its indexes one after the other and the iteration lasts until the last thread is done. Every query is a
+ * sample of the latency under load, and the throughput is the number of queries over the time of the iterations.
+ * <p>
+ * Parameters are given as key=value arguments, a comma separated value sweeps the parameter:
+ * algorithm (see Algorithms.NAMES, Algorithms.PARALLEL and Algorithms.PAGED, which run with a buffer pool of
+ * Algorithms.POOL_PAGES, default NAMES), mode (build, query), distribution (Ind, Cor, Anti, Clu, Zipf), n, d, C and F (0 for the page-derived default), Q, adaptive (true adapts the warm-up cutoff
+ * and Q of the U-INDG queries, see AdaptiveThreshold, default false), prefilter (true builds the indexes on the
+ * output of PreFilter and includes the filter in the build time, default false), threads and batch (of the
+ * throughput mode), seed, forks (0 runs in this JVM), warmup, iterations, jvm (extra options of the forked JVMs,
+ * separated by spaces) and out (the CSV file the results are appended to). C, F and Q may be auto, to be tuned by ParameterTuner on the
+ * dataset of each fork. For example: algorithm=IZSearch,IQuadTree mode=build,query d=4,8 n=200000 forks=3, or
+ * algorithm=IZSearch mode=throughput threads=1,2,4 batch=4, or algorithm=IZSearch C=auto F=auto Q=auto, or
+ * algorithm=IQuadTree,IZSearch prefilter=false,true
+ */
+public class SkylineBenchmark {
+    private static final String[] KEYS = {"algorithm", "mode", "distribution", "n", "d", "C", "F", "Q", "prefilter",
+            "threads"};
+    // The 0.995 quantiles of Student's t distribution for 1 to 30 degrees of freedom
+    private static final double[] T99 = {63.657, 9.925, 5.841, 4.604, 4.032, 3.707, 3.499, 3.355, 3.250, 3.169, 3.106,
+            3.055, 3.012, 2.977, 2.947, 2.921, 2.898, 2.878, 2.861, 2.845, 2.831, 2.819, 2.807, 2.797, 2.787, 2.779,
+            2.771, 2.763, 2.756, 2.750};
+    private static volatile long sink; // Consumes the results of the measured work
+
+    public static void main(String[] args) throws IOException, InterruptedException, ExecutionException {
+        if (args.length > 0 && args[0].equals("--fork")) {
+            runFork(parse(Arrays.copyOfRange(args, 1, args.length)));
+            return;
+        }
+        Map<String, String> params = parse(args);
+        params.putIfAbsent("algorithm", String.join(",", Algorithms.NAMES));
+        params.putIfAbsent("mode", "build,query");
+        params.putIfAbsent("distribution", "Ind");
+        params.putIfAbsent("n", "100000");
+        params.putIfAbsent("d", "4");
+        params.putIfAbsent("C", "0");
+        params.putIfAbsent("F", "0");
+        params.putIfAbsent("Q", "100");
+        params.putIfAbsent("threads", "1");
+        params.putIfAbsent("adaptive", "false");
+        params.putIfAbsent("prefilter", "false");
+        int forks = Integer.parseInt(params.getOrDefault("forks", "2"));
+        String out = params.getOrDefault("out", "benchmark_results_Harness.csv");
+
+        File csvFile = new File(out);
+        boolean header = !csvFile.exists();
+        try (FileWriter writer = new FileWriter(csvFile, true)) {
+            if (header) {
+                writer.write("Algorithm,Mode,Distribution,N,D,C,F,Q,Adaptive,PreFilter,Threads,Samples,Mean(ms),"
+                        + "StdDev(ms),CI99(ms),P50(ms),P90(ms),P99(ms),P999(ms),Throughput(ops/s),DT,IO,SL\n");
+            }
+            for (Map<String, String> config : expand(params)) {
+                System.out.println("Running " + config);
+                List<double[]> samples = new ArrayList<>();
+                if (forks == 0) {
+                    samples.addAll(measure(config));
+                } else {
+                    for (int f = 0; f < forks; f++) {
+                        samples.addAll(fork(config));
+                    }
+                }
+                String line = report(config, samples);
+                System.out.println(line);
+                writer.write(line + "\n");
+                writer.flush();
+            }
+        }
+    }
+
+    /**
+     * Parses key=value arguments.
+     */
+    private static Map<String, String> parse(String[] args) {
+        Map<String, String> params = new LinkedHashMap<>();
+        for (String arg : args) {
+            int eq = arg.indexOf('=');
+            if (eq <= 0) {
+                throw new IllegalArgumentException("Expected key=value but got " + arg);
+            }
+            params.put(arg.substring(0, eq), arg.substring(eq + 1));
+        }
+        return params;
+    }
+
+    /**
+     * @return Every combination of the swept parameters, with the other parameters unchanged
+     */
+    private static List<Map<String, String>> expand(Map<String, String> params) {
+        List<Map<String, String>> configs = new ArrayList<>();
+        configs.add(new LinkedHashMap<>(params));
+        for (String key : KEYS) {
+            List<Map<String, String>> next = new ArrayList<>();
+            for (Map<String, String> config : configs) {
+                for (String value : params.get(key).split(",")) {
+                    Map<String, String> c = new LinkedHashMap<>(config);
+                    c.put(key, value.trim());
+                    next.add(c);
+                }
+            }
+            configs = next;
+        }
+        return configs;
+    }
+
+    /**
+     * Runs one configuration in a new JVM and collects its samples.
+     */
+    private static List<double[]> fork(Map<String, String> config) throws IOException, InterruptedException {
+        List<String> args = new ArrayList<>();
+        args.add("--fork");
+        for (Map.Entry<String, String> e : config.entrySet()) {
+            if (!e.getKey().equals("jvm")) {
+                args.add(e.getKey() + "=" + e.getValue());
+            }
+        }
+        List<double[]> samples = new ArrayList<>();
+        for (String line : Fork.run(SkylineBenchmark.class, config.getOrDefault("jvm", ""), args, "SAMPLE ")) {
+            samples.add(Arrays.stream(line.split(" ")).mapToDouble(Double::parseDouble).toArray());
+        }
+        return samples;
+    }
+
+    /**
+     * The body of a forked JVM: prints one line per measured iteration.
+     */
+    private static void runFork(Map<String, String> config) throws InterruptedException, ExecutionException {
+        for (double[] sample : measure(config)) {
+            System.out.println("SAMPLE " + sample[0] + " " + (long) sample[1] + " " + (long) sample[2] + " "
+                    + (long) sample[3] + " " + sample[4]);
+        }
+        System.err.println("sink " + sink);
+    }
+
+    /**
+     * Runs the warm-up and measured iterations of one configuration in this JVM.
+     *
+     * @return One array per measured iteration, or per query of the throughput mode: time in milliseconds, DT, IO,
+     * skyline size and the share of the wall time of the sample in milliseconds
+     */
+    private static List<double[]> measure(Map<String, String> config)
+            throws InterruptedException, ExecutionException {
+        String algorithm = config.get("algorithm");
+        boolean query = config.get("mode").equals("query");
+        int n = Integer.parseInt(config.get("n"));
+        int d = Integer.parseInt(config.get("d"));
+        int warmup = Integer.parseInt(config.getOrDefault("warmup", "2"));
+        int iterations = Integer.parseInt(config.getOrDefault("iterations", "5"));
+        DataGenerator generator = new DataGenerator(Long.parseLong(config.getOrDefault("seed", "1")));
+        long[][] points = generator.points(DataGenerator.distribution(config.get("distribution")), d, n, 1000000000);
+        tune(config, points);
+        if (config.get("mode").equals("throughput")) {
+            return throughput(config, points, warmup, iterations);
+        }
+        SkylineAlgorithm alg = create(config, d);
+
+        List<double[]> samples = new ArrayList<>();
+        for (int i = 0; i < warmup + iterations; i++) {
+            QueryStats.Counter stats = new QueryStats.Counter();
+            int SL = 0;
+            long time;
+            if (query) {
+                alg.build(points);
+                long startTime = System.nanoTime();
+                List<long[]> skyline = alg.skyline(stats);
+                time = System.nanoTime() - startTime;
+                SL = skyline.size();
+                sink += SL + skyline.get(SL - 1)[0];
+            } else {
+                long startTime = System.nanoTime();
+                alg.build(points);
+                time = System.nanoTime() - startTime;
+                sink += alg.hashCode();
+            }
+            if (i >= warmup) {
+                samples.add(new double[]{time / 1000000.0, stats.dominanceTests, stats.nodeVisits, SL,
+                        time / 1000000.0});
+            }
+        }
+        return samples;
+    }
+
+    /**
+     * @return The algorithm of a configuration, on the output of PreFilter if prefilter is true
+     */
+    private static SkylineAlgorithm create(Map<String, String> config, int d) {
+        SkylineAlgorithm alg = Algorithms.create(config.get("algorithm"), Integer.parseInt(config.get("C")),
+                Integer.parseInt(config.get("F")), Integer.parseInt(config.get("Q")), d,
+                Boolean.parseBoolean(config.get("adaptive")));
+        return Boolean.parseBoolean(config.get("prefilter")) ? Algorithms.prefiltered(alg) : alg;
+    }
+
+    /**
+     * Replaces the parameters given as auto by the ones ParameterTuner recommends for the dataset, keeping the
+     * parameters given as numbers. The tuning is done once per fork, before the warm-up.
+     */
+    private static void tune(Map<String, String> config, long[][] points) {
+        if (!config.get("C").equals("auto") && !config.get("F").equals("auto") && !config.get("Q").equals("auto")) {
+            return;
+        }
+        ParameterTuner.Result tuned = Algorithms.tune(config.get("algorithm"), points, parameter(config.get("C")),
+                parameter(config.get("F")), parameter(config.get("Q")));
+        System.out.println("Tuned " + config.get("algorithm") + ": " + tuned);
+        config.replace("C", "auto", String.valueOf(tuned.C));
+        config.replace("F", "auto", String.valueOf(tuned.F));
+        config.replace("Q", "auto", String.valueOf(tuned.Q));
+    }
+
+    /**
+     * @return The value of C, F or Q, or ParameterTuner.AUTO for auto
+     */
+    private static int parameter(String value) {
+        return value.equals("auto") ? ParameterTuner.AUTO : Integer.parseInt(value);
+    }
+
+    /**
+     * Runs the warm-up and measured iterations of the throughput mode in this JVM.
+     */
+    private static List<double[]> throughput(Map<String, String> config, long[][] points, int warmup, int iterations)
+            throws InterruptedException, ExecutionException {
+        int threads = Integer.parseInt(config.get("threads"));
+        int batch = Integer.parseInt(config.getOrDefault("batch", "4"));
+        if (threads <= 0 || batch <= 0) {
+            throw new IllegalArgumentException("threads and batch must be positive: " + threads + ", " + batch);
+        }
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        List<double[]> samples = new ArrayList<>();
+        try {
+            for (int i = 0; i < warmup + iterations; i++) {
+                SkylineAlgorithm[][] indexes = new SkylineAlgorithm[threads][batch];
+                for (SkylineAlgorithm[] row : indexes) {
+                    for (int b = 0; b < batch; b++) {
+                        row[b] = create(config, points[0].length);
+                        row[b].build(points);
+                    }
+                }
+                CountDownLatch go = new CountDownLatch(1);
+                List<Future<List<double[]>>> futures = new ArrayList<>();
+                for (SkylineAlgorithm[] row : indexes) {
+                    futures.add(pool.submit(() -> {
+                        go.await();
+                        List<double[]> results = new ArrayList<>();
+                        for (SkylineAlgorithm alg : row) {
+                            QueryStats.Counter stats = new QueryStats.Counter();
+                            long startTime = System.nanoTime();
+                            List<long[]> skyline = alg.skyline(stats);
+                            long time = System.nanoTime() - startTime;
+                            results.add(new double[]{time / 1000000.0, stats.dominanceTests, stats.nodeVisits,
+                                    skyline.size(), 0});
+                        }
+                        return results;
+                    }));
+                }
+                long startTime = System.nanoTime();
+                go.countDown();
+                List<double[]> round = new ArrayList<>();
+                for (Future<List<double[]>> future : futures) {
+                    round.addAll(future.get());
+                }
+                double share = (System.nanoTime() - startTime) / 1000000.0 / round.size();
+                for (double[] sample : round) {
+                    sample[4] = share;
+                    sink += (long) sample[3];
+                }
+                if (i >= warmup) {
+                    samples.addAll(round);
+                }
+            }
+        } finally {
+            pool.shutdown();
+        }
+        return samples;
+    }
+
+    /**
+     * @return The CSV line of one configuration
+     */
+    private static String report(Map<String, String> config, List<double[]> samples) {
+        int k = samples.size();
+        double mean = 0;
+        for (double[] s : samples) {
+            mean += s[0];
+        }
+        mean /= k;
+        double var = 0;
+        for (double[] s : samples) {
+            var += (s[0] - mean) * (s[0] - mean);
+        }
+        double sd = k > 1 ? Math.sqrt(var / (k - 1)) : 0;
+        double t = k > 1 ? (k - 1 <= T99.length ? T99[k - 2] : 2.576) : 0;
+        LatencyHistogram histogram = new LatencyHistogram();
+        double wall = 0;
+        for (double[] s : samples) {
+            histogram.record(Math.round(s[0] * 1000000));
+            wall += s[4];
+        }
+        double[] last = samples.get(k - 1);
+        return config.get("algorithm") + "," + config.get("mode") + "," + config.get("distribution") + ","
+                + config.get("n") + "," + config.get("d") + "," + config.get("C") + "," + config.get("F") + ","
+                + config.get("Q") + "," + config.get("adaptive") + "," + config.get("prefilter") + ","
+                + config.get("threads") + "," + k + "," + mean
+                + "," + sd + ","
+                + t * sd / Math.sqrt(k) + "," + histogram.percentile(50) / 1000000.0 + ","
+                + histogram.percentile(90) / 1000000.0 + "," + histogram.percentile(99) / 1000000.0 + ","
+                + histogram.percentile(99.9) / 1000000.0 + "," + k * 1000 / wall + "," + (long) last[1] + ","
+                + (long) last[2] + "," + (long) last[3];
+    }
+}
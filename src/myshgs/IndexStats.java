@@ -0,0 +1,155 @@
+package myshgs;
+
+import java.util.Arrays;
+
+/**
+ * The structure of a built index, as reported by the stats() methods of the trees to tune C, F and Q.
+ * <p>
+ * The levels are numbered from the root, level 0. The region of a node is its MBR or RZ-region, or the cell of its
+ * Z-prefix in the quadtrees, and its volume is the number of grid points it covers, so that the region of a single
+ * point has a volume of 1. The overlap of a level is the volume shared by the regions of every pair of sibling nodes
+ * of that level; the cells of the quadtrees never overlap. The fill of a node is its number of points or children
+ * over the capacity of the node, C for the leaves, F for the directory nodes and 2^d for the directory nodes of
+ * IQuadTree, which are also counted by used quadrant.
+ */
+public class IndexStats {
+    public long[] nodes = new long[0]; // The number of nodes of each level
+    public long[] entries = new long[0]; // The number of points or children of the nodes of each level
+    public double[] volume = new double[0]; // The total volume of the regions of the nodes of each level
+    public double[] overlap = new double[0]; // The volume shared by sibling regions of each level
+    public final long[] leafFill = new long[10]; // The number of leaves by tenth of fill, overfull leaves in the last
+    public final long[] dirFill = new long[10]; // The number of directory nodes by tenth of fill
+    public long quadrants; // The quadrants of the directory nodes of IQuadTree, 2^d per node
+    public long usedQuadrants; // The quadrants that have a child
+    public long bytes; // The estimated retained size of the index, see MemoryMeter
+
+    /**
+     * Reports a node.
+     *
+     * @param level    The level of the node
+     * @param leaf     Whether the node is a leaf
+     * @param entries  The number of points of a leaf, or of children of a directory node
+     * @param capacity The capacity of the node
+     * @param volume   The volume of the region of the node
+     */
+    public void node(int level, boolean leaf, int entries, int capacity, double volume) {
+        grow(level);
+        nodes[level]++;
+        this.entries[level] += entries;
+        this.volume[level] += volume;
+        int tenth = Math.min(9, (int) (10.0 * entries / capacity));
+        (leaf ? leafFill : dirFill)[tenth]++;
+    }
+
+    /**
+     * Reports the regions of the children of a directory node, and adds the volume shared by every pair of them to
+     * the overlap of their level.
+     *
+     * @param level The level of the children
+     * @param min   The lower corners of the regions of the children
+     * @param max   The upper corners of the regions of the children
+     * @param n     The number of children
+     */
+    public void siblings(int level, long[][] min, long[][] max, int n) {
+        grow(level);
+        for (int i = 0; i < n; i++) {
+            for (int j = i + 1; j < n; j++) {
+                overlap[level] += intersection(min[i], max[i], min[j], max[j]);
+            }
+        }
+    }
+
+    /**
+     * Reports the quadrants of a directory node of IQuadTree.
+     *
+     * @param used  The quadrants that have a child
+     * @param total The quadrants of the node
+     */
+    public void quadrants(int used, int total) {
+        usedQuadrants += used;
+        quadrants += total;
+    }
+
+    /**
+     * @return The number of levels
+     */
+    public int height() {
+        return nodes.length;
+    }
+
+    /**
+     * @return The number of nodes
+     */
+    public long nodeCount() {
+        return Arrays.stream(nodes).sum();
+    }
+
+    /**
+     * @return The total volume of the regions of all nodes
+     */
+    public double totalVolume() {
+        return Arrays.stream(volume).sum();
+    }
+
+    /**
+     * @return The total volume shared by sibling regions
+     */
+    public double totalOverlap() {
+        return Arrays.stream(overlap).sum();
+    }
+
+    /**
+     * @return The share of the quadrants of the directory nodes of IQuadTree without a child, 0 for the other trees
+     */
+    public double sparseRatio() {
+        return quadrants == 0 ? 0 : 1 - (double) usedQuadrants / quadrants;
+    }
+
+    /**
+     * @return The volume of the box from min to max, counted in grid points
+     */
+    public static double volume(long[] min, long[] max) {
+        double v = 1;
+        for (int i = 0; i < min.length; i++) {
+            v *= (double) (max[i] - min[i] + 1);
+        }
+        return v;
+    }
+
+    /**
+     * @return The volume shared by two boxes, counted in grid points
+     */
+    public static double intersection(long[] aMin, long[] aMax, long[] bMin, long[] bMax) {
+        double v = 1;
+        for (int i = 0; i < aMin.length; i++) {
+            long side = Math.min(aMax[i], bMax[i]) - Math.max(aMin[i], bMin[i]) + 1;
+            if (side <= 0) {
+                return 0;
+            }
+            v *= (double) side;
+        }
+        return v;
+    }
+
+    private void grow(int level) {
+        if (level >= nodes.length) {
+            nodes = Arrays.copyOf(nodes, level + 1);
+            entries = Arrays.copyOf(entries, level + 1);
+            volume = Arrays.copyOf(volume, level + 1);
+            overlap = Arrays.copyOf(overlap, level + 1);
+        }
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("height=" + height() + ", nodes=" + nodeCount() + ", bytes=" + bytes
+                + ", volume=" + totalVolume() + ", overlap=" + totalOverlap() + ", sparseRatio=" + sparseRatio());
+        for (int i = 0; i < nodes.length; i++) {
+            sb.append("\nlevel ").append(i).append(": nodes=").append(nodes[i]).append(", entries=").append(entries[i])
+                    .append(", volume=").append(volume[i]).append(", overlap=").append(overlap[i]);
+        }
+        sb.append("\nleaf fill=").append(Arrays.toString(leafFill)).append("\ndirectory fill=")
+                .append(Arrays.toString(dirFill));
+        return sb.toString();
+    }
+}
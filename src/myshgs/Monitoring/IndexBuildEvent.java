@@ -0,0 +1,85 @@
+package myshgs.Monitoring;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Threshold;
+import jdk.jfr.Timespan;
+
+/**
+ * A flight recorder event for the build of an index, committed when the build takes longer than the threshold of
+ * the event (0 ms by default, set it with myshgs.IndexBuild#threshold in the recording settings).
+ * <p>
+ * The loaders report the time of their sorts with sorted, on the thread of the build, and the rest of the build is
+ * reported as the time spent packing the nodes.
+ */
+@Name("myshgs.IndexBuild")
+@Label("Index Build")
+@Category({"U-INDG", "Index"})
+@Description("The build of a skyline index")
+@Threshold("0 ms")
+public class IndexBuildEvent extends Event {
+    // The time of the sorts of the build running on each thread
+    private static final ThreadLocal<long[]> SORT_TIME = ThreadLocal.withInitial(() -> new long[1]);
+
+    @Label("Loader")
+    public String loader;
+
+    @Label("Points")
+    public int n;
+
+    @Label("Dimension")
+    public int d;
+
+    @Label("Sort Time")
+    @Timespan
+    public long sortTime;
+
+    @Label("Pack Time")
+    @Timespan
+    public long packTime;
+
+    private transient long buildStart; // Transient fields are not recorded
+
+    /**
+     * Starts the event of a build.
+     *
+     * @param loader The name of the index
+     * @param n      The number of points
+     * @param d      The dimension of the points
+     * @return The started event, finish it when the build is done
+     */
+    public static IndexBuildEvent start(String loader, int n, int d) {
+        IndexBuildEvent event = new IndexBuildEvent();
+        event.loader = loader;
+        event.n = n;
+        event.d = d;
+        SORT_TIME.get()[0] = 0;
+        event.buildStart = System.nanoTime();
+        event.begin();
+        return event;
+    }
+
+    /**
+     * Reports a sort of the running build.
+     *
+     * @param start The value of System.nanoTime() when the sort started
+     */
+    public static void sorted(long start) {
+        SORT_TIME.get()[0] += System.nanoTime() - start;
+    }
+
+    /**
+     * Ends the build and commits the event if it is enabled and above its threshold.
+     */
+    public void finish() {
+        end();
+        if (shouldCommit()) {
+            sortTime = SORT_TIME.get()[0];
+            packTime = System.nanoTime() - buildStart - sortTime;
+            commit();
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package myshgs.Monitoring;
+
+import myshgs.QueryStats;
+
+import java.util.List;
+
+/**
+ * Counts the statistics of a query like QueryStats.Counter and reports the query to the flight recorder: a
+ * SkylineQueryEvent for the query, and an NdgLookupEvent for one NDG lookup out of every sample of them.
+ * The lookups are only timed when NdgLookupEvent is enabled in the recording.
+ */
+public class JfrQueryStats extends QueryStats.Counter {
+    private final SkylineQueryEvent query = new SkylineQueryEvent();
+    private final String algorithm;
+    private final int sample; // One lookup out of sample is recorded
+    private final long threshold; // The shortest lookup that is recorded, in nanoseconds
+    private final boolean lookupsEnabled;
+    private long lookups;
+
+    /**
+     * Constructs the statistics of a query that records one NDG lookup out of 1024, of any duration.
+     *
+     * @param algorithm The name of the algorithm of the query
+     */
+    public JfrQueryStats(String algorithm) {
+        this(algorithm, 1024, 0);
+    }
+
+    /**
+     * Constructs the statistics of a query and starts its event.
+     *
+     * @param algorithm The name of the algorithm of the query
+     * @param sample    One NDG lookup out of sample is recorded
+     * @param threshold The shortest NDG lookup that is recorded, in nanoseconds
+     */
+    public JfrQueryStats(String algorithm, int sample, long threshold) {
+        if (sample <= 0) {
+            throw new IllegalArgumentException("The sample must be positive: " + sample);
+        }
+        this.algorithm = algorithm;
+        this.sample = sample;
+        this.threshold = threshold;
+        this.lookupsEnabled = new NdgLookupEvent().isEnabled();
+        query.algorithm = algorithm;
+        query.begin();
+    }
+
+    @Override
+    public long start() {
+        return lookupsEnabled ? System.nanoTime() : super.start();
+    }
+
+    @Override
+    public void stop(Phase phase, long start) {
+        super.stop(phase, start);
+        if (phase == Phase.NDG && lookupsEnabled && ++lookups % sample == 0) {
+            long time = System.nanoTime() - start;
+            if (time >= threshold) {
+                NdgLookupEvent event = new NdgLookupEvent();
+                event.algorithm = algorithm;
+                event.lookupTime = time;
+                event.lookups = lookups;
+                event.graphNodes = graphNodes;
+                event.commit();
+            }
+        }
+    }
+
+    @Override
+    public List<long[]> finish(List<long[]> skyline, long start) {
+        super.finish(skyline, start);
+        query.end();
+        if (query.shouldCommit()) {
+            query.skylineSize = skylineSize;
+            query.dominanceTests = dominanceTests;
+            query.nodeAccesses = nodeVisits;
+            query.graphNodes = graphNodes;
+            query.pointerUpdates = pointerUpdates;
+            query.prunedSubtrees = prunedSubtrees;
+            query.commit();
+        }
+        return skyline;
+    }
+}
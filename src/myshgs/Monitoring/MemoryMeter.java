@@ -0,0 +1,168 @@
+package myshgs.Monitoring;
+
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Measures the memory of the indexes: the bytes allocated by the running threads, and the retained size of an index
+ * estimated by walking every object reachable from it.
+ * <p>
+ * The estimate assumes the layout of a 64-bit HotSpot JVM: 12-byte object headers and 4-byte references with
+ * compressed oops (heaps below 32 GB), 16 and 8 bytes without, 8-byte alignment and no padding between fields.
+ * The private fields of the JDK classes cannot be read without --add-opens, so a BitSet is counted from its size,
+ * and a collection or a map from its elements and an estimate of its backing array and entries. The points an index
+ * shares with the caller are counted too, since the index keeps them reachable.
+ */
+public class MemoryMeter {
+    private static final boolean COMPRESSED = Runtime.getRuntime().maxMemory() < 32L * 1024 * 1024 * 1024;
+    private static final int HEADER = COMPRESSED ? 12 : 16;
+    private static final int REFERENCE = COMPRESSED ? 4 : 8;
+    private static final int ARRAY_HEADER = COMPRESSED ? 16 : 24;
+    private static final long ENTRY = align(HEADER + 4 + 3 * REFERENCE); // A HashMap.Node
+    private static final Map<Class<?>, Layout> LAYOUTS = new HashMap<>();
+
+    /**
+     * The shallow size of the instances of a class and their reference fields.
+     */
+    private static class Layout {
+        long size;
+        final List<Field> references = new ArrayList<>();
+        boolean opaque; // The fields cannot be read
+    }
+
+    /**
+     * @return The bytes allocated so far by all live threads, or -1 if the JVM cannot measure them
+     */
+    public static long allocatedBytes() {
+        if (!(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean bean)
+                || !bean.isThreadAllocatedMemorySupported()) {
+            return -1;
+        }
+        if (!bean.isThreadAllocatedMemoryEnabled()) {
+            bean.setThreadAllocatedMemoryEnabled(true);
+        }
+        long total = 0;
+        for (long bytes : bean.getThreadAllocatedBytes(bean.getAllThreadIds())) {
+            if (bytes > 0) {
+                total += bytes;
+            }
+        }
+        return total;
+    }
+
+    /**
+     * Estimates the retained size of an object graph.
+     *
+     * @param root The root of the graph, e.g. an index
+     * @return The estimated bytes of every object reachable from root
+     */
+    public static long retainedSize(Object root) {
+        IdentityHashMap<Object, Boolean> visited = new IdentityHashMap<>();
+        Deque<Object> stack = new ArrayDeque<>();
+        push(root, visited, stack);
+        long size = 0;
+        while (!stack.isEmpty()) {
+            Object o = stack.pop();
+            Class<?> type = o.getClass();
+            if (type.isArray()) {
+                Class<?> component = type.getComponentType();
+                int length = Array.getLength(o);
+                size += align(ARRAY_HEADER + (long) length * sizeOf(component));
+                if (!component.isPrimitive()) {
+                    for (Object e : (Object[]) o) {
+                        push(e, visited, stack);
+                    }
+                }
+                continue;
+            }
+            Layout layout = layout(type);
+            size += layout.size;
+            if (!layout.opaque) {
+                for (Field field : layout.references) {
+                    try {
+                        push(field.get(o), visited, stack);
+                    } catch (IllegalAccessException e) {
+                        throw new IllegalStateException(e);
+                    }
+                }
+            } else if (o instanceof BitSet bits) {
+                size += align(ARRAY_HEADER + bits.size() / 8);
+            } else if (o instanceof Collection<?> collection) {
+                size += align(ARRAY_HEADER + (long) collection.size() * REFERENCE);
+                for (Object e : collection) {
+                    push(e, visited, stack);
+                }
+            } else if (o instanceof Map<?, ?> map) {
+                size += align(ARRAY_HEADER + (long) Integer.highestOneBit(map.size() * 4 / 3 + 1) * 2 * REFERENCE)
+                        + (long) map.size() * ENTRY;
+                for (Map.Entry<?, ?> e : map.entrySet()) {
+                    push(e.getKey(), visited, stack);
+                    push(e.getValue(), visited, stack);
+                }
+            }
+        }
+        return size;
+    }
+
+    private static void push(Object o, IdentityHashMap<Object, Boolean> visited, Deque<Object> stack) {
+        // Classes and their static state are shared by every index
+        if (o != null && !(o instanceof Class) && visited.put(o, Boolean.TRUE) == null) {
+            stack.push(o);
+        }
+    }
+
+    private static Layout layout(Class<?> type) {
+        Layout layout = LAYOUTS.get(type);
+        if (layout != null) {
+            return layout;
+        }
+        layout = new Layout();
+        long size = HEADER;
+        for (Class<?> c = type; c != null; c = c.getSuperclass()) {
+            for (Field field : c.getDeclaredFields()) {
+                if (Modifier.isStatic(field.getModifiers())) {
+                    continue;
+                }
+                size += sizeOf(field.getType());
+                if (!field.getType().isPrimitive()) {
+                    if (field.trySetAccessible()) {
+                        layout.references.add(field);
+                    } else {
+                        layout.opaque = true;
+                    }
+                }
+            }
+        }
+        layout.size = align(size);
+        LAYOUTS.put(type, layout);
+        return layout;
+    }
+
+    private static int sizeOf(Class<?> type) {
+        if (type == long.class || type == double.class) {
+            return 8;
+        } else if (type == int.class || type == float.class) {
+            return 4;
+        } else if (type == short.class || type == char.class) {
+            return 2;
+        } else if (type == byte.class || type == boolean.class) {
+            return 1;
+        }
+        return REFERENCE;
+    }
+
+    private static long align(long size) {
+        return (size + 7) & ~7L;
+    }
+}
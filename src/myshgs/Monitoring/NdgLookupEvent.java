@@ -0,0 +1,34 @@
+package myshgs.Monitoring;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+/**
+ * A flight recorder event for a sampled lookup of the nodes that may dominate a point in isDominate of the U-INDG
+ * engines. The lookups are far too many to record all of them, so JfrQueryStats commits one lookup out of a sample
+ * of them, and only if it took at least its threshold.
+ */
+@Name("myshgs.NdgLookup")
+@Label("NDG Lookup")
+@Category({"U-INDG", "Query"})
+@Description("A sampled lookup of the nodes that may dominate a point")
+public class NdgLookupEvent extends Event {
+    @Label("Algorithm")
+    public String algorithm;
+
+    @Label("Lookup Time")
+    @Timespan
+    public long lookupTime;
+
+    @Label("Lookups")
+    @Description("The number of lookups of the query so far")
+    public long lookups;
+
+    @Label("NDG Nodes")
+    @Description("The number of NDG nodes examined by the query so far")
+    public long graphNodes;
+}
@@ -0,0 +1,41 @@
+package myshgs.Monitoring;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Threshold;
+
+/**
+ * A flight recorder event for a skyline query, committed by JfrQueryStats when the query takes longer than the
+ * threshold of the event (10 ms by default, set it with myshgs.SkylineQuery#threshold in the recording settings).
+ */
+@Name("myshgs.SkylineQuery")
+@Label("Skyline Query")
+@Category({"U-INDG", "Query"})
+@Description("A skyline query with its statistics")
+@Threshold("10 ms")
+public class SkylineQueryEvent extends Event {
+    @Label("Algorithm")
+    public String algorithm;
+
+    @Label("Skyline Size")
+    public int skylineSize;
+
+    @Label("Dominance Tests")
+    public long dominanceTests;
+
+    @Label("Node Accesses")
+    public long nodeAccesses;
+
+    @Label("NDG Nodes")
+    @Description("The nodes examined while identifying the nodes that may dominate a point")
+    public long graphNodes;
+
+    @Label("Pointer Updates")
+    public long pointerUpdates;
+
+    @Label("Pruned Subtrees")
+    public long prunedSubtrees;
+}
@@ -1,13 +1,23 @@
 package myshgs.MyApproaches.IQuadPlusTree;
 
+import myshgs.AdaptiveThreshold;
+import myshgs.IndexStats;
+import myshgs.Monitoring.IndexBuildEvent;
+import myshgs.Monitoring.MemoryMeter;
+import myshgs.QueryStats;
 import myshgs.MyApproaches.IQuadPlusTree.QuadPlusTree.*;
+import myshgs.ParameterTuner;
+import myshgs.Storage.Snapshot;
 
+import java.io.IOException;
 import java.util.*;
 
 public class IQuadPlusTree {
     public int C;
     public int F;
     public int Q;
+    public boolean adaptiveQuery; // Whether the queries adapt the warm-up cutoff and Q, see AdaptiveThreshold
+    private AdaptiveThreshold threshold; // Adapts the warm-up cutoff and Q during the current query
     public int d;
     public Node root;
 
@@ -18,6 +28,7 @@ public class IQuadPlusTree {
      * @param F The fanout, determining the maximum number of child nodes a directory node can have.
      * @param Q A parameter.
      * @param d The dimensionality of the data points stored in the tree.
+     *          C, F and Q may be ParameterTuner.AUTO, to be tuned by bulkLoading or read by restore.
      */
     public IQuadPlusTree(int C, int F, int Q, int d) {
         this.C = C;
@@ -44,17 +55,30 @@ public class IQuadPlusTree {
      * @param points A dataset.
      */
     public void bulkLoading(long[][] points) {
+        if (C == ParameterTuner.AUTO || F == ParameterTuner.AUTO || Q == ParameterTuner.AUTO) {
+            ParameterTuner.Result tuned = new ParameterTuner().tune(points, C, F, Q, (c, f, q, sample) -> {
+                IQuadPlusTree tree = new IQuadPlusTree(c, f, q, d);
+                tree.bulkLoading(sample);
+                return tree::skyline;
+            });
+            this.C = tuned.C;
+            this.F = tuned.F;
+            this.Q = tuned.Q;
+        }
+        IndexBuildEvent event = IndexBuildEvent.start("IQuadPlusTree", points.length, d);
         ArrayList<BitSet> data = new ArrayList<>();
         for (long[] p : points) {
             data.add(Utils.fromPtoZ(p));
         }
 
+        long sortStart = System.nanoTime();
         data.sort(new Comparator<BitSet>() {
             @Override
             public int compare(BitSet o1, BitSet o2) {
                 return -Utils.compare(o1, o2);
             }
         });
+        IndexBuildEvent.sorted(sortStart);
 
         HashMap<ArrayList<BitSet>, Node> record = new HashMap<>();
         Queue<ArrayList<BitSet>> stack = new ArrayDeque<>();
@@ -130,6 +154,83 @@ public class IQuadPlusTree {
                 }
             }
         }
+        event.finish();
+    }
+
+    /**
+     * Saves the built tree into a snapshot. Every node is written as its kind, starting bit, used space and minimum
+     * point, followed by the points of a leaf node or by the keys of a directory node, each with the subtree of the
+     * child.
+     *
+     * @param path The path of the snapshot.
+     * @throws IOException if the file cannot be written.
+     */
+    public void save(String path) throws IOException {
+        try (Snapshot.Writer out = new Snapshot.Writer(path, Snapshot.QUAD_PLUS_TREE, d, C, F, Q)) {
+            save(out, root);
+        }
+    }
+
+    private void save(Snapshot.Writer out, Node node) throws IOException {
+        out.put(node instanceof LeafNode ? 1 : 0);
+        out.put(node.from);
+        out.put(node.usedSpace);
+        out.put(node.minpt);
+        if (node instanceof LeafNode leaf) {
+            out.put(leaf.data.size());
+            for (long[] p : leaf.data) {
+                out.put(p);
+            }
+        } else {
+            DirNode dir = (DirNode) node;
+            for (int i = 0; i < dir.usedSpace; i++) {
+                out.put(dir.key[i]);
+                save(out, dir.child[i]);
+            }
+        }
+    }
+
+    /**
+     * Restores a tree saved by save, replacing the current tree. The snapshot must have been taken with the same
+     * C, F and dimensionality.
+     *
+     * @param path The path of the snapshot.
+     * @throws IOException if the file cannot be read or does not match this tree.
+     */
+    public void restore(String path) throws IOException {
+        Snapshot.Reader in = new Snapshot.Reader(path, Snapshot.QUAD_PLUS_TREE);
+        if (C == ParameterTuner.AUTO) {
+            this.C = in.C;
+        }
+        if (F == ParameterTuner.AUTO) {
+            this.F = in.F;
+        }
+        if (Q == ParameterTuner.AUTO) {
+            this.Q = in.Q;
+        }
+        in.expect(d, C, F);
+        this.root = restore(in);
+    }
+
+    private Node restore(Snapshot.Reader in) throws IOException {
+        boolean leaf = in.next() == 1;
+        int from = in.nextInt();
+        Node node = leaf ? new LeafNode(this, from) : new DirNode(this, from);
+        node.usedSpace = in.nextInt();
+        node.minpt = in.nextPoint(d);
+        if (node instanceof LeafNode l) {
+            int size = in.nextInt();
+            for (int i = 0; i < size; i++) {
+                l.data.add(in.nextPoint(d));
+            }
+        } else {
+            DirNode dir = (DirNode) node;
+            for (int i = 0; i < dir.usedSpace; i++) {
+                dir.key[i] = in.nextBits();
+                dir.alter(i, restore(in));
+            }
+        }
+        return node;
     }
 
     /**
@@ -139,13 +240,13 @@ public class IQuadPlusTree {
      * @param last The pointer of ending.
      * @param skyline The list of skyline points.
      * @param p The point to check.
-     * @param count An array used to record the number of dominance test and accessing nodes during the computation process, count[0]: the number of dominance test,count[1]: the number of accessing nodes
+     * @param stats The statistics of the query
      * @return true if p is dominated by any point in the specified range, otherwise false.
      */
 
-    public boolean SDominate(int pre, int last, List<long[]> skyline, long[] p, long[] count) {
+    public boolean SDominate(int pre, int last, List<long[]> skyline, long[] p, QueryStats stats) {
         for (int i = pre; i < last; i++) {
-            if (myshgs.Utils.isDominatedBy(skyline.get(i), p, count))
+            if (myshgs.Utils.isDominatedBy(skyline.get(i), p, stats))
                 return true;
         }
         return false;
@@ -158,20 +259,22 @@ public class IQuadPlusTree {
      * @param minpt The minimum bounding rectangle of the query point.
      * @param curNum The current skyline number.
      * @param skyline The list of skylining points.
-     * @param count An array used to record the number of dominance test and accessing nodes during the computation process, count[0]: the number of dominance test,count[1]: the number of accessing nodes
+     * @param stats The statistics of the query
      * @return true if the node is dominated by the skyline points; otherwise, false.
      */
 
-    public boolean isDominate(Node node, long[] minpt, int curNum, List<long[]> skyline, long[] count) {
-        // When the number of query points is less than 1000, use a simple domination check.
-        if (curNum < 1000) {
-            return !SDominate(0, skyline.size(), skyline, minpt, count);
+    public boolean isDominate(Node node, long[] minpt, int curNum, List<long[]> skyline, QueryStats stats) {
+        // During the warm-up, or while the NDG lookups do not save dominance tests, scan the skyline
+        if (threshold.scan(curNum, skyline.size())) {
+            return !SDominate(0, skyline.size(), skyline, minpt, stats);
         }
+        int Q = threshold.threshold(curNum);
         Node cur = node;
         Stack<Node> stack = new Stack<>();
 
         // Calculate the NDG of the object
         boolean Threshold = false;
+        long ndgStart = stats.start();
         while (cur != null) {
             DirNode parent = cur.getParent();
             if (parent != null) {
@@ -182,11 +285,12 @@ public class IQuadPlusTree {
 
                         Node block = parent.child[cur.pos];
 
-                        count[1]++;
+                        stats.nodeVisit();
+                        stats.graphNode();
                         int pre = block.skyline[0];
                         int last = block.skyline[1];
 
-                        if (last - pre > 0 && myshgs.Utils.isDominatedBy(block.minpt, minpt, count)) {
+                        if (last - pre > 0 && myshgs.Utils.isDominatedBy(block.minpt, minpt, stats)) {
                             stack.add(block);
                         }
 
@@ -195,10 +299,11 @@ public class IQuadPlusTree {
                     for (int i = cur.pos - 1; i >= 0; i--) {
                         Node block = parent.child[i];
 
-                        count[1]++;
+                        stats.nodeVisit();
+                        stats.graphNode();
                         int pre = block.skyline[0];
                         int last = block.skyline[1];
-                        if (last - pre > 0 && myshgs.Utils.isDominatedBy(block.minpt, minpt, count)) {
+                        if (last - pre > 0 && myshgs.Utils.isDominatedBy(block.minpt, minpt, stats)) {
                             stack.add(block);
                         }
 
@@ -206,19 +311,21 @@ public class IQuadPlusTree {
                 }
             }
             cur = parent;
-            count[1]++;
+            stats.nodeVisit();
         }
+        stats.stop(QueryStats.Phase.NDG, ndgStart);
 
         //dominance tests
         while (!stack.isEmpty()) {
             Node pop = stack.pop();
-            count[1]++;
+            stats.nodeVisit();
+            stats.graphNode();
 
             if (pop instanceof DirNode zds) {
                 int[] its = zds.skyline;
 
                 if (its[1] - its[0] <= Q) {
-                    if (SDominate(its[0], its[1], skyline, minpt, count)) {
+                    if (SDominate(its[0], its[1], skyline, minpt, stats)) {
                         return false;
                     }
                 } else {
@@ -227,21 +334,47 @@ public class IQuadPlusTree {
 
                         int pre = block.skyline[0];
                         int last = block.skyline[1];
-                        count[1]++;
-                        if (last - pre > 0 && myshgs.Utils.isDominatedBy(block.minpt, minpt, count)) {
+                        stats.nodeVisit();
+                        stats.graphNode();
+                        if (last - pre > 0 && myshgs.Utils.isDominatedBy(block.minpt, minpt, stats)) {
                             stack.add(block);
                         }
                     }
                 }
             } else {
                 LeafNode n = (LeafNode) pop;
-                if (SDominate(n.skyline[0], n.skyline[1], skyline, minpt, count)) {
+                if (SDominate(n.skyline[0], n.skyline[1], skyline, minpt, stats)) {
                     return false;
                 }
             }
         }
-        return !SDominate(curNum, skyline.size(), skyline, minpt, count);
+        return !SDominate(curNum, skyline.size(), skyline, minpt, stats);
+    }
+    /**
+     * Computes the statistics of the structure of the tree, without collecting its nodes. The region of a node is the
+     * cell of its Z-prefix.
+     *
+     * @return The statistics of the tree
+     */
+    public IndexStats stats() {
+        IndexStats stats = new IndexStats();
+        stats(root, 0, stats);
+        stats.bytes = MemoryMeter.retainedSize(this);
+        return stats;
+    }
+
+    private void stats(Node node, int level, IndexStats stats) {
+        double volume = Math.scalb(1.0, node.getFrom() + 1); // The bits below from + 1 are free in the cell
+        if (node instanceof DirNode dir) {
+            stats.node(level, false, dir.usedSpace, F, volume);
+            for (int i = 0; i < dir.usedSpace; i++) {
+                stats(dir.child[i], level + 1, stats);
+            }
+        } else {
+            stats.node(level, true, ((LeafNode) node).data.size(), C, volume);
+        }
     }
+
     /**
      * Calculates the skyline.
      * The skyline is a set of points that are not dominated by any other points in the dataset.
@@ -251,6 +384,24 @@ public class IQuadPlusTree {
      * @return Returns a list containing the points of the skyline.
      */
     public List<long[]> skyline(long[] count) {
+        QueryStats.Counter stats = new QueryStats.Counter();
+        List<long[]> skyline = skyline(stats);
+        stats.addTo(count);
+        return skyline;
+    }
+
+    /**
+     * Calculates the skyline.
+     * The skyline is a set of points that are not dominated by any other points in the dataset.
+     * This method uses a tree structure to efficiently calculate the skyline.
+     *
+     * @param stats The statistics of the query
+     * @return Returns a list containing the points of the skyline.
+     */
+    public List<long[]> skyline(QueryStats stats) {
+        long queryStart = stats.start();
+        threshold = new AdaptiveThreshold(Q, adaptiveQuery);
+        stats = threshold.wrap(stats);
         // Initialize the skyline list to store the resulting skyline points
         List<long[]> skyline = new ArrayList<>();
         // Use a stack for depth-first traversal of the tree structure
@@ -264,12 +415,12 @@ public class IQuadPlusTree {
             List<long[]> data = node.data;
             int[] its = node.skyline;
             for (long[] p : data) {
-                if (isDominate(node, p, curNum, skyline, count)) {
+                if (isDominate(node, p, curNum, skyline, stats)) {
                     skyline.add(p);
                     its[1]++;
                 }
             }
-            return skyline;
+            return stats.finish(skyline, queryStart);
         }
         // If the root node is a directory node, start traversal from the root node
         DirNode r = (DirNode) root;
@@ -280,14 +431,14 @@ public class IQuadPlusTree {
             Node node = deque.pop();
             int[] its = node.skyline;
             its[0] = its[1] = skyline.size();
-            count[1]++;
+            stats.nodeVisit();
 
             // Check if the current node's rectangle is dominated by the current skyline
-            if (isDominate(node, node.minpt, curNum, skyline, count)) { // Rectangle is not dominated by current skyline, continue
+            if (isDominate(node, node.minpt, curNum, skyline, stats)) { // Rectangle is not dominated by current skyline, continue
                 // If the node is a directory node, add its child nodes to the stack
                 if (node instanceof DirNode r2) {
                     for (int i = node.usedSpace - 1; i >= 0; i--) {
-                        count[1]++;
+                        stats.nodeVisit();
                         deque.add(r2.child[i]);
                     }
                 } else {
@@ -295,7 +446,7 @@ public class IQuadPlusTree {
                     List<long[]> data = ((LeafNode) node).data;
 
                     for (long[] p : data) {
-                        if (isDominate(node, p, curNum, skyline, count)) {
+                        if (isDominate(node, p, curNum, skyline, stats)) {
                             skyline.add(p);
                             its[1]++;
                         }
@@ -304,44 +455,50 @@ public class IQuadPlusTree {
                     int num = its[1] - curNum;
                     if (its[1] != its[0]) {
                         Node parent = node.getParent();
-                        count[1]++;
+                        stats.nodeVisit();
                         if (parent != null) {
                             parent.skyline[1] = its[1];
+                            stats.pointerUpdate();
                             updatePointer.add(parent);
                         }
-                        // If the number of new points added exceeds the threshold, update the pointers in updatePointer.
-                        if (num > Q) {
-                            updatePP(updatePointer, count);
+                        // Once the new points cost more to scan than an update (see AdaptiveThreshold), update the pointers in updatePointer.
+                        if (threshold.update(num)) {
+                            updatePP(updatePointer, stats);
                             curNum = its[1];
                         }
                     }
                 }
+            } else {
+                stats.prune();
             }
         }
         // Finally, update the pointers in updatePointer.
-        updatePP(updatePointer, count);
-        return skyline;
+        updatePP(updatePointer, stats);
+        return stats.finish(skyline, queryStart);
     }
     /**
      * Update skyline pointers of the parent node of the node
      * This method gradually updates the properties of each node's parent node by traversing the given node set until all nodes have no parent nodes
      *
      * @param set A collection of nodes that need to be processed
-     * @param count An array used to record the number of dominance test and accessing nodes during the computation process, count[0]: the number of dominance test,count[1]: the number of accessing nodes
+     * @param stats The statistics of the query
      */
-    public void updatePP(Set<Node> set, long[] count) {
+    public void updatePP(Set<Node> set, QueryStats stats) {
+        long updateStart = stats.start();
         while (!set.isEmpty()) {
             Set<Node> cur = new HashSet<>();
             for (Node p : set) {
                 Node parent = p.getParent();
-                count[1]++;
+                stats.nodeVisit();
                 if (parent != null) {
                     parent.skyline[1] = Math.max(p.skyline[1], parent.skyline[1]);
+                    stats.pointerUpdate();
                     cur.add(parent);
                 }
             }
             set = cur;
         }
+        stats.stop(QueryStats.Phase.POINTER_UPDATE, updateStart);
     }
 
 }
@@ -1,9 +1,20 @@
 package myshgs.MyApproaches.IQuadTree;
 
+import myshgs.AdaptiveThreshold;
+import myshgs.Data.BinaryDataset;
+import myshgs.Data.ExternalZSort;
+import myshgs.IndexStats;
+import myshgs.Monitoring.IndexBuildEvent;
+import myshgs.Monitoring.MemoryMeter;
 import myshgs.MyApproaches.IQuadTree.QuadTree.*;
+import myshgs.ParameterTuner;
+import myshgs.Storage.Snapshot;
+import myshgs.QueryStats;
 import myshgs.Utils;
 
+import java.io.IOException;
 import java.util.*;
+import java.util.function.Function;
 
 /**
  * The QuadTree class represents an implementation of the quadtree data structure.
@@ -14,13 +25,18 @@ public class IQuadTree {
     private int C;
     private int d;
     private int Q;
+    public boolean adaptiveQuery; // Whether the queries adapt the warm-up cutoff and Q, see AdaptiveThreshold
+    private AdaptiveThreshold threshold; // Adapts the warm-up cutoff and Q during the current query
     private final int len;
+    // The points in Z-order and the range of every node not built yet, in adaptive mode
+    private long[][] sorted;
+    private Map<LeafNode, int[]> pending;
 
     /**
      * Constructs an instance of QuadTree with specified parameters.
      *
-     * @param C The capacity of the node
-     * @param Q The threshold for the number of skyline points.
+     * @param C The capacity of the node, or ParameterTuner.AUTO to tune it when the tree is built
+     * @param Q The threshold for the number of skyline points, or ParameterTuner.AUTO.
      * @param d The dimension of the space.
      */
     public IQuadTree(int C, int Q, int d) {
@@ -41,12 +57,14 @@ public class IQuadTree {
         for (long[] p : points) {
             data.add(Utils.fromPtoZ(p));
         }
+        long sortStart = System.nanoTime();
         data.sort(new Comparator<BitSet>() {
             @Override
             public int compare(BitSet o1, BitSet o2) {
                 return -Utils.compare(o1, o2);
             }
         });
+        IndexBuildEvent.sorted(sortStart);
         int len = data.get(0).length();
         int t = (len / d) * d;
         len = (len % d == 0) ? t - d : t;
@@ -113,13 +131,333 @@ public class IQuadTree {
         return this.root;
     }
 
+    /**
+     * Replaces the parameters given as ParameterTuner.AUTO by the ones recommended for a dataset.
+     *
+     * @param points   The dataset.
+     * @param adaptive Whether the trial trees are built in adaptive mode.
+     */
+    private void tune(long[][] points, boolean adaptive) {
+        if (C == ParameterTuner.AUTO || Q == ParameterTuner.AUTO) {
+            set(new ParameterTuner().tune(points, C, 0, Q, (c, f, q, sample) -> trial(c, q, sample, adaptive)));
+        }
+    }
+
+    private void set(ParameterTuner.Result tuned) {
+        this.C = tuned.C;
+        this.Q = tuned.Q;
+    }
+
+    private Function<QueryStats, List<long[]>> trial(int C, int Q, long[][] sample, boolean adaptive) {
+        IQuadTree tree = new IQuadTree(C, Q, d);
+        if (adaptive) {
+            tree.initAdaptive(sample);
+        } else {
+            tree.init(sample);
+        }
+        return tree::skyline;
+    }
+
     /**
      * Initializes the quadtree by loading points into it.
      *
      * @param points The dataset.
      */
     public void init(long[][] points) {
+        tune(points, false);
+        IndexBuildEvent event = IndexBuildEvent.start("IQuadTree", points.length, d);
+        this.pending = null;
         this.root = loadingToB(points);
+        event.finish();
+    }
+
+    /**
+     * Initializes the quadtree with a dataset that is already sorted in Z-order.
+     * Every node covers a contiguous range of the sorted file, so the ranges of the children are found by binary
+     * search on the Z-order group of the node and the points are only read when a leaf is created.
+     *
+     * @param sorted The dataset in Z-order, such as the output of ExternalZSort.
+     */
+    public void init(BinaryDataset sorted) {
+        if (C == ParameterTuner.AUTO || Q == ParameterTuner.AUTO) {
+            set(new ParameterTuner().tune(sorted, C, 0, Q, (c, f, q, sample) -> trial(c, q, sample, false)));
+        }
+        IndexBuildEvent event = IndexBuildEvent.start("IQuadTree", sorted.size(), d);
+        this.pending = null;
+        this.root = loadingSorted(sorted);
+        event.finish();
+    }
+
+    /**
+     * Loads a dataset sorted in Z-order into the quadtree, building the same tree as loadingToB.
+     *
+     * @param sorted The dataset in Z-order.
+     * @return The root node of the quadtree after loading the points.
+     */
+    protected Node loadingSorted(BinaryDataset sorted) {
+        int n = sorted.size();
+        this.root = new LeafNode(d, -1);
+        if (n == 0) {
+            return this.root;
+        }
+        long[] buf = new long[d];
+        int len = Utils.fromPtoZ(sorted.get(n - 1, buf)).length();
+        int t = (len / d) * d;
+        len = (len % d == 0) ? t - d : t;
+        this.root.setFrom(len);
+
+        Stack<LeafNode> stack = new Stack<>();
+        Stack<int[]> ranges = new Stack<>();
+        stack.add((LeafNode) this.root);
+        ranges.add(new int[]{0, n});
+
+        while (!stack.isEmpty()) {
+            LeafNode poll = stack.pop();
+            int[] range = ranges.pop();
+            int lo = range[0], hi = range[1];
+            int from = poll.getFrom();
+
+            if (hi - lo > C && from >= 0) {
+                if (group(sorted, lo, from, buf) == group(sorted, hi - 1, from, buf)) {
+                    poll.setFrom(from - d);
+                    stack.add(poll);
+                    ranges.add(range);
+                } else {
+                    DirNode k = new DirNode(d, poll.pos);
+                    k.setFrom(from);
+
+                    // Add the children in descending order of their groups, as loadingToB does
+                    int end = hi;
+                    while (end > lo) {
+                        int pos = group(sorted, end - 1, from, buf);
+                        int a = lo, b = end - 1;
+                        while (a < b) {
+                            int mid = (a + b) >>> 1;
+                            if (group(sorted, mid, from, buf) < pos) {
+                                a = mid + 1;
+                            } else {
+                                b = mid;
+                            }
+                        }
+                        LeafNode zcur = new LeafNode(d, pos);
+                        zcur.setFrom(from - d);
+                        k.setChild(pos, zcur);
+                        stack.add(zcur);
+                        ranges.add(new int[]{a, end});
+                        end = a;
+                    }
+                    if (poll.getParent() == null) {
+                        this.root = k;
+                    } else
+                        poll.getParent().alterChild(poll.pos, k);
+                }
+            } else {
+                for (int i = lo; i < hi; i++) {
+                    poll.addPoint(sorted.get(i, new long[d]));
+                }
+                DirNode cur = poll.getParent();
+                while (cur != null) {
+                    cur.alterMin(poll.zmbr.min);
+                    cur = cur.getParent();
+                }
+            }
+        }
+        return this.root;
+    }
+
+    /**
+     * Computes the d bits of the Z-order value of a point starting at bit from, i.e. its group in a node.
+     */
+    private int group(BinaryDataset sorted, int i, int from, long[] buf) {
+        return group(sorted.get(i, buf), from);
+    }
+
+    private int group(long[] p, int from) {
+        int level = from / d;
+        int g = 0;
+        for (int j = 0; j < d; j++) {
+            g |= (int) ((p[j] >>> level) & 1) << (d - j - 1);
+        }
+        return g;
+    }
+
+    /**
+     * Initializes the quadtree in adaptive mode. Only the points sorted in Z-order are kept and the root covers all
+     * of them; a node is split into its children, or filled with its points if it is a leaf, when the skyline
+     * traversal first enters it, and the lower corners of the children are computed at that time. Subtrees that are
+     * pruned are never built. Once every node is materialised the tree is the one built by init.
+     *
+     * @param points The dataset.
+     */
+    public void initAdaptive(long[][] points) {
+        tune(points, true);
+        IndexBuildEvent event = IndexBuildEvent.start("IQuadTree", points.length, d);
+        this.sorted = points.clone();
+        long sortStart = System.nanoTime();
+        Arrays.parallelSort(sorted, ExternalZSort::compare);
+        IndexBuildEvent.sorted(sortStart);
+        this.pending = new HashMap<>();
+        this.root = new LeafNode(d, -1);
+        int n = sorted.length;
+        if (n == 0) {
+            event.finish();
+            return;
+        }
+        int len = Utils.fromPtoZ(sorted[n - 1]).length();
+        int t = (len / d) * d;
+        len = (len % d == 0) ? t - d : t;
+        this.root.setFrom(len);
+        lowerCorner(this.root, 0, n);
+        pending.put((LeafNode) this.root, new int[]{0, n});
+        event.finish();
+    }
+
+    /**
+     * Builds one node that was deferred by initAdaptive, as loadingSorted does for a single range: the node
+     * becomes a directory node whose children are deferred in turn, or a leaf holding its points.
+     *
+     * @param poll The deferred node.
+     * @return The node that takes the place of poll in the tree.
+     */
+    protected Node materialize(LeafNode poll) {
+        int[] range = pending.remove(poll);
+        int lo = range[0], hi = range[1];
+        int from = poll.getFrom();
+        while (hi - lo > C && from >= 0 && group(sorted[lo], from) == group(sorted[hi - 1], from)) {
+            from -= d;
+        }
+        poll.setFrom(from);
+        if (hi - lo <= C || from < 0) {
+            for (int i = lo; i < hi; i++) {
+                poll.getData().add(sorted[i]);
+            }
+            return poll;
+        }
+
+        DirNode k = new DirNode(d, poll.pos);
+        k.setFrom(from);
+        System.arraycopy(poll.zmbr.min, 0, k.zmbr.min, 0, d);
+        // Add the children in descending order of their groups, as loadingToB does
+        int end = hi;
+        while (end > lo) {
+            int pos = group(sorted[end - 1], from);
+            int a = lo, b = end - 1;
+            while (a < b) {
+                int mid = (a + b) >>> 1;
+                if (group(sorted[mid], from) < pos) {
+                    a = mid + 1;
+                } else {
+                    b = mid;
+                }
+            }
+            LeafNode zcur = new LeafNode(d, pos);
+            zcur.setFrom(from - d);
+            lowerCorner(zcur, a, end);
+            k.setChild(pos, zcur);
+            pending.put(zcur, new int[]{a, end});
+            end = a;
+        }
+        if (poll.getParent() == null) {
+            this.root = k;
+        } else
+            poll.getParent().alterChild(poll.pos, k);
+        return k;
+    }
+
+    /**
+     * Sets the lower corner of a deferred node to the minimum of the points [lo, hi).
+     */
+    private void lowerCorner(Node node, int lo, int hi) {
+        long[] min = node.zmbr.min;
+        for (int i = lo; i < hi; i++) {
+            long[] p = sorted[i];
+            for (int j = 0; j < d; j++) {
+                min[j] = Math.min(min[j], p[j]);
+            }
+        }
+    }
+
+    /**
+     * Saves the quadtree into a snapshot, building the nodes still deferred in adaptive mode first. Every node is
+     * written as its kind, position, starting bit and lower corner, followed by the points of a leaf or by the groups
+     * of the children of a directory node, each with the subtree of the child, in the order the children were
+     * created.
+     *
+     * @param path The path of the snapshot.
+     * @throws IOException if the file cannot be written.
+     */
+    public void save(String path) throws IOException {
+        // In adaptive mode, build the nodes not entered yet
+        while (pending != null && !pending.isEmpty()) {
+            materialize(pending.keySet().iterator().next());
+        }
+        try (Snapshot.Writer out = new Snapshot.Writer(path, Snapshot.QUAD_TREE, d, C, 0, Q)) {
+            save(out, root);
+        }
+    }
+
+    private void save(Snapshot.Writer out, Node node) throws IOException {
+        out.put(node instanceof LeafNode ? 1 : 0);
+        out.put(node.pos);
+        out.put(node.getFrom());
+        out.put(node.zmbr.min);
+        if (node instanceof LeafNode leaf) {
+            out.put(leaf.getData().size());
+            for (long[] p : leaf.getData()) {
+                out.put(p);
+            }
+        } else {
+            DirNode dir = (DirNode) node;
+            out.put(dir.zmbr.bit.size());
+            for (int index : dir.zmbr.bit) {
+                out.put(index);
+                save(out, dir.child[index]);
+            }
+        }
+    }
+
+    /**
+     * Restores a quadtree saved by save, replacing the current tree. The snapshot must have been taken with the same
+     * dimension and capacity.
+     *
+     * @param path The path of the snapshot.
+     * @throws IOException if the file cannot be read or does not match this quadtree.
+     */
+    public void restore(String path) throws IOException {
+        Snapshot.Reader in = new Snapshot.Reader(path, Snapshot.QUAD_TREE);
+        if (C == ParameterTuner.AUTO) {
+            this.C = in.C;
+        }
+        if (Q == ParameterTuner.AUTO) {
+            this.Q = in.Q;
+        }
+        in.expect(d, C, 0);
+        this.pending = null;
+        this.root = restore(in);
+    }
+
+    private Node restore(Snapshot.Reader in) throws IOException {
+        boolean leaf = in.next() == 1;
+        int pos = in.nextInt();
+        Node node = leaf ? new LeafNode(d, pos) : new DirNode(d, pos);
+        node.setFrom(in.nextInt());
+        System.arraycopy(in.nextPoint(d), 0, node.zmbr.min, 0, d);
+        int size = in.nextInt();
+        if (node instanceof LeafNode l) {
+            for (int i = 0; i < size; i++) {
+                l.getData().add(in.nextPoint(d));
+            }
+        } else {
+            DirNode dir = (DirNode) node;
+            for (int i = 0; i < size; i++) {
+                int index = in.nextInt();
+                Node child = restore(in);
+                dir.zmbr.bit.add(index);
+                dir.child[index] = child;
+                child.setParent(dir);
+            }
+        }
+        return node;
     }
 
     /**
@@ -129,12 +467,12 @@ public class IQuadTree {
      * @param last The pointer of ending.
      * @param skyline The list of skyline points.
      * @param p The point to check.
-     * @param count An array used to record the number of dominance test and accessing nodes during the computation process, count[0]: the number of dominance test,count[1]: the number of accessing nodes
+     * @param stats The statistics of the query
      * @return true if p is dominated by any point in the specified range, otherwise false.
      */
-    public boolean SDominate(int pre, int last, List<long[]> skyline, long[] p, long[] count) {
+    public boolean SDominate(int pre, int last, List<long[]> skyline, long[] p, QueryStats stats) {
         for (int i = pre; i < last; i++) {
-            if (myshgs.Utils.isDominatedBy(skyline.get(i), p, count))
+            if (myshgs.Utils.isDominatedBy(skyline.get(i), p, stats))
                 return true;
         }
         return false;
@@ -147,19 +485,21 @@ public class IQuadTree {
      * @param minpt The minimum bounding rectangle of the query point.
      * @param curNum The current skyline number.
      * @param skyline The list of skylining points.
-     * @param count An array used to record the number of dominance test and accessing nodes during the computation process, count[0]: the number of dominance test,count[1]: the number of accessing nodes
+     * @param stats The statistics of the query
      * @return true if the node is dominated by the skyline points; otherwise, false.
      */
-    public boolean isDominate(Node node, long[] minpt, int curNum, List<long[]> skyline, long[] count) {
-        // When the number of query points is less than 1000, use a simple domination check.
-        if (curNum < 1000) {
-            return !SDominate(0, skyline.size(), skyline, minpt, count);
+    public boolean isDominate(Node node, long[] minpt, int curNum, List<long[]> skyline, QueryStats stats) {
+        // During the warm-up, or while the NDG lookups do not save dominance tests, scan the skyline
+        if (threshold.scan(curNum, skyline.size())) {
+            return !SDominate(0, skyline.size(), skyline, minpt, stats);
         }
+        int Q = threshold.threshold(curNum);
 
         Node cur = node;
         Stack<Node> stack = new Stack<>();
 
         boolean Threshold = false;
+        long ndgStart = stats.start();
         while (cur != null) {
             DirNode parent = cur.getParent();
             if (parent != null) {
@@ -170,12 +510,13 @@ public class IQuadTree {
 
                         Node block = parent.child[cur.pos];
 
-                        count[1]++;
+                        stats.nodeVisit();
+                        stats.graphNode();
                         int pre = block.skyline[0];
                         int last = block.skyline[1];
 
                         if (last - pre > 0) {
-                            if (myshgs.Utils.isDominatedBy(block.zmbr.min, minpt, count)) {
+                            if (myshgs.Utils.isDominatedBy(block.zmbr.min, minpt, stats)) {
                                 stack.add(block);
                             }
                         }
@@ -193,12 +534,13 @@ public class IQuadTree {
                     for (int i = p + 1; i < bit.size(); i++) {
                         int pos = bit.get(i);
                         if ((pos & cur.pos) == pos) {
-                            count[1]++;
+                            stats.nodeVisit();
+                            stats.graphNode();
                             Node block = parent.child[pos];
                             int pre = block.skyline[0];
                             int last = block.skyline[1];
                             if (last - pre > 0) {
-                                if (myshgs.Utils.isDominatedBy(block.zmbr.min, minpt, count)) {
+                                if (myshgs.Utils.isDominatedBy(block.zmbr.min, minpt, stats)) {
                                     stack.add(block);
                                 }
                             }
@@ -207,28 +549,31 @@ public class IQuadTree {
                 }
             }
             cur = parent;
-            count[1]++;
+            stats.nodeVisit();
         }
+        stats.stop(QueryStats.Phase.NDG, ndgStart);
 
         while (!stack.isEmpty()) {
             Node pop = stack.pop();
-            count[1]++;
+            stats.nodeVisit();
+            stats.graphNode();
 
             if (pop instanceof DirNode zds) {
                 int[] its = zds.skyline;
 
                 if (its[1] - its[0] <= Q) {
-                    if (SDominate(its[0], its[1], skyline, minpt, count)) {
+                    if (SDominate(its[0], its[1], skyline, minpt, stats)) {
                         return false;
                     }
                 } else {
                     for (int i : zds.zmbr.bit) {
                         Node zbk = zds.child[i];
-                        count[1]++;
+                        stats.nodeVisit();
+                        stats.graphNode();
                         int pre = zbk.skyline[0];
                         int last = zbk.skyline[1];
                         if (last - pre > 0) {
-                            if (myshgs.Utils.isDominatedBy(zbk.zmbr.min, minpt, count)) {
+                            if (myshgs.Utils.isDominatedBy(zbk.zmbr.min, minpt, stats)) {
                                 stack.add(zbk);
                             }
                         }
@@ -236,12 +581,41 @@ public class IQuadTree {
                 }
             } else {
                 LeafNode n = (LeafNode) pop;
-                if (SDominate(n.skyline[0], n.skyline[1], skyline, minpt, count)) {
+                if (SDominate(n.skyline[0], n.skyline[1], skyline, minpt, stats)) {
                     return false;
                 }
             }
         }
-        return !SDominate(curNum, skyline.size(), skyline, minpt, count);
+        return !SDominate(curNum, skyline.size(), skyline, minpt, stats);
+    }
+
+    /**
+     * Computes the statistics of the structure of the quadtree, without collecting its nodes. The region of a node is
+     * the cell of its Z-prefix, and a node deferred by initAdaptive is counted as a leaf holding its points.
+     *
+     * @return The statistics of the quadtree
+     */
+    public IndexStats stats() {
+        IndexStats stats = new IndexStats();
+        stats(root, 0, stats);
+        stats.bytes = MemoryMeter.retainedSize(this);
+        return stats;
+    }
+
+    private void stats(Node node, int level, IndexStats stats) {
+        double volume = Math.scalb(1.0, node.getFrom() + d); // The bits below from + d are free in the cell
+        if (node instanceof DirNode dir) {
+            int used = dir.zmbr.bit.size();
+            stats.node(level, false, used, 1 << d, volume);
+            stats.quadrants(used, 1 << d);
+            for (int index : dir.zmbr.bit) {
+                stats(dir.child[index], level + 1, stats);
+            }
+        } else {
+            int[] range = pending == null ? null : pending.get((LeafNode) node);
+            int n = range != null ? range[1] - range[0] : ((LeafNode) node).getData().size();
+            stats.node(level, true, n, C, volume);
+        }
     }
 
     /**
@@ -253,6 +627,24 @@ public class IQuadTree {
      * @return Returns a list containing the points of the skyline.
      */
     public List<long[]> skyline(long[] count) {
+        QueryStats.Counter stats = new QueryStats.Counter();
+        List<long[]> skyline = skyline(stats);
+        stats.addTo(count);
+        return skyline;
+    }
+
+    /**
+     * Calculates the skyline.
+     * The skyline is a set of points that are not dominated by any other points in the dataset.
+     * This method uses a tree structure to efficiently calculate the skyline.
+     *
+     * @param stats The statistics of the query
+     * @return Returns a list containing the points of the skyline.
+     */
+    public List<long[]> skyline(QueryStats stats) {
+        long queryStart = stats.start();
+        threshold = new AdaptiveThreshold(Q, adaptiveQuery);
+        stats = threshold.wrap(stats);
         // Initialize the skyline list to store the resulting skyline points
         List<long[]> skyline = new ArrayList<>();
         // Use a stack for depth-first traversal of the tree structure
@@ -262,17 +654,22 @@ public class IQuadTree {
         // Initialize the current number of skyline points processed
         int curNum = 0;
 
+        // In adaptive mode, build the root before the traversal starts
+        if (pending != null && root instanceof LeafNode node && pending.containsKey(node)) {
+            materialize(node);
+        }
+
         // If the root node is a leaf node, directly process the data in the leaf node
         if (root instanceof LeafNode node) {
             List<long[]> data = node.getData();
             int[] its = node.skyline;
             for (long[] p : data) {
-                if (isDominate(node, p, curNum, skyline, count)) {
+                if (isDominate(node, p, curNum, skyline, stats)) {
                     skyline.add(p);
                     its[1]++;
                 }
             }
-            return skyline;
+            return stats.finish(skyline, queryStart);
         }
 
         // If the root node is a directory node, start traversal from the root node
@@ -285,22 +682,29 @@ public class IQuadTree {
             ZIMBRA zm = node.zmbr;
             int[] its = node.skyline;
             its[0] = its[1] = skyline.size();
-            count[1]++;
+            stats.nodeVisit();
 
             // Check if the current node's rectangle is dominated by the current skyline
-            if (isDominate(node, node.zmbr.min, curNum, skyline, count)) {
+            if (isDominate(node, node.zmbr.min, curNum, skyline, stats)) {
+                // In adaptive mode, build the node now that it survived the pruning
+                if (pending != null && node instanceof LeafNode leaf && pending.containsKey(leaf)) {
+                    node = materialize(leaf);
+                    node.skyline[0] = node.skyline[1] = its[0];
+                    its = node.skyline;
+                    zm = node.zmbr;
+                }
                 // If the node is a directory node, add its child nodes to the stack
                 if (node instanceof DirNode zdb) {
                     int size = zm.bit.size();
                     int pi = zm.bit.get(0);
                     if (pi == this.len && zm.bit.get(size - 1) == 0) {
-                        count[1]++;
+                        stats.nodeVisit();
                         pi = 1;
                     } else {
                         pi = 0;
                     }
                     for (int i = pi; i < size; i++) {
-                        count[1]++;
+                        stats.nodeVisit();
                         Node zbk = zdb.child[zm.bit.get(i)];
                         deque.add(zbk);
                     }
@@ -308,7 +712,7 @@ public class IQuadTree {
                     // If the node is a leaf node, process the data in the leaf node
                     List<long[]> data = ((LeafNode) node).getData();
                     for (long[] p : data) {
-                        if (isDominate(node, p, curNum, skyline, count)) {
+                        if (isDominate(node, p, curNum, skyline, stats)) {
                             skyline.add(p);
                             its[1]++;
                         }
@@ -317,43 +721,49 @@ public class IQuadTree {
                     int num = its[1] - curNum;
                     if (its[1] != its[0]) {
                         Node parent = node.getParent();
-                        count[1]++;
+                        stats.nodeVisit();
                         if (parent != null) {
                             parent.skyline[1] = its[1];
+                            stats.pointerUpdate();
                             updatePointer.add(parent);
                         }
-                        // If the number of new points added exceeds the threshold, update the pointers in updatePointer.
-                        if (num > Q) {
-                            updatePP(updatePointer, count);
+                        // Once the new points cost more to scan than an update (see AdaptiveThreshold), update the pointers in updatePointer.
+                        if (threshold.update(num)) {
+                            updatePP(updatePointer, stats);
                             curNum = its[1];
                         }
                     }
                 }
+            } else {
+                stats.prune();
             }
         }
         // Finally, update the pointers in updatePointer.
-        updatePP(updatePointer, count);
-        return skyline;
+        updatePP(updatePointer, stats);
+        return stats.finish(skyline, queryStart);
     }
     /**
      * Update skyline pointers of the parent node of the node
      * This method gradually updates the properties of each node's parent node by traversing the given node set until all nodes have no parent nodes
      *
      * @param set A collection of nodes that need to be processed
-     * @param count An array used to record the number of dominance test and accessing nodes during the computation process, count[0]: the number of dominance test,count[1]: the number of accessing nodes
+     * @param stats The statistics of the query
      */
-    public void updatePP(Set<Node> set, long[] count) {
+    public void updatePP(Set<Node> set, QueryStats stats) {
+        long updateStart = stats.start();
         while (!set.isEmpty()) {
             Set<Node> cur = new HashSet<>();
             for (Node p : set) {
-                count[1]++;
+                stats.nodeVisit();
                 Node parent = p.getParent();
                 if (parent != null) {
                     parent.skyline[1] = Math.max(p.skyline[1], parent.skyline[1]);
+                    stats.pointerUpdate();
                     cur.add(parent);
                 }
             }
             set = cur;
         }
+        stats.stop(QueryStats.Phase.POINTER_UPDATE, updateStart);
     }
 }
@@ -47,6 +47,14 @@ public class LeafNode extends Node {
         this.tmp.add(a);
     }
 
+    public void addPoint(long[] p) {
+        long[] min = this.zmbr.min;
+        for (int j = 0; j < d; j++) {
+            min[j] = Math.min(min[j], p[j]);
+        }
+        data.add(p);
+    }
+
     @Override
     public String toString() {
         StringBuilder sb = new StringBuilder();
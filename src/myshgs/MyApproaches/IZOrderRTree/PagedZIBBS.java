@@ -0,0 +1,326 @@
+package myshgs.MyApproaches.IZOrderRTree;
+
+import myshgs.AdaptiveThreshold;
+import myshgs.Data.BinaryDataset;
+import myshgs.Data.ExternalZSort;
+import myshgs.Monitoring.IndexBuildEvent;
+import myshgs.QueryStats;
+import myshgs.Storage.BufferPool;
+import myshgs.Storage.PagedNode;
+import myshgs.Storage.PagedRTree;
+import myshgs.Utils;
+
+import java.io.IOException;
+import java.util.*;
+
+/**
+ * ZIBBS over a disk-resident Z-order R-tree. The nodes are read from 4 KB pages through an LRU buffer pool,
+ * while the skyline pointers of the nodes are kept on the heap as query-local state indexed by node id.
+ */
+public class PagedZIBBS {
+    private final int C;
+    private final int F;
+    private final int d;
+    private final int Q;
+    private final int poolPages;
+    private PagedRTree tree;
+    private int[] from; // The first skyline point of each node
+    private int[] to; // The end of the skyline points of each node
+
+    /**
+     * Constructs a PagedZIBBS instance with the specified parameters.
+     *
+     * @param C the capacity of each node
+     * @param F the fanout of each directory node
+     * @param Q the threshold for querying
+     * @param dim the dimensionality of the data
+     * @param poolPages the number of pages the buffer pool keeps in memory
+     */
+    public PagedZIBBS(int C, int F, int Q, int dim, int poolPages) {
+        this.C = C;
+        this.F = F;
+        this.Q = Q;
+        this.d = dim;
+        this.poolPages = poolPages;
+    }
+
+    /**
+     * Sorts the points into Z-order, bulk loads a Z-order R-tree straight into a page file and opens it.
+     *
+     * @param points the array of points to load into the R-tree
+     * @param path the path of the page file
+     * @throws IOException if the page file cannot be written
+     */
+    public void init(long[][] points, String path) throws IOException {
+        long[][] sorted = points.clone();
+        long sortStart = System.nanoTime();
+        Arrays.parallelSort(sorted, ExternalZSort::compare);
+        IndexBuildEvent.sorted(sortStart);
+        PagedRTree.load(path, d, sorted.length, i -> sorted[i], C, F, false);
+        open(path);
+    }
+
+    /**
+     * Bulk loads a Z-order R-tree straight into a page file from a dataset that is already sorted in Z-order, such
+     * as the output of ExternalZSort, and opens it. The points are streamed from the dataset, so neither the points
+     * nor the tree are kept on the heap.
+     *
+     * @param sorted the dataset in Z-order
+     * @param path the path of the page file
+     * @throws IOException if the page file cannot be written
+     */
+    public void init(BinaryDataset sorted, String path) throws IOException {
+        long[] p = new long[d];
+        PagedRTree.load(path, d, sorted.size(), i -> sorted.get(i, p), C, F, false);
+        open(path);
+    }
+
+    /**
+     * Opens a Z-order R-tree that has already been written into a page file.
+     *
+     * @param path the path of the page file
+     * @throws IOException if the page file cannot be read
+     */
+    public void open(String path) throws IOException {
+        close();
+        tree = PagedRTree.open(path, poolPages);
+    }
+
+    /**
+     * Checks if a point is dominated by any point in a specified node.
+     *
+     * @param pre The pointer of starting.
+     * @param last The pointer of ending.
+     * @param skyline The list of skyline points.
+     * @param p The point to check.
+     * @param stats The statistics of the query
+     * @return true if p is dominated by any point in the specified range, otherwise false.
+     */
+    public boolean SDominate(int pre, int last, List<long[]> skyline, long[] p, QueryStats stats) {
+        for (int i = pre; i < last; i++) {
+            if (Utils.isDominatedBy(skyline.get(i), p, stats))
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * Determines if an object is dominated.
+     *
+     * @param node the id of the node of the object.
+     * @param p the lower corner of the object
+     * @param curNum the current number of skyline points processed
+     * @param skyline the list of skyline points
+     * @param stats The statistics of the query
+     * @return true if the object is not dominated; otherwise false
+     */
+    public boolean isDominate(int node, long[] p, int curNum, List<long[]> skyline, QueryStats stats) {
+        if (curNum < AdaptiveThreshold.WARMUP) {
+            return !SDominate(0, skyline.size(), skyline, p, stats);
+        }
+
+        //Looking for NDG of objects
+
+        int cur = node;
+        Stack<Integer> stack = new Stack<>();
+
+        boolean Threshold = false;
+        long ndgStart = stats.start();
+        while (cur != -1) {
+            int parent = tree.getParent(cur);
+            if (parent != -1) {
+                int T = to[parent] - from[parent];
+                if (T > Q || Threshold) {
+                    PagedNode pn = tree.readNode(parent);
+                    int pos = tree.getPos(cur);
+                    if (!Threshold) {
+                        Threshold = true;
+                        stats.nodeVisit();
+                        stats.graphNode();
+                        if (to[cur] - from[cur] > 0 && Utils.isDominatedBy(pn.min[pos], p, stats)) {
+                            stack.add(cur);
+                        }
+                    }
+
+                    for (int i = pos - 1; i >= 0; i--) {
+                        int block = pn.children[i];
+                        stats.nodeVisit();
+                        stats.graphNode();
+                        if (to[block] - from[block] > 0 && Utils.isDominatedBy(pn.min[i], p, stats)) {
+                            stack.add(block);
+                        }
+                    }
+                }
+            }
+            cur = parent;
+            stats.nodeVisit();
+        }
+        stats.stop(QueryStats.Phase.NDG, ndgStart);
+
+        while (!stack.isEmpty()) {
+            int poll = stack.pop();
+            stats.nodeVisit();
+            stats.graphNode();
+
+            if (!tree.isLeaf(poll)) {
+                if (to[poll] - from[poll] <= Q) {
+                    if (SDominate(from[poll], to[poll], skyline, p, stats)) {
+                        return false;
+                    }
+                } else {
+                    PagedNode pn = tree.readNode(poll);
+                    for (int i = pn.usedSpace - 1; i >= 0; i--) {
+                        int block = pn.children[i];
+                        stats.nodeVisit();
+                        stats.graphNode();
+                        if (to[block] - from[block] > 0 && Utils.isDominatedBy(pn.min[i], p, stats)) {
+                            stack.add(block);
+                        }
+                    }
+                }
+            } else if (SDominate(from[poll], to[poll], skyline, p, stats)) {
+                return false;
+            }
+        }
+        return !SDominate(curNum, skyline.size(), skyline, p, stats);
+    }
+
+    /**
+     * Computes the skyline of the dataset.
+     *
+     * @param count An array used to record the number of dominance test and accessing nodes during the computation process, count[0]: the number of dominance test,count[1]: the number of accessing nodes
+     * @return the list of skyline points
+     */
+    public List<long[]> skyline(long[] count) {
+        QueryStats.Counter stats = new QueryStats.Counter();
+        List<long[]> skyline = skyline(stats);
+        stats.addTo(count);
+        return skyline;
+    }
+
+    /**
+     * Computes the skyline of the dataset.
+     *
+     * @param stats The statistics of the query
+     * @return the list of skyline points
+     */
+    public List<long[]> skyline(QueryStats stats) {
+        long queryStart = stats.start();
+        List<long[]> skyline = new ArrayList<>();
+        Stack<long[]> mins = new Stack<>();
+        Stack<Integer> deque = new Stack<>();
+        from = new int[tree.getNodeCount()];
+        to = new int[tree.getNodeCount()];
+
+        Set<Integer> updatePointer = new HashSet<>();
+        int curNum = 0;
+
+        PagedNode r = tree.readNode(tree.getRoot());
+        if (r.isLeaf()) {
+            for (int i = 0; i < r.usedSpace; i++) {
+                if (isDominate(r.id, r.min[i], curNum, skyline, stats)) {
+                    skyline.add(r.min[i]);
+                    to[r.id]++;
+                }
+            }
+            return stats.finish(skyline, queryStart);
+        }
+
+        for (int i = r.usedSpace - 1; i >= 0; i--) {
+            deque.add(r.children[i]);
+            mins.add(r.min[i]);
+        }
+
+        while (!deque.isEmpty()) {
+            int node = deque.pop();
+            long[] min = mins.pop();
+            from[node] = to[node] = skyline.size();
+            stats.nodeVisit();
+
+            if (isDominate(node, min, curNum, skyline, stats)) { // Rectangle is not dominated by current skyline, continue
+                PagedNode pn = tree.readNode(node);
+                if (!pn.isLeaf()) {
+                    for (int i = pn.usedSpace - 1; i >= 0; i--) {
+                        stats.nodeVisit();
+                        deque.add(pn.children[i]);
+                        mins.add(pn.min[i]);
+                    }
+                } else {
+                    for (int i = 0; i < pn.usedSpace; i++) {
+                        long[] p = pn.min[i];
+                        if (isDominate(node, p, curNum, skyline, stats)) {
+                            skyline.add(p);
+                            to[node]++;
+                        }
+                    }
+                    int num = to[node] - curNum;
+                    if (to[node] != from[node]) {
+                        int parent = tree.getParent(node);
+                        stats.nodeVisit();
+                        if (parent != -1) {
+                            to[parent] = to[node];
+                            stats.pointerUpdate();
+                            updatePointer.add(parent);
+                        }
+
+                        if (num > Q) {
+                            updatePP(updatePointer, stats);
+                            curNum = to[node];
+                        }
+                    }
+                }
+            } else {
+                stats.prune();
+            }
+        }
+        updatePP(updatePointer, stats);
+        return stats.finish(skyline, queryStart);
+    }
+
+    /**
+     * Update skyline pointers of the parent node of the node
+     *
+     * @param set A collection of node ids that need to be processed
+     * @param stats The statistics of the query
+     */
+    public void updatePP(Set<Integer> set, QueryStats stats) {
+        long updateStart = stats.start();
+        while (!set.isEmpty()) {
+            Set<Integer> cur = new HashSet<>();
+            for (int p : set) {
+                int parent = tree.getParent(p);
+                stats.nodeVisit();
+                if (parent != -1) {
+                    to[parent] = Math.max(to[p], to[parent]);
+                    stats.pointerUpdate();
+                    cur.add(parent);
+                }
+            }
+            set = cur;
+        }
+        stats.stop(QueryStats.Phase.POINTER_UPDATE, updateStart);
+    }
+
+    /**
+     * @return the buffer pool of the page file, holding the page reads and the hit ratio
+     */
+    public BufferPool getBufferPool() {
+        return tree.getBufferPool();
+    }
+
+    public PagedRTree getTree() {
+        return tree;
+    }
+
+    /**
+     * Closes the page file.
+     *
+     * @throws IOException if the file cannot be closed
+     */
+    public void close() throws IOException {
+        if (tree != null) {
+            tree.close();
+            tree = null;
+        }
+    }
+}
@@ -1,7 +1,12 @@
 package myshgs.MyApproaches.IZOrderRTree.RTree;
 
+import myshgs.Data.BinaryDataset;
+import myshgs.IndexStats;
+import myshgs.Monitoring.MemoryMeter;
+import myshgs.Storage.Snapshot;
 import myshgs.Utils;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.LinkedList;
 import java.util.List;
@@ -94,6 +99,67 @@ public class RTree {
         this.root = ZOrderLoad.Load(this, points, this.C, this.F);
     }
 
+    /**
+     * Loads a dataset that is already sorted in Z-order into the R-Tree.
+     *
+     * @param sorted the dataset in Z-order, such as the output of ExternalZSort
+     */
+    public void ZOrderLoad(BinaryDataset sorted) {
+        ZOrderLoad ZOrderLoad = new ZOrderLoad();
+        this.root = ZOrderLoad.Load(this, sorted, this.C, this.F);
+    }
+
+    /**
+     * Writes the nodes of the R-Tree into a snapshot in pre-order. A node is written as its level and number of
+     * entries, followed by the points of a data node or the subtrees of the children of a directory node.
+     *
+     * @param out the snapshot to write into
+     * @throws IOException if the snapshot cannot be written
+     */
+    public void save(Snapshot.Writer out) throws IOException {
+        save(out, root);
+    }
+
+    private void save(Snapshot.Writer out, Node node) throws IOException {
+        out.put(node.level);
+        out.put(node.usedSpace);
+        for (int i = 0; i < node.usedSpace; i++) {
+            if (node.isLeaf()) {
+                out.put(node.datas[i].getMin());
+            } else {
+                save(out, ((RTDirNode) node).getChild(i));
+            }
+        }
+    }
+
+    /**
+     * Rebuilds the R-Tree from a snapshot written by save, replacing the current root. The directory rectangles
+     * are recomputed from the children as ZOrderLoad does.
+     *
+     * @param in the snapshot to read from, positioned after its header
+     * @throws IOException if the snapshot cannot be read
+     */
+    public void restore(Snapshot.Reader in) throws IOException {
+        this.root = restoreNode(in);
+    }
+
+    private Node restoreNode(Snapshot.Reader in) throws IOException {
+        int level = in.nextInt();
+        int used = in.nextInt();
+        if (level == 0) {
+            RTDataNode node = new RTDataNode(this, null);
+            for (int i = 0; i < used; i++) {
+                node.addData(new MBR(in.nextPoint(dims)));
+            }
+            return node;
+        }
+        RTDirNode node = new RTDirNode(this, null, level);
+        for (int i = 0; i < used; i++) {
+            node.insert(restoreNode(in));
+        }
+        return node;
+    }
+
     /**
      * Performs a post-order traversal on the R-Tree and returns all nodes.
      *
@@ -144,4 +210,40 @@ public class RTree {
             }
         }
     }
+
+    /**
+     * Computes the statistics of the structure of the tree, without collecting its nodes.
+     *
+     * @return The statistics of the tree
+     */
+    public IndexStats stats() {
+        IndexStats stats = new IndexStats();
+        if (root.usedSpace == 0) {
+            stats.node(0, true, 0, C, 0);
+        } else {
+            MBR rect = root.getNodeRectangle();
+            stats(root, 0, IndexStats.volume(rect.getMin(), rect.getMax()), stats);
+        }
+        stats.bytes = MemoryMeter.retainedSize(this);
+        return stats;
+    }
+
+    private void stats(Node node, int level, double volume, IndexStats stats) {
+        int n = node.usedSpace;
+        if (node instanceof RTDirNode dir) {
+            stats.node(level, false, n, F, volume);
+            long[][] min = new long[n][];
+            long[][] max = new long[n][];
+            for (int i = 0; i < n; i++) {
+                min[i] = node.datas[i].getMin();
+                max[i] = node.datas[i].getMax();
+            }
+            stats.siblings(level + 1, min, max, n);
+            for (int i = 0; i < n; i++) {
+                stats(dir.getChild(i), level + 1, IndexStats.volume(min[i], max[i]), stats);
+            }
+        } else {
+            stats.node(level, true, n, C, volume);
+        }
+    }
 }
@@ -1,6 +1,10 @@
 package myshgs.MyApproaches.IZOrderRTree.RTree;
 
+import myshgs.Data.BinaryDataset;
+import myshgs.Monitoring.IndexBuildEvent;
+
 import java.util.Arrays;
+import java.util.function.IntFunction;
 
 /**
  * This class is responsible for loading data points into an RTree data structure using Z-order curve.
@@ -17,8 +21,7 @@ public class ZOrderLoad {
      * @return Returns the root node of the constructed RTree.
      */
     public Node Load(RTree rtree, long[][] points, int C, int F) {
-        // Initialize the current level depth and the total number of data points
-        int depth = 0;
+        // The total number of data points
         int N = points.length;
 
         // Create an MBR array to store the minimum bounding rectangles of all data points
@@ -28,14 +31,47 @@ public class ZOrderLoad {
         }
 
         // Sort the MBR array to ensure that data points are processed in Z-order
+        long sortStart = System.nanoTime();
         Arrays.sort(list);
+        IndexBuildEvent.sorted(sortStart);
+
+        return pack(rtree, i -> list[i], N, C, F);
+    }
+
+    /**
+     * Loads a dataset that is already sorted in Z-order, such as the output of ExternalZSort, into the RTree.
+     * The points are read from the file one data node at a time, so only the tree itself is kept on the heap.
+     *
+     * @param rtree The RTree instance to load data into.
+     * @param sorted The dataset in Z-order.
+     * @param C The capacity of data nodes, determining the maximum number of data points a data node can contain.
+     * @param F The capacity of directory nodes, determining the maximum number of child nodes a directory node can contain.
+     * @return Returns the root node of the constructed RTree.
+     */
+    public Node Load(RTree rtree, BinaryDataset sorted, int C, int F) {
+        int d = sorted.dimension();
+        return pack(rtree, i -> new MBR(sorted.get(i, new long[d])), sorted.size(), C, F);
+    }
+
+    /**
+     * Packs data points in Z-order into data nodes and directory levels.
+     *
+     * @param rtree The RTree instance to load data into.
+     * @param list The i-th data point in Z-order, requested in ascending order of i.
+     * @param N The number of data points.
+     * @param C The capacity of data nodes.
+     * @param F The capacity of directory nodes.
+     * @return Returns the root node of the constructed RTree.
+     */
+    private Node pack(RTree rtree, IntFunction<MBR> list, int N, int C, int F) {
+        int depth = 0;
 
         // Calculate the number of data nodes needed and initialize the data node array
         Node[] nodes = new Node[(int) Math.ceil(N / (double) C)];
         int posNode = 0;
         Node node = null;
         // Determine the end position for evenly distributing data points into data nodes
-        int end = (list.length % C) == 0 || (list.length / C) == 0 ? list.length : ((list.length / C) * C - C);
+        int end = (N % C) == 0 || (N / C) == 0 ? N : ((N / C) * C - C);
         for (int i = 0; i < end; i++) {
             if (i % C == 0) {
                 // Create a new data node and add it to the data node array
@@ -43,20 +79,20 @@ public class ZOrderLoad {
                 nodes[posNode++] = node;
             }
             // Add the data point to the current data node
-            node.addData(list[i]);
+            node.addData(list.apply(i));
         }
         // Handle the remaining data points that do not reach the capacity of a full data node
-        if (end != list.length) {
+        if (end != N) {
             node = new RTDataNode(rtree, null);
             nodes[posNode++] = node;
-            int start = end + (list.length - end) / 2;
+            int start = end + (N - end) / 2;
             for (int i = end; i < start; i++) {
-                node.addData(list[i]);
+                node.addData(list.apply(i));
             }
             node = new RTDataNode(rtree, null);
             nodes[posNode] = node;
-            for (int i = start; i < list.length; i++) {
-                node.addData(list[i]);
+            for (int i = start; i < N; i++) {
+                node.addData(list.apply(i));
             }
         }
 
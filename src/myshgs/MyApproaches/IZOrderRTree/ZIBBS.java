@@ -1,16 +1,27 @@
 package myshgs.MyApproaches.IZOrderRTree;
 
+import myshgs.AdaptiveThreshold;
+import myshgs.Data.BinaryDataset;
+import myshgs.IndexStats;
+import myshgs.Monitoring.IndexBuildEvent;
 import myshgs.MyApproaches.IZOrderRTree.RTree.*;
+import myshgs.ParameterTuner;
+import myshgs.Storage.Snapshot;
+import myshgs.QueryStats;
 import myshgs.Utils;
 
+import java.io.IOException;
 import java.util.*;
+import java.util.function.Function;
 
 
 public class ZIBBS {
-    private final int C;
-    private final int F;
+    private int C;
+    private int F;
     private final int d;
-    private final int Q;
+    private int Q;
+    public boolean adaptiveQuery; // Whether the queries adapt the warm-up cutoff and Q, see AdaptiveThreshold
+    private AdaptiveThreshold threshold; // Adapts the warm-up cutoff and Q during the current query
     private Node root;
 
     /**
@@ -20,6 +31,7 @@ public class ZIBBS {
      * @param F the fanout of each directory node
      * @param Q the threshold for querying
      * @param dim the dimensionality of the data
+     * C, F and Q may be ParameterTuner.AUTO, to be tuned by init or read by restore.
      */
     public ZIBBS(int C, int F, int Q, int dim) {
         this.C = C;
@@ -34,9 +46,81 @@ public class ZIBBS {
      * @param points the array of points to load into the R-tree
      */
     public void init(long[][] points) {
+        if (C == ParameterTuner.AUTO || F == ParameterTuner.AUTO || Q == ParameterTuner.AUTO) {
+            set(new ParameterTuner().tune(points, C, F, Q, this::trial));
+        }
+        IndexBuildEvent event = IndexBuildEvent.start("ZIBBS", points.length, d);
         RTree tree = new RTree(C, F, d);
         tree.ZOrderLoad(points);
         root = tree.root;
+        event.finish();
+    }
+
+    /**
+     * Initializes the R-tree with a dataset that is already sorted in Z-order, reading the points from the file
+     * while the leaves are packed.
+     *
+     * @param sorted the dataset in Z-order, such as the output of ExternalZSort
+     */
+    public void init(BinaryDataset sorted) {
+        if (C == ParameterTuner.AUTO || F == ParameterTuner.AUTO || Q == ParameterTuner.AUTO) {
+            set(new ParameterTuner().tune(sorted, C, F, Q, this::trial));
+        }
+        IndexBuildEvent event = IndexBuildEvent.start("ZIBBS", sorted.size(), d);
+        RTree tree = new RTree(C, F, d);
+        tree.ZOrderLoad(sorted);
+        root = tree.root;
+        event.finish();
+    }
+
+    private void set(ParameterTuner.Result tuned) {
+        this.C = tuned.C;
+        this.F = tuned.F;
+        this.Q = tuned.Q;
+    }
+
+    private Function<QueryStats, List<long[]>> trial(int C, int F, int Q, long[][] sample) {
+        ZIBBS bbs = new ZIBBS(C, F, Q, d);
+        bbs.init(sample);
+        return bbs::skyline;
+    }
+
+    /**
+     * Saves the built R-tree into a snapshot.
+     *
+     * @param path the path of the snapshot
+     * @throws IOException if the file cannot be written
+     */
+    public void save(String path) throws IOException {
+        RTree tree = new RTree(C, F, d);
+        tree.setRoot(root);
+        try (Snapshot.Writer out = new Snapshot.Writer(path, Snapshot.Z_RTREE, d, C, F, Q)) {
+            tree.save(out);
+        }
+    }
+
+    /**
+     * Restores an R-tree saved by save, replacing the current one. The snapshot must have been taken with the same
+     * C, F and dimensionality.
+     *
+     * @param path the path of the snapshot
+     * @throws IOException if the file cannot be read or does not match this instance
+     */
+    public void restore(String path) throws IOException {
+        Snapshot.Reader in = new Snapshot.Reader(path, Snapshot.Z_RTREE);
+        if (C == ParameterTuner.AUTO) {
+            this.C = in.C;
+        }
+        if (F == ParameterTuner.AUTO) {
+            this.F = in.F;
+        }
+        if (Q == ParameterTuner.AUTO) {
+            this.Q = in.Q;
+        }
+        in.expect(d, C, F);
+        RTree tree = new RTree(C, F, d);
+        tree.restore(in);
+        root = tree.root;
     }
 
     /**
@@ -46,12 +130,12 @@ public class ZIBBS {
      * @param last The pointer of ending.
      * @param skyline The list of skyline points.
      * @param p The point to check.
-     * @param count An array used to record the number of dominance test and accessing nodes during the computation process, count[0]: the number of dominance test,count[1]: the number of accessing nodes
+     * @param stats The statistics of the query
      * @return true if p is dominated by any point in the specified range, otherwise false.
      */
-    public boolean SDominate(int pre, int last, List<long[]> skyline, long[] p, long[] count) {
+    public boolean SDominate(int pre, int last, List<long[]> skyline, long[] p, QueryStats stats) {
         for (int i = pre; i < last; i++) {
-            if (Utils.isDominatedBy(skyline.get(i), p, count))
+            if (Utils.isDominatedBy(skyline.get(i), p, stats))
                 return true;
         }
         return false;
@@ -64,13 +148,15 @@ public class ZIBBS {
      * @param mbr the object
      * @param curNum the current number of skyline points processed
      * @param skyline the list of skyline points
-     * @param count An array used to record the number of dominance test and accessing nodes during the computation process, count[0]: the number of dominance test,count[1]: the number of accessing nodes
+     * @param stats The statistics of the query
      * @return true if the MBR is dominated; otherwise false
      */
-    public boolean isDominate(Node node, MBR mbr, int curNum, List<long[]> skyline, long[] count) {
-        if (curNum < 1000) {
-            return !SDominate(0, skyline.size(), skyline, mbr.getMin(), count);
+    public boolean isDominate(Node node, MBR mbr, int curNum, List<long[]> skyline, QueryStats stats) {
+        // During the warm-up, or while the NDG lookups do not save dominance tests, scan the skyline
+        if (threshold.scan(curNum, skyline.size())) {
+            return !SDominate(0, skyline.size(), skyline, mbr.getMin(), stats);
         }
+        int Q = threshold.threshold(curNum);
 
         //Looking for NDG of objects
 
@@ -79,6 +165,7 @@ public class ZIBBS {
         HashMap<MBR, Node> record = new HashMap<>();
 
         boolean Threshold = false;
+        long ndgStart = stats.start();
         while (cur != null) {
             RTDirNode parent = (RTDirNode) cur.getParent();
             if (parent != null) {
@@ -90,12 +177,13 @@ public class ZIBBS {
                         Node block = parent.getChild(cur.pos);
                         MBR bmbr = parent.datas[cur.pos];
 
-                        count[1]++;
+                        stats.nodeVisit();
+                        stats.graphNode();
                         int pre = block.skyline[0];
                         int last = block.skyline[1];
 
                         if (last - pre > 0) {
-                            if (Utils.isDominatedBy(bmbr.getMin(), mbr.getMin(), count)) {
+                            if (Utils.isDominatedBy(bmbr.getMin(), mbr.getMin(), stats)) {
                                 stack.add(bmbr);
                                 record.put(bmbr, block);
                             }
@@ -106,11 +194,12 @@ public class ZIBBS {
                         Node block = parent.getChild(i);
                         MBR bmbr = parent.datas[i];
 
-                        count[1]++;
+                        stats.nodeVisit();
+                        stats.graphNode();
                         int pre = block.skyline[0];
                         int last = block.skyline[1];
                         if (last - pre > 0) {
-                           if (Utils.isDominatedBy(bmbr.getMin(), mbr.getMin(), count)) {
+                           if (Utils.isDominatedBy(bmbr.getMin(), mbr.getMin(), stats)) {
                                 stack.add(bmbr);
                                 record.put(bmbr, block);
                             }
@@ -119,19 +208,21 @@ public class ZIBBS {
                 }
             }
             cur = parent;
-            count[1]++;
+            stats.nodeVisit();
         }
+        stats.stop(QueryStats.Phase.NDG, ndgStart);
 
         while (!stack.isEmpty()) {
             MBR pop = stack.pop();
             Node poll = record.remove(pop);
-            count[1]++;
+            stats.nodeVisit();
+            stats.graphNode();
 
             if (poll instanceof RTDirNode zds) {
                 int[] its = zds.skyline;
 
                 if (its[1] - its[0] <= Q) {
-                    if (SDominate(its[0], its[1], skyline, mbr.getMin(), count)) {
+                    if (SDominate(its[0], its[1], skyline, mbr.getMin(), stats)) {
                         return false;
                     }
                 } else {
@@ -139,12 +230,13 @@ public class ZIBBS {
                         Node block = zds.getChild(i);
                         MBR bmbr = zds.datas[i];
 
-                        count[1]++;
+                        stats.nodeVisit();
+                        stats.graphNode();
                         int pre = block.skyline[0];
                         int last = block.skyline[1];
 
                         if (last - pre > 0) {
-                          if (Utils.isDominatedBy(bmbr.getMin(), mbr.getMin(), count)) {
+                          if (Utils.isDominatedBy(bmbr.getMin(), mbr.getMin(), stats)) {
                                 stack.add(bmbr);
                                 record.put(bmbr, block);
                             }
@@ -153,12 +245,23 @@ public class ZIBBS {
                 }
             } else {
                 RTDataNode n = (RTDataNode) poll;
-                if (SDominate(n.skyline[0], n.skyline[1], skyline, mbr.getMin(), count)) {
+                if (SDominate(n.skyline[0], n.skyline[1], skyline, mbr.getMin(), stats)) {
                     return false;
                 }
             }
         }
-        return !SDominate(curNum, skyline.size(), skyline, mbr.getMin(), count);
+        return !SDominate(curNum, skyline.size(), skyline, mbr.getMin(), stats);
+    }
+
+    /**
+     * Computes the statistics of the structure of the R-tree, without collecting its nodes.
+     *
+     * @return The statistics of the tree
+     */
+    public IndexStats stats() {
+        RTree tree = new RTree(C, F, d);
+        tree.setRoot(root);
+        return tree.stats();
     }
 
     /**
@@ -168,6 +271,22 @@ public class ZIBBS {
      * @return the list of skyline points
      */
     public List<long[]> skyline(long[] count) {
+        QueryStats.Counter stats = new QueryStats.Counter();
+        List<long[]> skyline = skyline(stats);
+        stats.addTo(count);
+        return skyline;
+    }
+
+    /**
+     * Computes the skyline of the dataset.
+     *
+     * @param stats The statistics of the query
+     * @return the list of skyline points
+     */
+    public List<long[]> skyline(QueryStats stats) {
+        long queryStart = stats.start();
+        threshold = new AdaptiveThreshold(Q, adaptiveQuery);
+        stats = threshold.wrap(stats);
         List<long[]> skyline = new ArrayList<>();
         Stack<MBR> deque = new Stack<>();
         HashMap<MBR, Node> record = new HashMap<>();
@@ -180,12 +299,12 @@ public class ZIBBS {
             int[] its = node.skyline;
             for (int i = 0; i < node.getUsedSpace(); i++) {
                 MBR p = data[i];
-                if (isDominate(node, p, curNum, skyline, count)) {
+                if (isDominate(node, p, curNum, skyline, stats)) {
                     skyline.add(p.getMin());
                     its[1]++;
                 }
             }
-            return skyline;
+            return stats.finish(skyline, queryStart);
         }
 
         RTDirNode r = (RTDirNode) root;
@@ -200,12 +319,12 @@ public class ZIBBS {
             Node node = record.remove(pop);
             int[] its = node.skyline;
             its[0] = its[1] = skyline.size();
-            count[1]++;
+            stats.nodeVisit();
 
-            if (isDominate(node, pop, curNum, skyline, count)) { // Rectangle is not dominated by current skyline, continue
+            if (isDominate(node, pop, curNum, skyline, stats)) { // Rectangle is not dominated by current skyline, continue
                 if (node instanceof RTDirNode r2) {
                     for (int i = node.getUsedSpace() - 1; i >= 0; i--) {
-                        count[1]++;
+                        stats.nodeVisit();
                         deque.add(node.datas[i]);
                         record.put(r2.datas[i], r2.getChild(i));
                     }
@@ -214,7 +333,7 @@ public class ZIBBS {
 
                     for (int i = 0; i < node.getUsedSpace(); i++) {
                         MBR p = data[i];
-                        if (isDominate(node, p, curNum, skyline, count)) {
+                        if (isDominate(node, p, curNum, skyline, stats)) {
                             skyline.add(p.getMin());
                             its[1]++;
                         }
@@ -222,22 +341,27 @@ public class ZIBBS {
                     int num = its[1] - curNum;
                     if (its[1] != its[0]) {
                         Node parent = node.getParent();
-                        count[1]++;
+                        stats.nodeVisit();
                         if (parent != null) {
                             parent.skyline[1] = its[1];
+                            stats.pointerUpdate();
                             updatePointer.add(parent);
                         }
 
-                        if (num > Q) {
-                            updatePP(updatePointer,count);
+                        if (threshold.update(num)) {
+                            updatePP(updatePointer, stats);
                             curNum = its[1];
                         }
                     }
                 }
+            } else {
+
+                stats.prune();
+
             }
         }
-        updatePP(updatePointer,count);
-        return skyline;
+        updatePP(updatePointer, stats);
+        return stats.finish(skyline, queryStart);
     }
 
     /**
@@ -245,21 +369,24 @@ public class ZIBBS {
      * This method gradually updates the properties of each node's parent node by traversing the given node set until all nodes have no parent nodes
      *
      * @param set A collection of nodes that need to be processed
-     * @param count An array used to record the number of dominance test and accessing nodes during the computation process, count[0]: the number of dominance test,count[1]: the number of accessing nodes
+     * @param stats The statistics of the query
      */
-    public void updatePP(Set<Node> set,long[] count) {
+    public void updatePP(Set<Node> set,QueryStats stats) {
+        long updateStart = stats.start();
         while (!set.isEmpty()) {
             Set<Node> cur = new HashSet<>();
             for (Node p : set) {
                 Node parent = p.getParent();
-                count[1]++;
+                stats.nodeVisit();
                 if (parent != null) {
                     parent.skyline[1] = Math.max(p.skyline[1], parent.skyline[1]);
+                    stats.pointerUpdate();
                     cur.add(parent);
                 }
             }
             set = cur;
         }
+        stats.stop(QueryStats.Phase.POINTER_UPDATE, updateStart);
     }
 
 }
\ No newline at end of file
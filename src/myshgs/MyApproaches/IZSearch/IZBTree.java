@@ -1,15 +1,27 @@
 package myshgs.MyApproaches.IZSearch;
 
+import myshgs.AdaptiveThreshold;
+import myshgs.Data.BinaryDataset;
+import myshgs.IndexStats;
+import myshgs.Monitoring.IndexBuildEvent;
+import myshgs.Monitoring.MemoryMeter;
 import myshgs.MyApproaches.IZSearch.ZBTree.*;
+import myshgs.ParameterTuner;
+import myshgs.Storage.Snapshot;
+import myshgs.QueryStats;
 import myshgs.Utils;
 
+import java.io.IOException;
 import java.util.*;
+import java.util.function.Function;
 
 public class IZBTree {
     public ZBNode root;
     private int C = 0;
     private int F = 0;
     private int Q = 0;
+    public boolean adaptiveQuery; // Whether the queries adapt the warm-up cutoff and Q, see AdaptiveThreshold
+    private AdaptiveThreshold threshold; // Adapts the warm-up cutoff and Q during the current query
     private int d = 0;
 
     /**
@@ -21,9 +33,10 @@ public class IZBTree {
      * @param d The dimension of the data.
      *
      * Note: The condition F >= 4 is required because the algorithm relies on this ratio to function correctly.
+     * C, F and Q may be ParameterTuner.AUTO, to be tuned by init or read by restore.
      */
     public IZBTree(int C, int F, int Q, int d) {
-        if (F >= 4) {
+        if (F >= 4 || F == ParameterTuner.AUTO) {
             this.C = C;
             this.F = F;
             this.Q = Q;
@@ -41,8 +54,113 @@ public class IZBTree {
      * @param points A dataset.
      */
     public void init(long[][] points) {
+        if (C == ParameterTuner.AUTO || F == ParameterTuner.AUTO || Q == ParameterTuner.AUTO) {
+            set(new ParameterTuner().tune(points, C, F, Q, this::trial));
+        }
+        IndexBuildEvent event = IndexBuildEvent.start("IZBTree", points.length, d);
         RZLoad load = new RZLoad(d, C, F);
         this.root = load.Loading(points);
+        event.finish();
+    }
+
+    /**
+     * Initializes the ZBTree with a dataset that is already sorted in Z-order, reading the points from the file
+     * while the leaves are packed.
+     *
+     * @param sorted A dataset in Z-order, such as the output of ExternalZSort.
+     */
+    public void init(BinaryDataset sorted) {
+        if (C == ParameterTuner.AUTO || F == ParameterTuner.AUTO || Q == ParameterTuner.AUTO) {
+            set(new ParameterTuner().tune(sorted, C, F, Q, this::trial));
+        }
+        IndexBuildEvent event = IndexBuildEvent.start("IZBTree", sorted.size(), d);
+        RZLoad load = new RZLoad(d, C, F);
+        this.root = load.Loading(sorted);
+        event.finish();
+    }
+
+    private void set(ParameterTuner.Result tuned) {
+        this.C = tuned.C;
+        this.F = tuned.F;
+        this.Q = tuned.Q;
+    }
+
+    private Function<QueryStats, List<long[]>> trial(int C, int F, int Q, long[][] sample) {
+        IZBTree tree = new IZBTree(C, F, Q, d);
+        tree.init(sample);
+        return tree::skyline;
+    }
+
+    /**
+     * Saves the built ZBTree into a snapshot. Every node is written as its kind and number of entries, followed by
+     * the points of a leaf, or by the regions of a directory node each followed by the subtree of the child, so a
+     * restore does not compute any region again. The Z-order values of the points are computed on first use.
+     *
+     * @param path The path of the snapshot.
+     * @throws IOException if the file cannot be written.
+     */
+    public void save(String path) throws IOException {
+        try (Snapshot.Writer out = new Snapshot.Writer(path, Snapshot.ZB_TREE, d, C, F, Q)) {
+            save(out, root);
+        }
+    }
+
+    private void save(Snapshot.Writer out, ZBNode node) throws IOException {
+        out.put(node instanceof ZBDataNode ? 1 : 0);
+        out.put(node.getUsedSpace());
+        for (int i = 0; i < node.getUsedSpace(); i++) {
+            RZRegion region = node.getDatas(i);
+            if (node instanceof ZBDataNode leaf) {
+                out.put(leaf.getData(i));
+            } else {
+                out.put(region.getMinzt());
+                out.put(region.getMaxzt());
+                out.put(region.getMinpt());
+                out.put(region.getMaxpt());
+                save(out, ((ZBDirNode) node).getChildren(i));
+            }
+        }
+    }
+
+    /**
+     * Restores a ZBTree saved by save, replacing the current tree. The snapshot must have been taken with the same
+     * d, C and F.
+     *
+     * @param path The path of the snapshot.
+     * @throws IOException if the file cannot be read or does not match this ZBTree.
+     */
+    public void restore(String path) throws IOException {
+        Snapshot.Reader in = new Snapshot.Reader(path, Snapshot.ZB_TREE);
+        if (C == ParameterTuner.AUTO) {
+            this.C = in.C;
+        }
+        if (F == ParameterTuner.AUTO) {
+            this.F = in.F;
+        }
+        if (Q == ParameterTuner.AUTO) {
+            this.Q = in.Q;
+        }
+        in.expect(d, C, F);
+        this.root = restore(in);
+    }
+
+    private ZBNode restore(Snapshot.Reader in) throws IOException {
+        boolean leaf = in.next() == 1;
+        int used = in.nextInt();
+        if (leaf) {
+            ZBDataNode node = new ZBDataNode(null, d, C);
+            for (int i = 0; i < used; i++) {
+                long[] p = in.nextPoint(d);
+                node.addData(p, new RZRegion(d, null, null, p, p));
+            }
+            return node;
+        }
+        ZBDirNode node = new ZBDirNode(null, d, F);
+        for (int i = 0; i < used; i++) {
+            RZRegion region = new RZRegion(d, in.nextBits(), in.nextBits(), in.nextPoint(d), in.nextPoint(d));
+            node.addChildren(restore(in), region);
+        }
+        return node;
     }
 
     /**
@@ -52,12 +170,12 @@ public class IZBTree {
      * @param last The pointer of ending.
      * @param skyline The list of skyline points.
      * @param p The point to check.
-     * @param count An array used to record the number of dominance test and accessing nodes during the computation process, count[0]: the number of dominance test,count[1]: the number of accessing nodes
+     * @param stats The statistics of the query
      * @return true if p is dominated by any point in the specified range, otherwise false.
      */
-    public boolean SDominate(int pre, int last, List<long[]> skyline, long[] p, long[] count) {
+    public boolean SDominate(int pre, int last, List<long[]> skyline, long[] p, QueryStats stats) {
         for (int i = pre; i < last; i++) {
-            if (Utils.isDominatedBy(skyline.get(i), p, count))
+            if (Utils.isDominatedBy(skyline.get(i), p, stats))
                 return true;
         }
         return false;
@@ -70,13 +188,15 @@ public class IZBTree {
      * @param p The point to check.
      * @param curNum The current number of points processed.
      * @param skyline The list of skyline points.
-     * @param count An array used to record the number of dominance test and accessing nodes during the computation process, count[0]: the number of dominance test,count[1]: the number of accessing nodes
+     * @param stats The statistics of the query
      * @return true if p is dominated by any point in the subtree, otherwise false.
      */
-    public boolean isDominate(ZBNode node, long[] p, int curNum, List<long[]> skyline, long[] count) {
-        if (curNum < 1000) {
-            return !SDominate(0, skyline.size(), skyline, p, count);
+    public boolean isDominate(ZBNode node, long[] p, int curNum, List<long[]> skyline, QueryStats stats) {
+        // During the warm-up, or while the NDG lookups do not save dominance tests, scan the skyline
+        if (threshold.scan(curNum, skyline.size())) {
+            return !SDominate(0, skyline.size(), skyline, p, stats);
         }
+        int Q = threshold.threshold(curNum);
 
         // Identification NDG
 
@@ -85,6 +205,7 @@ public class IZBTree {
         HashMap<RZRegion, ZBNode> record = new HashMap<>();
 
         boolean Threshold = false;
+        long ndgStart = stats.start();
         while (cur != null) {
             ZBDirNode parent = (ZBDirNode) cur.getParent();
             if (parent != null) {
@@ -96,12 +217,13 @@ public class IZBTree {
                         ZBNode block = parent.getChildren(cur.pos);
                         RZRegion bmbr = parent.getDatas(cur.pos);
 
-                        count[1]++;
+                        stats.nodeVisit();
+                        stats.graphNode();
                         int pre = block.skyline[0];
                         int last = block.skyline[1];
 
                         if (last - pre > 0) {
-                            if (Utils.isDominatedBy(block.minpt, p, count)) {
+                            if (Utils.isDominatedBy(block.minpt, p, stats)) {
                                 stack.add(bmbr);
                                 record.put(bmbr, block);
                             }
@@ -112,11 +234,12 @@ public class IZBTree {
                         ZBNode block = parent.getChildren(i);
                         RZRegion bmbr = parent.getDatas(i);
 
-                        count[1]++;
+                        stats.nodeVisit();
+                        stats.graphNode();
                         int pre = block.skyline[0];
                         int last = block.skyline[1];
                         if (last - pre > 0) {
-                            if (Utils.isDominatedBy(block.minpt, p, count)) {
+                            if (Utils.isDominatedBy(block.minpt, p, stats)) {
                                 stack.add(bmbr);
                                 record.put(bmbr, block);
                             }
@@ -125,19 +248,21 @@ public class IZBTree {
                 }
             }
             cur = parent;
-            count[1]++;
+            stats.nodeVisit();
         }
+        stats.stop(QueryStats.Phase.NDG, ndgStart);
 
         while (!stack.isEmpty()) {
             RZRegion pop = stack.pop();
             ZBNode poll = record.remove(pop);
-            count[1]++;
+            stats.nodeVisit();
+            stats.graphNode();
 
             if (poll instanceof ZBDirNode zds) {
                 int[] its = zds.skyline;
 
                 if (its[1] - its[0] <= Q) {
-                    if (SDominate(its[0], its[1], skyline, p, count)) {
+                    if (SDominate(its[0], its[1], skyline, p, stats)) {
                         return false;
                     }
                 } else {
@@ -145,11 +270,12 @@ public class IZBTree {
                         ZBNode block = zds.getChildren(i);
                         RZRegion number = zds.getDatas(i);
 
-                        count[1]++;
+                        stats.nodeVisit();
+                        stats.graphNode();
                         int pre = block.skyline[0];
                         int last = block.skyline[1];
                         if (last - pre > 0) {
-                            if (Utils.isDominatedBy(block.minpt, p, count)) {
+                            if (Utils.isDominatedBy(block.minpt, p, stats)) {
                                 stack.add(number);
                                 record.put(number, block);
                             }
@@ -158,12 +284,48 @@ public class IZBTree {
                 }
             } else {
                 ZBDataNode n = (ZBDataNode) poll;
-                if (SDominate(n.skyline[0], n.skyline[1], skyline, p, count)) {
+                if (SDominate(n.skyline[0], n.skyline[1], skyline, p, stats)) {
                     return false;
                 }
             }
         }
-        return !SDominate(curNum, skyline.size(), skyline, p, count);
+        return !SDominate(curNum, skyline.size(), skyline, p, stats);
+    }
+
+    /**
+     * Computes the statistics of the structure of the ZB-tree, without collecting its nodes.
+     *
+     * @return The statistics of the tree
+     */
+    public IndexStats stats() {
+        IndexStats stats = new IndexStats();
+        if (root.getUsedSpace() == 0) {
+            stats.node(0, true, 0, C, 0);
+        } else {
+            RZRegion region = root.getCurRzRegion();
+            stats(root, 0, IndexStats.volume(region.getMinpt(), region.getMaxpt()), stats);
+        }
+        stats.bytes = MemoryMeter.retainedSize(this);
+        return stats;
+    }
+
+    private void stats(ZBNode node, int level, double volume, IndexStats stats) {
+        int n = node.getUsedSpace();
+        if (node instanceof ZBDirNode dir) {
+            stats.node(level, false, n, F, volume);
+            long[][] min = new long[n][];
+            long[][] max = new long[n][];
+            for (int i = 0; i < n; i++) {
+                min[i] = node.getDatas(i).getMinpt();
+                max[i] = node.getDatas(i).getMaxpt();
+            }
+            stats.siblings(level + 1, min, max, n);
+            for (int i = 0; i < n; i++) {
+                stats(dir.getChildren(i), level + 1, IndexStats.volume(min[i], max[i]), stats);
+            }
+        } else {
+            stats.node(level, true, n, C, volume);
+        }
     }
 
     /**
@@ -172,8 +334,24 @@ public class IZBTree {
      * @param count An array used to record the number of dominance test and accessing nodes during the computation process, count[0]: the number of dominance test,count[1]: the number of accessing nodes
      * @return A list of points that form the skyline.
      */
-
     public List<long[]> skyline(long[] count) {
+        QueryStats.Counter stats = new QueryStats.Counter();
+        List<long[]> skyline = skyline(stats);
+        stats.addTo(count);
+        return skyline;
+    }
+
+    /**
+     * Computes the skyline .
+     *
+     * @param stats The statistics of the query
+     * @return A list of points that form the skyline.
+     */
+
+    public List<long[]> skyline(QueryStats stats) {
+        long queryStart = stats.start();
+        threshold = new AdaptiveThreshold(Q, adaptiveQuery);
+        stats = threshold.wrap(stats);
         List<long[]> skyline = new ArrayList<>();
         Stack<RZRegion> deque = new Stack<>();
         HashMap<RZRegion, ZBNode> record = new HashMap<>();
@@ -185,18 +363,18 @@ public class IZBTree {
             int[] its = node.skyline;
             for (int i = 0; i < node.getUsedSpace(); i++) {
                 RZRegion p = node.getDatas(i);
-                if (isDominate(node, p.getMinpt(), curNum, skyline, count)) {
+                if (isDominate(node, p.getMinpt(), curNum, skyline, stats)) {
                     skyline.add(p.getMinpt());
                     its[1]++;
                 }
             }
-            return skyline;
+            return stats.finish(skyline, queryStart);
         }
 
         ZBDirNode r = (ZBDirNode) root;
 
         for (int i = r.getUsedSpace() - 1; i >= 0; i--) {
-            count[1]++;
+            stats.nodeVisit();
             deque.add(r.getDatas(i));
             record.put(r.getDatas(i), r.getChildren(i));
         }
@@ -206,19 +384,19 @@ public class IZBTree {
             ZBNode node = record.remove(pop);
             int[] its = node.skyline;
             its[0] = its[1] = skyline.size();
-            count[1]++;
+            stats.nodeVisit();
 
-            if (isDominate(node, node.minpt, curNum, skyline, count)) {
+            if (isDominate(node, node.minpt, curNum, skyline, stats)) {
                 if (node instanceof ZBDirNode r2) {
                     for (int i = node.getUsedSpace() - 1; i >= 0; i--) {
-                        count[1]++;
+                        stats.nodeVisit();
                         deque.add(node.getDatas(i));
                         record.put(r2.getDatas(i), r2.getChildren(i));
                     }
                 } else {
                     for (int i = 0; i < node.getUsedSpace(); i++) {
                         RZRegion p = node.getDatas(i);
-                        if (isDominate(node, p.getMinpt(), curNum, skyline, count)) {
+                        if (isDominate(node, p.getMinpt(), curNum, skyline, stats)) {
                             skyline.add(p.getMinpt());
                             its[1]++;
                         }
@@ -226,22 +404,27 @@ public class IZBTree {
                     int num = its[1] - curNum;
                     if (its[1] != its[0]) {
                         ZBNode parent = node.getParent();
-                        count[1]++;
+                        stats.nodeVisit();
                         if (parent != null) {
                             parent.skyline[1] = its[1];
+                            stats.pointerUpdate();
                             updatePointer.add(parent);
                         }
 
-                        if (num > Q) {
-                            updatePP(updatePointer, count);
+                        if (threshold.update(num)) {
+                            updatePP(updatePointer, stats);
                             curNum = its[1];
                         }
                     }
                 }
+            } else {
+
+                stats.prune();
+
             }
         }
-        updatePP(updatePointer, count);
-        return skyline;
+        updatePP(updatePointer, stats);
+        return stats.finish(skyline, queryStart);
     }
 
     /**
@@ -249,9 +432,10 @@ public class IZBTree {
      * This method gradually updates the properties of each node's parent node by traversing the given node set until all nodes have no parent nodes
      *
      * @param set A collection of nodes that need to be processed
-     * @param count An array used to record the number of dominance test and accessing nodes during the computation process, count[0]: the number of dominance test,count[1]: the number of accessing nodes
+     * @param stats The statistics of the query
      */
-    public void updatePP(Set<ZBNode> set, long[] count) {
+    public void updatePP(Set<ZBNode> set, QueryStats stats) {
+        long updateStart = stats.start();
         // 当节点集合不为空时，继续处理
         while (!set.isEmpty()) {
             // 创建一个新的集合，用于存储当前处理轮次中所有节点的父节点
@@ -261,11 +445,12 @@ public class IZBTree {
                 // 获取当前节点的父节点
                 ZBNode parent = p.getParent();
                 // 增加处理计数
-                count[1]++;
+                stats.nodeVisit();
                 // 如果父节点存在，则更新父节点的属性，并将其添加到新的集合中
                 if (parent != null) {
                     // 更新父节点的属性为当前节点和父节点属性的较大值
                     parent.skyline[1] = Math.max(p.skyline[1], parent.skyline[1]);
+                    stats.pointerUpdate();
                     // 将父节点添加到新的集合中，以便在下一轮次中处理
                     cur.add(parent);
                 }
@@ -273,6 +458,7 @@ public class IZBTree {
             // 更新当前节点集为新集合，准备下一轮次的处理
             set = cur;
         }
+        stats.stop(QueryStats.Phase.POINTER_UPDATE, updateStart);
     }
 
 }
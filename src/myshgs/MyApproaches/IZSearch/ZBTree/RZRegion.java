@@ -42,6 +42,24 @@ public class RZRegion {
         maxpt = Utils.fromZtoP(rzRegion[1], d);
     }
 
+    /**
+     * Constructs an RZRegion object from values computed before, such as the ones kept in a snapshot.
+     * The arrays are used as they are, and Z-order values that are not given are computed on first use.
+     *
+     * @param d Dimension of the space
+     * @param minzt Z-order value of the minimum point, or null
+     * @param maxzt Z-order value of the maximum point, or null
+     * @param minpt Minimum point of the region
+     * @param maxpt Maximum point of the region
+     */
+    public RZRegion(int d, BitSet minzt, BitSet maxzt, long[] minpt, long[] maxpt) {
+        this.d = d;
+        this.minzt = minzt;
+        this.maxzt = maxzt;
+        this.minpt = minpt;
+        this.maxpt = maxpt;
+    }
+
     /**
      * Constructs an RZRegion object using a single point, treating it as both the minimum and maximum point.
      *
@@ -108,6 +126,9 @@ public class RZRegion {
      * @return  Z-order value of the minimum point
      */
     public BitSet getMinzt() {
+        if (minzt == null) {
+            minzt = Utils.fromPtoZ(minpt);
+        }
         return minzt;
     }
 
@@ -117,6 +138,9 @@ public class RZRegion {
      * @return Z-order value of the maximum point
      */
     public BitSet getMaxzt() {
+        if (maxzt == null) {
+            maxzt = Utils.fromPtoZ(maxpt);
+        }
         return maxzt;
     }
 
@@ -143,9 +167,9 @@ public class RZRegion {
     @Override
     public String toString() {
         return "RZRegion{" +
-                "minzt=" + bitsetToBinaryString(minzt) +
+                "minzt=" + bitsetToBinaryString(getMinzt()) +
 //                ",minpt=" + Arrays.toString(minpt) +
-                ", maxzt=" + bitsetToBinaryString(maxzt) +
+                ", maxzt=" + bitsetToBinaryString(getMaxzt()) +
 //                ", maxpt=" + Arrays.toString(maxpt) +
                 '}';
     }
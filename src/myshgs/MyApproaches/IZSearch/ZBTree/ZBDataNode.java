@@ -21,7 +21,7 @@ public class ZBDataNode extends ZBNode {
     public ZBDataNode(ZBNode parent, int d, int N) {
         super(parent, d, N);
         this.N = N;
-        this.data = new long[N + 1][d];
+        this.data = new long[N + 1][]; // the rows are the records added
     }
 
     /**
@@ -59,6 +59,23 @@ public class ZBDataNode extends ZBNode {
         this.setUsedSpace(space);
     }
 
+    /**
+     * Adds a new data record together with its RZRegion computed before, such as the one kept in a snapshot.
+     * It also updates the minimum bounding box (minpt) for this node.
+     *
+     * @param data The new data record to add.
+     * @param region The RZRegion of the data record.
+     */
+    public void addData(long[] data, RZRegion region) {
+        int space = this.getUsedSpace();
+        this.data[space] = data;
+        for (int i = 0; i < data.length; i++) {
+            this.minpt[i] = Math.min(this.minpt[i], data[i]);
+        }
+        this.setDatas(space++, region);
+        this.setUsedSpace(space);
+    }
+
     /**
      * Deletes the data record at the specified index.
      * It shifts all data records after the specified index forward by one position.
@@ -0,0 +1,394 @@
+package myshgs.MyApproaches.OffHeap;
+
+import myshgs.AdaptiveThreshold;
+import myshgs.MyApproaches.IZOrderRTree.RTree.Node;
+import myshgs.MyApproaches.IZOrderRTree.RTree.RTDataNode;
+import myshgs.MyApproaches.IZOrderRTree.RTree.RTDirNode;
+import myshgs.MyApproaches.IZOrderRTree.RTree.RTree;
+import myshgs.MyApproaches.IZSearch.ZBTree.RZLoad;
+import myshgs.MyApproaches.IZSearch.ZBTree.ZBDataNode;
+import myshgs.MyApproaches.IZSearch.ZBTree.ZBDirNode;
+import myshgs.MyApproaches.IZSearch.ZBTree.ZBNode;
+import myshgs.QueryStats;
+import myshgs.Storage.OffHeapTree;
+import myshgs.Storage.PagedRTree;
+import myshgs.Utils;
+
+import java.util.*;
+
+/**
+ * The U-INDG skyline engine over an off-heap ZB-tree or Z-order R-tree.
+ * The index is bulk loaded on the heap as usual and then copied into an OffHeapTree, after which the heap tree is
+ * dropped. The engine walks the node records in the arena directly; the heap only holds the query-local state,
+ * i.e. the skyline pointers of the nodes indexed by node id, the traversal stacks and the skyline points.
+ */
+public class OffHeapUINDG {
+    private final int C;
+    private final int F;
+    private final int Q;
+    private final int d;
+    private OffHeapTree tree;
+    private int[] from; // The first skyline point of each node
+    private int[] to; // The end of the skyline points of each node
+    private long[] stack = new long[64]; // The nodes of the NDG still to be visited
+    private long[] buf; // A scratch point read from the arena
+    private long[] pending = new long[64]; // The parents whose skyline pointers are still to be propagated
+    private int pendingSize;
+    private long[] frontier = new long[64]; // The nodes of one level of the propagation
+
+    /**
+     * Constructs an OffHeapUINDG instance with the specified parameters.
+     *
+     * @param C the capacity of each node
+     * @param F the fanout of each directory node
+     * @param Q the threshold for querying
+     * @param dim the dimensionality of the data
+     */
+    public OffHeapUINDG(int C, int F, int Q, int dim) {
+        this.C = C;
+        this.F = F;
+        this.Q = Q;
+        this.d = dim;
+        this.buf = new long[dim];
+    }
+
+    /**
+     * Bulk loads a ZB-tree as IZBTree does and moves it off the heap.
+     *
+     * @param points the array of points to load
+     */
+    public void initZBTree(long[][] points) {
+        RZLoad load = new RZLoad(d, C, F);
+        ZBNode root = load.Loading(points);
+        tree = OffHeapTree.build(d, root, new PagedRTree.NodeSource<ZBNode>() {
+            @Override
+            public boolean isLeaf(ZBNode node) {
+                return node instanceof ZBDataNode;
+            }
+
+            @Override
+            public int level(ZBNode node) {
+                return node instanceof ZBDataNode ? 0 : 1;
+            }
+
+            @Override
+            public int size(ZBNode node) {
+                return node.getUsedSpace();
+            }
+
+            @Override
+            public ZBNode child(ZBNode node, int i) {
+                return ((ZBDirNode) node).getChildren(i);
+            }
+
+            @Override
+            public long[] min(ZBNode node, int i) {
+                return node instanceof ZBDirNode dir ? dir.getChildren(i).minpt : node.getDatas(i).getMinpt();
+            }
+
+            @Override
+            public long[] max(ZBNode node, int i) {
+                return node.getDatas(i).getMaxpt();
+            }
+        });
+    }
+
+    /**
+     * Bulk loads a Z-order R-tree as ZIBBS does and moves it off the heap.
+     *
+     * @param points the array of points to load
+     */
+    public void initRTree(long[][] points) {
+        RTree rtree = new RTree(C, F, d);
+        rtree.ZOrderLoad(points);
+        tree = OffHeapTree.build(d, rtree.root, new PagedRTree.NodeSource<Node>() {
+            @Override
+            public boolean isLeaf(Node node) {
+                return node instanceof RTDataNode;
+            }
+
+            @Override
+            public int level(Node node) {
+                return node.level;
+            }
+
+            @Override
+            public int size(Node node) {
+                return node.getUsedSpace();
+            }
+
+            @Override
+            public Node child(Node node, int i) {
+                return ((RTDirNode) node).getChild(i);
+            }
+
+            @Override
+            public long[] min(Node node, int i) {
+                return node.datas[i].getMin();
+            }
+
+            @Override
+            public long[] max(Node node, int i) {
+                return node.datas[i].getMax();
+            }
+        });
+    }
+
+    /**
+     * Checks if a point is dominated by any point in a specified node.
+     *
+     * @param pre The pointer of starting.
+     * @param last The pointer of ending.
+     * @param skyline The list of skyline points.
+     * @param p The point to check.
+     * @param stats The statistics of the query
+     * @return true if p is dominated by any point in the specified range, otherwise false.
+     */
+    public boolean SDominate(int pre, int last, List<long[]> skyline, long[] p, QueryStats stats) {
+        for (int i = pre; i < last; i++) {
+            if (Utils.isDominatedBy(skyline.get(i), p, stats))
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * Determines if an object is dominated.
+     *
+     * @param node the offset of the node of the object.
+     * @param p the lower corner of the object
+     * @param curNum the current number of skyline points processed
+     * @param skyline the list of skyline points
+     * @param stats The statistics of the query
+     * @return true if the object is not dominated; otherwise false
+     */
+    public boolean isDominate(long node, long[] p, int curNum, List<long[]> skyline, QueryStats stats) {
+        if (curNum < AdaptiveThreshold.WARMUP) {
+            return !SDominate(0, skyline.size(), skyline, p, stats);
+        }
+
+        //Looking for NDG of objects
+
+        long cur = node;
+        int top = 0;
+
+        boolean Threshold = false;
+        long ndgStart = stats.start();
+        while (cur != -1) {
+            long parent = tree.parent(cur);
+            if (parent != -1) {
+                int T = to[tree.id(parent)] - from[tree.id(parent)];
+                if (T > Q || Threshold) {
+                    int pos = tree.pos(cur);
+                    if (!Threshold) {
+                        Threshold = true;
+                        stats.nodeVisit();
+                        stats.graphNode();
+                        if (to[tree.id(cur)] - from[tree.id(cur)] > 0 && tree.dominates(parent, pos, p, stats)) {
+                            top = push(top, cur);
+                        }
+                    }
+
+                    for (int i = pos - 1; i >= 0; i--) {
+                        long block = tree.child(parent, i);
+                        stats.nodeVisit();
+                        stats.graphNode();
+                        if (to[tree.id(block)] - from[tree.id(block)] > 0 && tree.dominates(parent, i, p, stats)) {
+                            top = push(top, block);
+                        }
+                    }
+                }
+            }
+            cur = parent;
+            stats.nodeVisit();
+        }
+        stats.stop(QueryStats.Phase.NDG, ndgStart);
+
+        while (top > 0) {
+            long poll = stack[--top];
+            int id = tree.id(poll);
+            stats.nodeVisit();
+            stats.graphNode();
+
+            if (!tree.isLeaf(poll)) {
+                if (to[id] - from[id] <= Q) {
+                    if (SDominate(from[id], to[id], skyline, p, stats)) {
+                        return false;
+                    }
+                } else {
+                    for (int i = tree.size(poll) - 1; i >= 0; i--) {
+                        long block = tree.child(poll, i);
+                        stats.nodeVisit();
+                        stats.graphNode();
+                        if (to[tree.id(block)] - from[tree.id(block)] > 0 && tree.dominates(poll, i, p, stats)) {
+                            top = push(top, block);
+                        }
+                    }
+                }
+            } else if (SDominate(from[id], to[id], skyline, p, stats)) {
+                return false;
+            }
+        }
+        return !SDominate(curNum, skyline.size(), skyline, p, stats);
+    }
+
+    private int push(int top, long node) {
+        if (top == stack.length) {
+            stack = Arrays.copyOf(stack, top * 2);
+        }
+        stack[top] = node;
+        return top + 1;
+    }
+
+    /**
+     * Computes the skyline of the dataset.
+     *
+     * @param count An array used to record the number of dominance test and accessing nodes during the computation process, count[0]: the number of dominance test,count[1]: the number of accessing nodes
+     * @return the list of skyline points
+     */
+    public List<long[]> skyline(long[] count) {
+        QueryStats.Counter stats = new QueryStats.Counter();
+        List<long[]> skyline = skyline(stats);
+        stats.addTo(count);
+        return skyline;
+    }
+
+    /**
+     * Computes the skyline of the dataset.
+     *
+     * @param stats The statistics of the query
+     * @return the list of skyline points
+     */
+    public List<long[]> skyline(QueryStats stats) {
+        long queryStart = stats.start();
+        List<long[]> skyline = new ArrayList<>();
+        from = new int[tree.getNodeCount()];
+        to = new int[tree.getNodeCount()];
+        // The nodes still to be traversed, each with its parent and its position for reading its lower corner
+        long[] deque = new long[64];
+        int size = 0;
+
+        pendingSize = 0;
+        int curNum = 0;
+
+        long r = tree.getRoot();
+        if (tree.isLeaf(r)) {
+            for (int i = 0; i < tree.size(r); i++) {
+                long[] p = tree.get(r, i, new long[d]);
+                if (isDominate(r, p, curNum, skyline, stats)) {
+                    skyline.add(p);
+                    to[tree.id(r)]++;
+                }
+            }
+            return stats.finish(skyline, queryStart);
+        }
+
+        for (int i = tree.size(r) - 1; i >= 0; i--) {
+            if (size == deque.length) {
+                deque = Arrays.copyOf(deque, size * 2);
+            }
+            deque[size++] = tree.child(r, i);
+        }
+
+        while (size > 0) {
+            long node = deque[--size];
+            int id = tree.id(node);
+            long[] min = tree.get(tree.parent(node), tree.pos(node), buf);
+            from[id] = to[id] = skyline.size();
+            stats.nodeVisit();
+
+            if (isDominate(node, min, curNum, skyline, stats)) { // Rectangle is not dominated by current skyline, continue
+                if (!tree.isLeaf(node)) {
+                    for (int i = tree.size(node) - 1; i >= 0; i--) {
+                        stats.nodeVisit();
+                        if (size == deque.length) {
+                            deque = Arrays.copyOf(deque, size * 2);
+                        }
+                        deque[size++] = tree.child(node, i);
+                    }
+                } else {
+                    for (int i = 0; i < tree.size(node); i++) {
+                        long[] p = tree.get(node, i, new long[d]);
+                        if (isDominate(node, p, curNum, skyline, stats)) {
+                            skyline.add(p);
+                            to[id]++;
+                        }
+                    }
+                    int num = to[id] - curNum;
+                    if (to[id] != from[id]) {
+                        long parent = tree.parent(node);
+                        stats.nodeVisit();
+                        if (parent != -1) {
+                            to[tree.id(parent)] = to[id];
+                            stats.pointerUpdate();
+                            if (pendingSize == pending.length) {
+                                pending = Arrays.copyOf(pending, pendingSize * 2);
+                            }
+                            pending[pendingSize++] = parent;
+                        }
+
+                        if (num > Q) {
+                            updatePP(stats);
+                            curNum = to[id];
+                        }
+                    }
+                }
+            } else {
+                stats.prune();
+            }
+        }
+        updatePP(stats);
+        return stats.finish(skyline, queryStart);
+    }
+
+    /**
+     * Update skyline pointers of the ancestors of the pending nodes, one level at a time.
+     * The pending nodes and the frontier of every level are kept as sorted arrays of node offsets without duplicates.
+     *
+     * @param stats The statistics of the query
+     */
+    public void updatePP(QueryStats stats) {
+        long updateStart = stats.start();
+        pendingSize = unique(pending, pendingSize);
+        if (frontier.length < pendingSize) {
+            frontier = new long[pending.length];
+        }
+        System.arraycopy(pending, 0, frontier, 0, pendingSize);
+        int n = pendingSize;
+        while (n > 0) {
+            int m = 0;
+            for (int k = 0; k < n; k++) {
+                long p = frontier[k];
+                long parent = tree.parent(p);
+                stats.nodeVisit();
+                if (parent != -1) {
+                    to[tree.id(parent)] = Math.max(to[tree.id(p)], to[tree.id(parent)]);
+                    stats.pointerUpdate();
+                    frontier[m++] = parent;
+                }
+            }
+            n = unique(frontier, m);
+        }
+        stats.stop(QueryStats.Phase.POINTER_UPDATE, updateStart);
+    }
+
+    /**
+     * Sorts the first n offsets and removes the duplicates.
+     *
+     * @return The number of distinct offsets
+     */
+    private static int unique(long[] a, int n) {
+        Arrays.sort(a, 0, n);
+        int m = 0;
+        for (int i = 0; i < n; i++) {
+            if (m == 0 || a[m - 1] != a[i]) {
+                a[m++] = a[i];
+            }
+        }
+        return m;
+    }
+
+    public OffHeapTree getTree() {
+        return tree;
+    }
+}
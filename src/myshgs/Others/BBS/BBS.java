@@ -1,6 +1,9 @@
 package myshgs.Others.BBS;
 
+import myshgs.IndexStats;
+import myshgs.Monitoring.IndexBuildEvent;
 import myshgs.Others.BBS.RTree.*;
+import myshgs.QueryStats;
 import myshgs.Utils;
 
 import java.util.*;
@@ -31,9 +34,22 @@ public class BBS {
      * @param points A dataset of points used to initialize the R-tree
      */
     public void init(long[][] points) {
+        IndexBuildEvent event = IndexBuildEvent.start("BBS", points.length, d);
         RTree tree = new RTree(C, F, d);
         tree.STRLoad(points);
         root = tree.root;
+        event.finish();
+    }
+
+    /**
+     * Computes the statistics of the structure of the R-tree, without collecting its nodes.
+     *
+     * @return The statistics of the tree
+     */
+    public IndexStats stats() {
+        RTree tree = new RTree(C, F, d);
+        tree.setRoot(root);
+        return tree.stats();
     }
 
     /**
@@ -43,6 +59,20 @@ public class BBS {
      * @return Returns the list of skyline points
      */
     public List<long[]> skyline(long[] count) {
+        QueryStats.Counter stats = new QueryStats.Counter();
+        List<long[]> skyline = skyline(stats);
+        stats.addTo(count);
+        return skyline;
+    }
+
+    /**
+     * Computes the skyline of the R-Tree with BBS
+     *
+     * @param stats The statistics of the query
+     * @return Returns the list of skyline points
+     */
+    public List<long[]> skyline(QueryStats stats) {
+        long queryStart = stats.start();
         List<long[]> res = new ArrayList<>();
         PriorityQueue<MBR> deque = new PriorityQueue<>();
         HashMap<MBR, RTNode> record = new HashMap<>();
@@ -52,43 +82,47 @@ public class BBS {
             deque.addAll(Arrays.asList(root.datas).subList(0, root.getUsedSpace()));
             while (!deque.isEmpty()) {
                 MBR poll = deque.poll();
-                if (isDominate(res, poll, count)) {
+                if (isDominate(res, poll, stats)) {
                     res.add(poll.getMax());
                 }
             }
-            return res;
+            return stats.finish(res, queryStart);
         }
 
         RTDirNode r = (RTDirNode) root;
         for (int i = 0; i < r.getUsedSpace(); i++) {
-            count[1]++;
+            stats.nodeVisit();
             deque.add(r.datas[i]);
             record.put(r.datas[i], r.getChild(i));
         }
 
         while (!deque.isEmpty()) {
             MBR rec = deque.poll();
-            count[1]++;
-            if (isDominate(res, rec, count)) {
+            stats.nodeVisit();
+            if (isDominate(res, rec, stats)) {
                 if (record.get(rec) != null) {
                     RTNode r1 = record.get(rec);
                     for (int i = 0; i < r1.getUsedSpace(); i++) {
-                        count[1]++;
-                        if (isDominate(res, r1.datas[i], count)) {
+                        stats.nodeVisit();
+                        if (isDominate(res, r1.datas[i], stats)) {
                             deque.add(r1.datas[i]);
                             if (r1 instanceof RTDirNode r2) {
                                 record.put(r2.datas[i], r2.getChild(i));
                             } else {
                                 record.put(r1.datas[i], null);
                             }
+                        } else if (r1 instanceof RTDirNode) {
+                            stats.prune();
                         }
                     }
                 } else {
                     res.add(rec.getMax());
                 }
+            } else if (record.get(rec) != null) {
+                stats.prune();
             }
         }
-        return res;
+        return stats.finish(res, queryStart);
     }
 
     /**
@@ -96,12 +130,12 @@ public class BBS {
      *
      * @param list The list of skyline points
      * @param rec The MBR (Minimum Bounding Rectangle) of the node to check
-     * @param count An array used to record the number of dominance test and accessing nodes during the computation process, count[0]: the number of dominance test,count[1]: the number of accessing nodes
+     * @param stats The statistics of the query
      * @return Returns true if the rectangle is not dominated; otherwise returns false
      */
-    public boolean isDominate(List<long[]> list, MBR rec, long[] count) {
+    public boolean isDominate(List<long[]> list, MBR rec, QueryStats stats) {
         for (long[] rectangle : list) {
-            if (Utils.isDominatedBy(rectangle, rec.getMin(), count))
+            if (Utils.isDominatedBy(rectangle, rec.getMin(), stats))
                 return false;
         }
         return true;
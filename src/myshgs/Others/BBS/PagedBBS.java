@@ -0,0 +1,206 @@
+package myshgs.Others.BBS;
+
+import myshgs.Monitoring.IndexBuildEvent;
+import myshgs.QueryStats;
+import myshgs.STRTiler;
+import myshgs.Storage.BufferPool;
+import myshgs.Storage.PagedNode;
+import myshgs.Storage.PagedRTree;
+import myshgs.Utils;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * BBS over a disk-resident R-tree. The nodes are read from 4 KB pages through an LRU buffer pool,
+ * so the buffer pool reports the real page reads of the query.
+ */
+public class PagedBBS {
+    private final int C;
+    private final int F;
+    private final int d;
+    private final int poolPages;
+    private PagedRTree tree;
+
+    /**
+     * An entry of the priority queue, either a child node or a point
+     */
+    private static class Entry implements Comparable<Entry> {
+        final long[] min;
+        final long dist; // The L1 distance of the lower corner to the origin
+        final int child; // The id of the child node, -1 for a point
+
+        Entry(long[] min, int child) {
+            this.min = min;
+            this.child = child;
+            long s = 0;
+            for (long v : min) {
+                s += v;
+            }
+            this.dist = s;
+        }
+
+        @Override
+        public int compareTo(Entry o) {
+            if (dist != o.dist) {
+                return Long.compare(dist, o.dist);
+            }
+            for (int i = 0; i < min.length; i++) {
+                if (min[i] != o.min[i]) {
+                    return Long.compare(min[i], o.min[i]);
+                }
+            }
+            return 0;
+        }
+    }
+
+    /**
+     * Constructor for the PagedBBS class
+     *
+     * @param C The capacity of the R-tree node
+     * @param F The fanout of the R-tree node
+     * @param dim The dimensionality of the data
+     * @param poolPages The number of pages the buffer pool keeps in memory
+     */
+    public PagedBBS(int C, int F, int dim, int poolPages) {
+        this.C = C;
+        this.F = F;
+        this.d = dim;
+        this.poolPages = poolPages;
+    }
+
+    /**
+     * Bulk loads an R-tree with STR straight into a page file and opens it
+     *
+     * @param points A dataset of points used to initialize the R-tree
+     * @param path The path of the page file
+     * @throws IOException If the page file cannot be written
+     */
+    public void init(long[][] points, String path) throws IOException {
+        long sortStart = System.nanoTime();
+        int[] perm = STRTiler.tile(points, C);
+        IndexBuildEvent.sorted(sortStart);
+        PagedRTree.load(path, d, points.length, i -> points[perm[i]], C, F, true);
+        open(path);
+    }
+
+    /**
+     * Opens an R-tree that has already been written into a page file
+     *
+     * @param path The path of the page file
+     * @throws IOException If the page file cannot be read
+     */
+    public void open(String path) throws IOException {
+        close();
+        tree = PagedRTree.open(path, poolPages);
+    }
+
+    /**
+     * Computes the skyline of the paged R-Tree with BBS
+     *
+     * @param count An array used to record the number of dominance test and accessing nodes during the computation process, count[0]: the number of dominance test,count[1]: the number of accessing nodes
+     * @return Returns the list of skyline points
+     */
+    public List<long[]> skyline(long[] count) {
+        QueryStats.Counter stats = new QueryStats.Counter();
+        List<long[]> skyline = skyline(stats);
+        stats.addTo(count);
+        return skyline;
+    }
+
+    /**
+     * Computes the skyline of the paged R-Tree with BBS
+     *
+     * @param stats The statistics of the query
+     * @return Returns the list of skyline points
+     */
+    public List<long[]> skyline(QueryStats stats) {
+        long queryStart = stats.start();
+        List<long[]> res = new ArrayList<>();
+        PriorityQueue<Entry> deque = new PriorityQueue<>();
+
+        // If the root is a data node, its points are filtered without counting node accesses, as BBS does
+        PagedNode root = tree.readNode(tree.getRoot());
+        if (root.isLeaf()) {
+            for (int i = 0; i < root.usedSpace; i++) {
+                deque.add(new Entry(root.min[i], -1));
+            }
+            while (!deque.isEmpty()) {
+                Entry e = deque.poll();
+                if (isDominate(res, e.min, stats)) {
+                    res.add(e.min);
+                }
+            }
+            return stats.finish(res, queryStart);
+        }
+
+        for (int i = 0; i < root.usedSpace; i++) {
+            stats.nodeVisit();
+            deque.add(new Entry(root.min[i], root.children[i]));
+        }
+
+        while (!deque.isEmpty()) {
+            Entry e = deque.poll();
+            stats.nodeVisit();
+            if (isDominate(res, e.min, stats)) {
+                if (e.child >= 0) {
+                    PagedNode node = tree.readNode(e.child);
+                    for (int i = 0; i < node.usedSpace; i++) {
+                        stats.nodeVisit();
+                        if (isDominate(res, node.min[i], stats)) {
+                            deque.add(new Entry(node.min[i], node.isLeaf() ? -1 : node.children[i]));
+                        } else if (!node.isLeaf()) {
+                            stats.prune();
+                        }
+                    }
+                } else {
+                    res.add(e.min);
+                }
+            } else if (e.child >= 0) {
+                stats.prune();
+            }
+        }
+        return stats.finish(res, queryStart);
+    }
+
+    /**
+     * Checks if the lower corner of an entry is dominated by the given skyline points
+     *
+     * @param list The list of skyline points
+     * @param min The lower corner of the entry
+     * @param stats The statistics of the query
+     * @return Returns true if the entry is not dominated; otherwise returns false
+     */
+    public boolean isDominate(List<long[]> list, long[] min, QueryStats stats) {
+        for (long[] p : list) {
+            if (Utils.isDominatedBy(p, min, stats))
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * @return The buffer pool of the page file, holding the page reads and the hit ratio
+     */
+    public BufferPool getBufferPool() {
+        return tree.getBufferPool();
+    }
+
+    public PagedRTree getTree() {
+        return tree;
+    }
+
+    /**
+     * Closes the page file
+     *
+     * @throws IOException If the file cannot be closed
+     */
+    public void close() throws IOException {
+        if (tree != null) {
+            tree.close();
+            tree = null;
+        }
+    }
+}
@@ -1,5 +1,7 @@
 package myshgs.Others.BBS.RTree;
 
+import myshgs.IndexStats;
+import myshgs.Monitoring.MemoryMeter;
 import myshgs.Utils;
 
 import java.util.ArrayList;
@@ -143,4 +145,40 @@ public class RTree {
             }
         }
     }
+
+    /**
+     * Computes the statistics of the structure of the tree, without collecting its nodes.
+     *
+     * @return The statistics of the tree
+     */
+    public IndexStats stats() {
+        IndexStats stats = new IndexStats();
+        if (root.usedSpace == 0) {
+            stats.node(0, true, 0, C, 0);
+        } else {
+            MBR rect = root.getNodeRectangle();
+            stats(root, 0, IndexStats.volume(rect.getMin(), rect.getMax()), stats);
+        }
+        stats.bytes = MemoryMeter.retainedSize(this);
+        return stats;
+    }
+
+    private void stats(RTNode node, int level, double volume, IndexStats stats) {
+        int n = node.usedSpace;
+        if (node instanceof RTDirNode dir) {
+            stats.node(level, false, n, F, volume);
+            long[][] min = new long[n][];
+            long[][] max = new long[n][];
+            for (int i = 0; i < n; i++) {
+                min[i] = node.datas[i].getMin();
+                max[i] = node.datas[i].getMax();
+            }
+            stats.siblings(level + 1, min, max, n);
+            for (int i = 0; i < n; i++) {
+                stats(dir.getChild(i), level + 1, IndexStats.volume(min[i], max[i]), stats);
+            }
+        } else {
+            stats.node(level, true, n, C, volume);
+        }
+    }
 }
@@ -1,10 +1,12 @@
 package myshgs.Others.BBS.RTree;
 
-import java.util.Arrays;
+import myshgs.Monitoring.IndexBuildEvent;
+import myshgs.STRTiler;
 
 /**
  * STRLoad class provides functionality to load data into an R-tree.
  * It uses the STR (Sort-Tile-Recursive) algorithm to construct the R-tree.
+ * The order of every level is computed by STRTiler over primitive coordinates, so the input points are never reordered.
  */
 public class STRLoad {
     /**
@@ -20,17 +22,16 @@ public class STRLoad {
         int depth = 0;
         int N = points.length;
         int d = points[0].length;
-        CenterComp cmp = new CenterComp();
 
-        // Create MBRs for each point
+        // Tile the points and create the leaf entries in STR order
+        long sortStart = System.nanoTime();
+        int[] perm = STRTiler.tile(points, C);
+        IndexBuildEvent.sorted(sortStart);
         MBR[] list = new MBR[N];
         for (int i = 0; i < N; i++) {
-            list[i] = new MBR(points[i]);
+            list[i] = new MBR(points[perm[i]]);
         }
 
-        // Sort the MBRs
-        sortChunks(list, d, C, cmp);
-
         // Create initial data nodes
         RTNode[] nodes = new RTNode[(int) Math.ceil(N / (double) C)];
         int posNode = 0;
@@ -68,8 +69,8 @@ public class STRLoad {
             depth++;
             parentNodes = new RTDirNode[(int) Math.ceil(nodes.length / (double) F)];
 
-            // Sort the nodes
-            sortChunks(nodes, d, F, cmp);
+            // Sort the nodes by their centres
+            nodes = sortNodes(nodes, d, F);
             RTDirNode p = null;
             int posParent = 0;
             end = (nodes.length % F) == 0 || (nodes.length / F) == 0 ? nodes.length : ((nodes.length / F) * F - F);
@@ -99,31 +100,30 @@ public class STRLoad {
     }
 
     /**
-     * Sorts the chunks of entries based on the STR algorithm.
+     * Orders the nodes of a level by STR over their centres.
+     * The rectangle of every node is computed once instead of once per comparison.
      *
-     * @param entries Array of entries to be sorted
+     * @param nodes Array of nodes to be sorted
      * @param dims Number of dimensions
      * @param F Maximum number of entries in a directory node
-     * @param comp Comparator used for sorting
+     * @return The nodes in STR order
      */
-    private void sortChunks(Object[] entries, int dims, int F, CenterComp comp) {
-        comp.setDim(0);
-        Arrays.sort(entries, comp);
-        int nToSplit = entries.length;
-        for (int d = 1; d < dims; d++) {
-            int nodesPerAxis = (int) Math.pow((double) nToSplit / F, 1.0 / (double) (dims - d + 1));
-            comp.setDim(d);
-            int chunkSize = (int) Math.ceil(Math.pow(nodesPerAxis, dims - d) * F);
-            if (chunkSize < F) {
-                break;
-            }
-            int pos = 0;
-            while (pos < entries.length) {
-                int end = Math.min(pos + chunkSize, entries.length);
-                Arrays.sort(entries, pos, end, comp);
-                pos += chunkSize;
+    private RTNode[] sortNodes(RTNode[] nodes, int dims, int F) {
+        long[][] centres = new long[nodes.length][dims];
+        for (int i = 0; i < nodes.length; i++) {
+            MBR rect = nodes[i].getNodeRectangle();
+            long[] min = rect.getMin(), max = rect.getMax();
+            for (int j = 0; j < dims; j++) {
+                centres[i][j] = min[j] + max[j]; // *0.5
             }
-            nToSplit /= nodesPerAxis;
         }
+        long sortStart = System.nanoTime();
+        int[] perm = STRTiler.tile(centres, F);
+        IndexBuildEvent.sorted(sortStart);
+        RTNode[] sorted = new RTNode[nodes.length];
+        for (int i = 0; i < nodes.length; i++) {
+            sorted[i] = nodes[perm[i]];
+        }
+        return sorted;
     }
 }
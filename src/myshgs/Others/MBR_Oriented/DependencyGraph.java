@@ -0,0 +1,268 @@
+package myshgs.Others.MBR_Oriented;
+
+import myshgs.QueryStats;
+import myshgs.Utils;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The dependency graph of a set of MBRs, built by a sort-and-sweep over the sums of the corners.
+ * <p>
+ * An MBR B is dominated if another MBR A dominates it (see {@link #dominates}), and B depends on A if the lower
+ * corner of A dominates the upper corner of B. Both relations imply that the L1 sum of the lower corner of A is
+ * smaller than the sum of the corresponding corner of B, so the MBRs are sorted by the sum of their lower corners
+ * and only a prefix of that order is swept for each MBR. The prefix is split into blocks that record the
+ * component-wise minima of the lower and upper corners of their MBRs, which lets the sweep skip whole blocks
+ * that cannot contain a dominating or dependent MBR. Every MBR is processed independently, so the sweep runs in
+ * parallel with ForkJoin.
+ */
+public class DependencyGraph {
+    private static final int BLOCK = 64; // The number of MBRs summarised by one block of the sweep index
+    private static final int THRESHOLD = 16; // The number of MBRs processed by one task without splitting
+    private static final int[] EMPTY = new int[0];
+
+    private final boolean[] dominated; // Whether each MBR is dominated by another MBR
+    private final int[][] dependents; // The MBRs each MBR depends on, in ascending order of their index
+
+    private DependencyGraph(int M) {
+        this.dominated = new boolean[M];
+        this.dependents = new int[M][];
+    }
+
+    /**
+     * Builds the dependency graph of a set of MBRs.
+     *
+     * @param min The lower corners of the MBRs
+     * @param max The upper corners of the MBRs
+     * @param precedingOnly Whether an MBR can only be dominated by or depend on MBRs with a smaller index,
+     *                      which holds when the MBRs partition a Z-order
+     * @param stats The statistics of the query
+     * @return The dependency graph
+     */
+    public static DependencyGraph build(long[][] min, long[][] max, boolean precedingOnly, QueryStats stats) {
+        long start = stats.start();
+        int M = min.length;
+        DependencyGraph graph = new DependencyGraph(M);
+        if (M == 0) {
+            return graph;
+        }
+        int d = min[0].length;
+
+        long[] minSum = new long[M];
+        long[] maxSum = new long[M];
+        for (int i = 0; i < M; i++) {
+            for (int j = 0; j < d; j++) {
+                minSum[i] += min[i][j];
+                maxSum[i] += max[i][j];
+            }
+        }
+
+        // Sort the MBRs by the sum of their lower corners
+        int[] order = Utils.sortByKey(minSum, M);
+        long[] sortedSum = new long[M];
+        for (int k = 0; k < M; k++) {
+            sortedSum[k] = minSum[order[k]];
+        }
+
+        // Summarise blocks of the sorted order by the component-wise minima of their corners
+        int blocks = (M + BLOCK - 1) / BLOCK;
+        long[][] blockMin = new long[blocks][d];
+        long[][] blockMax = new long[blocks][d];
+        for (int b = 0; b < blocks; b++) {
+            Arrays.fill(blockMin[b], Long.MAX_VALUE);
+            Arrays.fill(blockMax[b], Long.MAX_VALUE);
+            for (int k = b * BLOCK; k < Math.min(M, (b + 1) * BLOCK); k++) {
+                for (int j = 0; j < d; j++) {
+                    blockMin[b][j] = Math.min(blockMin[b][j], min[order[k]][j]);
+                    blockMax[b][j] = Math.min(blockMax[b][j], max[order[k]][j]);
+                }
+            }
+        }
+
+        LongAdder dt = new LongAdder();
+        LongAdder io = new LongAdder();
+        ForkJoinPool.commonPool().invoke(new RecursiveAction() {
+            @Override
+            protected void compute() {
+                sweep(0, M);
+            }
+
+            private void sweep(int lo, int hi) {
+                if (hi - lo > THRESHOLD) {
+                    int mid = (lo + hi) >>> 1;
+                    invokeAll(new RecursiveAction() {
+                        @Override
+                        protected void compute() {
+                            sweep(lo, mid);
+                        }
+                    }, new RecursiveAction() {
+                        @Override
+                        protected void compute() {
+                            sweep(mid, hi);
+                        }
+                    });
+                    return;
+                }
+                long[] local = new long[2];
+                for (int i = lo; i < hi; i++) {
+                    sweepOne(graph, i, min, max, minSum, maxSum, order, sortedSum, blockMin, blockMax, precedingOnly, local);
+                }
+                dt.add(local[0]);
+                io.add(local[1]);
+            }
+        });
+
+        // Drop dominated MBRs from the dependency lists, they never hold a skyline point
+        for (int i = 0; i < M; i++) {
+            int[] list = graph.dependents[i];
+            int n = 0;
+            for (int a : list) {
+                if (!graph.dominated[a]) {
+                    list[n++] = a;
+                }
+            }
+            if (n < list.length) {
+                graph.dependents[i] = Arrays.copyOf(list, n);
+            }
+        }
+
+        stats.dominanceTests(dt.sum());
+        stats.nodeVisits(io.sum());
+        stats.stop(QueryStats.Phase.DEPENDENCY_GRAPH, start);
+        return graph;
+    }
+
+    private static void sweepOne(DependencyGraph graph, int i, long[][] min, long[][] max, long[] minSum, long[] maxSum,
+                                 int[] order, long[] sortedSum, long[][] blockMin, long[][] blockMax,
+                                 boolean precedingOnly, long[] count) {
+        long[] bMin = min[i];
+        long[] bMax = max[i];
+        int d = bMin.length;
+
+        // A dominating MBR has a lower corner that dominates the lower corner of i
+        int hi = lowerBound(sortedSum, minSum[i]);
+        for (int b = 0; b * BLOCK < hi; b++) {
+            int over = 0;
+            boolean skip = false;
+            for (int j = 0; j < d && !skip; j++) {
+                if (blockMin[b][j] > bMin[j]) {
+                    skip = true;
+                } else if (blockMax[b][j] > bMin[j]) {
+                    skip = ++over > 1;
+                }
+            }
+            if (skip) {
+                continue;
+            }
+            for (int k = b * BLOCK; k < Math.min(hi, (b + 1) * BLOCK); k++) {
+                int a = order[k];
+                if (precedingOnly && a > i) {
+                    continue;
+                }
+                count[1]++;
+                if (dominates(min[a], max[a], bMin, count)) {
+                    graph.dominated[i] = true;
+                    graph.dependents[i] = EMPTY;
+                    return;
+                }
+            }
+        }
+
+        // A dependent MBR has a lower corner that dominates the upper corner of i
+        int[] list = new int[8];
+        int n = 0;
+        hi = lowerBound(sortedSum, maxSum[i]);
+        for (int b = 0; b * BLOCK < hi; b++) {
+            boolean skip = false;
+            for (int j = 0; j < d && !skip; j++) {
+                skip = blockMin[b][j] > bMax[j];
+            }
+            if (skip) {
+                continue;
+            }
+            for (int k = b * BLOCK; k < Math.min(hi, (b + 1) * BLOCK); k++) {
+                int a = order[k];
+                if (a == i || (precedingOnly && a > i)) {
+                    continue;
+                }
+                count[1]++;
+                if (Utils.isDominatedBy(min[a], bMax, count)) {
+                    if (n == list.length) {
+                        list = Arrays.copyOf(list, n * 2);
+                    }
+                    list[n++] = a;
+                }
+            }
+        }
+        list = Arrays.copyOf(list, n);
+        Arrays.sort(list);
+        graph.dependents[i] = list;
+    }
+
+    /**
+     * Determines if the MBR [aMin, aMax] dominates every point of an MBR with the lower corner bMin.
+     * At most one dimension of the upper corner of a may exceed the lower corner of b, and in that dimension the
+     * lower corner of a may not exceed it.
+     *
+     * @param aMin The lower corner of a
+     * @param aMax The upper corner of a
+     * @param bMin The lower corner of b
+     * @param count The local DT and IO of the sweep, reported to the QueryStats of the query once the sweep is done
+     * @return True if a dominates b, otherwise false
+     */
+    public static boolean dominates(long[] aMin, long[] aMax, long[] bMin, long[] count) {
+        count[0]++;
+        boolean flag = false, isDominate = false, equ = true, equ1 = true;
+        for (int i = 0; i < bMin.length; i++) {
+            if (aMax[i] > bMin[i]) {
+                equ = false;
+                if (flag)
+                    return false;
+                flag = true;
+                if (aMin[i] < bMin[i]) {
+                    isDominate = true;
+                } else if (aMin[i] > bMin[i])
+                    return false;
+            } else if (aMax[i] < bMin[i]) {
+                equ = false;
+                isDominate = true;
+            }
+            if (aMin[i] != aMax[i])
+                equ1 = false;
+        }
+        if (equ && !equ1)
+            return true;
+        return isDominate;
+    }
+
+    /**
+     * @return The index of the first element of a sorted array that is not smaller than key
+     */
+    private static int lowerBound(long[] sorted, long key) {
+        int lo = 0, hi = sorted.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (sorted[mid] < key) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    public boolean isDominated(int i) {
+        return dominated[i];
+    }
+
+    public int[] getDependents(int i) {
+        return dependents[i];
+    }
+
+    public int size() {
+        return dominated.length;
+    }
+}
@@ -1,5 +1,7 @@
 package myshgs.Others.MBR_Oriented.MBRSKY;
 
+import myshgs.Utils;
+
 import java.util.Arrays;
 
 /**
@@ -10,6 +12,7 @@ public class MBR implements Comparable<MBR> {
     private final long[] min; // The minimum value of each dimension of the MBR
     private final long[] max; // The maximum value of each dimension of the MBR
     public long[][] datas; // Stores the data points covered by the MBR
+    public long[] sums; // The sum of the coordinates of each data point, aligned with datas
     public int space; // The maximum capacity of data points the MBR can hold
     public int usedSpace; // The number of data points currently stored in the MBR
     public int d; // The dimensionality of the data
@@ -31,6 +34,7 @@ public class MBR implements Comparable<MBR> {
         Arrays.fill(min, Integer.MAX_VALUE);
         Arrays.fill(max, Integer.MIN_VALUE);
         this.datas = new long[C + 1][d];
+        this.sums = new long[C + 1];
         this.usedSpace = 0;
     }
 
@@ -60,27 +64,79 @@ public class MBR implements Comparable<MBR> {
 
     /**
      * Adds a data point to the MBR and updates the MBR's boundaries.
+     * The sums of the boundaries are maintained incrementally.
      * @param rec The data point to add
+     * @param sum The sum of the coordinates of the data point
      */
-    protected void addData(long[] rec) {
+    protected void addData(long[] rec, long sum) {
+        sums[usedSpace] = sum;
         datas[usedSpace++] = rec;
 
+        if (usedSpace == 1) {
+            System.arraycopy(rec, 0, min, 0, d);
+            System.arraycopy(rec, 0, max, 0, d);
+            this.minValue = sum;
+            this.maxValue = sum;
+            return;
+        }
         for (int j = 0; j < d; j++) {
-            min[j] = Math.min(rec[j], min[j]);
-            max[j] = Math.max(rec[j], max[j]);
+            if (rec[j] < min[j]) {
+                minValue -= min[j] - rec[j];
+                min[j] = rec[j];
+            }
+            if (rec[j] > max[j]) {
+                maxValue += rec[j] - max[j];
+                max[j] = rec[j];
+            }
         }
-        this.minValue = Arrays.stream(min).sum();
-        this.maxValue = Arrays.stream(max).sum();
     }
 
     /**
-     * Deletes a data point from the MBR.
+     * Sorts the data points of the MBR by their sums, so scans for dominating points can stop at the first point
+     * whose sum is not smaller than that of the point being checked.
+     */
+    protected void sortBySum() {
+        int[] order = Utils.sortByKey(sums, usedSpace);
+        long[][] sortedDatas = datas.clone();
+        long[] sortedSums = sums.clone();
+        for (int i = 0; i < usedSpace; i++) {
+            sortedDatas[i] = datas[order[i]];
+            sortedSums[i] = sums[order[i]];
+        }
+        datas = sortedDatas;
+        sums = sortedSums;
+    }
+
+    /**
+     * Deletes a data point from the MBR by swapping it with the last one, which breaks the order by sum.
      * @param i The index of the data point to delete
      */
     protected void delete(int i) {
         long[] tmp = datas[i];
+        long sum = sums[i];
         datas[i] = datas[--usedSpace];
+        sums[i] = sums[usedSpace];
         datas[usedSpace] = tmp;
+        sums[usedSpace] = sum;
+    }
+
+    /**
+     * Keeps the data points flagged alive in one pass, keeping them in their order.
+     * @param alive Whether each of the used data points is kept
+     */
+    protected void retain(boolean[] alive) {
+        int kept = 0;
+        for (int i = 0; i < usedSpace; i++) {
+            if (alive[i]) {
+                long[] tmp = datas[kept];
+                long sum = sums[kept];
+                datas[kept] = datas[i];
+                sums[kept++] = sums[i];
+                datas[i] = tmp;
+                sums[i] = sum;
+            }
+        }
+        usedSpace = kept;
     }
 
     /**
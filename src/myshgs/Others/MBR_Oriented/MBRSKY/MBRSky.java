@@ -1,5 +1,10 @@
 package myshgs.Others.MBR_Oriented.MBRSKY;
 
+import myshgs.Monitoring.IndexBuildEvent;
+import myshgs.Others.MBR_Oriented.DependencyGraph;
+import myshgs.Others.MBR_Oriented.WaveScheduler;
+import myshgs.QueryStats;
+import myshgs.STRTiler;
 import myshgs.Utils;
 import java.util.*;
 
@@ -40,6 +45,7 @@ public class MBRSky {
      * @param points Array of points to be processed
      */
     public void init(long[][] points) {
+        IndexBuildEvent event = IndexBuildEvent.start("MBRSky", points.length, d);
         this.points = points;
 
         if (Fanont != -1) {
@@ -49,28 +55,29 @@ public class MBRSky {
         }
         // Generate MBRs from the points
         this.MBRs = getSTRMBR(points, C, this.d);
+        event.finish();
     }
 
     /**
      * Checks if a point is dominated by any MBR in the list.
+     * The list and the points of every MBR are ordered by their sums, and a point can only be dominated by a point
+     * with a smaller sum, so both scans stop at the first sum that is not smaller than the sum of p.
      *
      * @param list  List of MBRs to check against
      * @param p     Point to check
-     * @param count An array used to record the number of dominance test and accessing nodes during the computation process, count[0]: the number of dominance test,count[1]: the number of accessing nodes
+     * @param sum   The sum of the coordinates of p
+     * @param stats The statistics of the query
      * @return True if the point is dominated, false otherwise
      */
-    private boolean isDominated(ArrayList<MBR> list, long[] p, long[] count) {
+    private boolean isDominated(ArrayList<MBR> list, long[] p, long sum, QueryStats stats) {
         for (MBR mbr : list) {
-            count[1]++;
+            stats.nodeVisit();
             if (!mbr.isDominate) {
-                if (mbr.minValue >= Arrays.stream(p).sum())
+                if (mbr.minValue >= sum)
                     break;
-                for (int i = 0; i < mbr.usedSpace; i++) {
-                    int dtDev = Utils.DtDev(mbr.datas[i], p, count);
-                    if (dtDev == -1) {
+                for (int i = 0; i < mbr.usedSpace && mbr.sums[i] < sum; i++) {
+                    if (Utils.isDominatedBy(mbr.datas[i], p, stats)) {
                         return true;
-                    } else if (dtDev == 1) {
-                        mbr.delete(i--);
                     }
                 }
             }
@@ -79,68 +86,35 @@ public class MBRSky {
         return false;
     }
 
-    /**
-     * Sorts the entries into chunks based on dimensions and capacity.
-     *
-     * @param entries Array of entries to sort
-     * @param dims    Number of dimensions
-     * @param M       Capacity
-     * @param comp    Comparator for sorting
-     */
-    private void sortChunks(long[][] entries, int dims, int M, CenterComp comp) {
-        comp.setDim(0);
-        Arrays.sort(entries, comp);
-        int nToSplit = entries.length;
-        for (int d = 1; d < dims; d++) {
-            int nodesPerAxis = (int) Math.pow((double) nToSplit / M, 1.0 / (dims - d + 1));
-            comp.setDim(d);
-            int chunkSize = (int) Math.ceil(Math.pow(nodesPerAxis, dims - d) * M);
-            if (chunkSize < M) {
-                break;
-            }
-            int pos = 0;
-            while (pos < entries.length) {
-                int end = Math.min(pos + chunkSize, entries.length);
-                Arrays.sort(entries, pos, end, comp);
-                pos += chunkSize;
-            }
-            nToSplit /= nodesPerAxis;
-        }
-    }
-
     /**
      * Performs an MBR-oriented query to identify dependencies between MBRs.
+     * The graph is built by the parallel sweep of DependencyGraph over the sums of the MBR corners.
      *
      * @param M     Array of MBRs
      * @param d     Dimension of the data
-     * @param count An array used to record the number of dominance test and accessing nodes during the computation process, count[0]: the number of dominance test,count[1]: the number of accessing nodes
+     * @param stats The statistics of the query
      * @return A map of MBRs and their dependent MBRs
      */
-    private HashMap<MBR, ArrayList<MBR>> MBRQuery(MBR[] M, int d, long[] count) {
+    private HashMap<MBR, ArrayList<MBR>> MBRQuery(MBR[] M, int d, QueryStats stats) {
+        long[][] min = new long[M.length][];
+        long[][] max = new long[M.length][];
+        for (int i = 0; i < M.length; i++) {
+            min[i] = M[i].getMin();
+            max[i] = M[i].getMax();
+        }
+        DependencyGraph graph = DependencyGraph.build(min, max, false, stats);
+
         HashMap<MBR, ArrayList<MBR>> dependentQuery = new HashMap<>();
-        for (MBR mbr : M) {
-            count[1]++;
-            if (mbr.isDominate)
+        for (int i = 0; i < M.length; i++) {
+            MBR mbr = M[i];
+            if (graph.isDominated(i)) {
+                mbr.setDominate(true);
+                stats.prune();
                 continue;
+            }
             ArrayList<MBR> dependent = new ArrayList<>();
-            for (MBR value : M) {
-                count[1]++;
-                if (value.isDominate || value == mbr)
-                    continue;
-                if (mbr.isDominate && mbr.maxValue < value.minValue) {
-                    break;
-                }
-                if (utils.DTDominated(value, mbr, d, count)) {
-                    mbr.setDominate(true);
-                    break;
-                }
-                if (utils.DTDominated(mbr, value, d, count)) {
-                    value.setDominate(true);
-                    continue;
-                }
-                if (Utils.isDominatedBy(value.getMin(), mbr.getMax(), count)) {
-                    dependent.add(value);
-                }
+            for (int j : graph.getDependents(i)) {
+                dependent.add(M[j]);
             }
             dependentQuery.put(mbr, dependent);
         }
@@ -154,36 +128,105 @@ public class MBRSky {
      * @return List of points that form the Skyline
      */
     public List<long[]> skyline(long[] count) {
+        QueryStats.Counter stats = new QueryStats.Counter();
+        List<long[]> skyline = skyline(stats);
+        stats.addTo(count);
+        return skyline;
+    }
+
+    /**
+     * Computes the Skyline of the points.
+     *
+     * @param stats The statistics of the query
+     * @return List of points that form the Skyline
+     */
+    public List<long[]> skyline(QueryStats stats) {
+        long queryStart = stats.start();
         List<long[]> skyline = new ArrayList<>();
-        this.dgMap = MBRQuery(MBRs, d, count);
+        this.dgMap = MBRQuery(MBRs, d, stats);
         for (MBR mbr : this.MBRs) {
-            count[1]++;
-            for (int i = 0; i < mbr.usedSpace; i++) {
-                long[] data = mbr.datas[i];
-                for (int j = i + 1; j < mbr.usedSpace; j++) {
-                    int dtDev = Utils.DtDev(data, mbr.datas[j], count);
-                    if (dtDev == 1) {
-                        mbr.delete(i);
-                        i--;
-                        break;
-                    } else if (dtDev == -1) {
-                        mbr.delete(j--);
-                    }
-                }
-            }
+            stats.nodeVisit();
+            localSkyline(mbr, stats);
 
             if (!mbr.isDominate) {
+                // Later MBRs scan this one by sum, so the dominated points are only removed once it is filtered
+                boolean[] alive = new boolean[mbr.usedSpace];
                 for (int i = 0; i < mbr.usedSpace; i++) {
                     long[] p = mbr.datas[i];
-                    if (isDominated(dgMap.get(mbr), p, count)) {
-                        mbr.delete(i--);
-                    } else {
+                    alive[i] = !isDominated(dgMap.get(mbr), p, mbr.sums[i], stats);
+                    if (alive[i]) {
                         skyline.add(p);
                     }
                 }
+                mbr.retain(alive);
             }
         }
-        return skyline;
+        return stats.finish(skyline, queryStart);
+    }
+
+    /**
+     * Computes the Skyline of the points on all cores, see WaveScheduler.
+     * isDominated only reads the MBRs of a dependency group, so the filter itself never modifies them.
+     *
+     * @param stats The statistics of the query
+     * @return List of points that form the Skyline
+     */
+    public List<long[]> parallelSkyline(QueryStats stats) {
+        long queryStart = stats.start();
+        this.dgMap = MBRQuery(MBRs, d, stats);
+        WaveScheduler.run(MBRs.length, new WaveScheduler.MBRs() {
+            public boolean isDominated(int k) {
+                return MBRs[k].isDominate;
+            }
+
+            public int size(int k) {
+                return MBRs[k].usedSpace;
+            }
+
+            public void localSkyline(int k, QueryStats stats) {
+                MBRSky.this.localSkyline(MBRs[k], stats);
+            }
+
+            public boolean isDominated(int k, int i, QueryStats stats) {
+                MBR mbr = MBRs[k];
+                return MBRSky.this.isDominated(dgMap.get(mbr), mbr.datas[i], mbr.sums[i], stats);
+            }
+
+            public void retain(int k, boolean[] alive) {
+                MBRs[k].retain(alive);
+            }
+        }, stats);
+
+        List<long[]> skyline = new ArrayList<>();
+        for (MBR mbr : MBRs) {
+            if (!mbr.isDominate) {
+                skyline.addAll(Arrays.asList(mbr.datas).subList(0, mbr.usedSpace));
+            }
+        }
+        return stats.finish(skyline, queryStart);
+    }
+
+    /**
+     * Reduces the points of an MBR to its local skyline.
+     *
+     * @param mbr   The MBR to reduce
+     * @param stats The statistics of the query
+     */
+    private void localSkyline(MBR mbr, QueryStats stats) {
+        for (int i = 0; i < mbr.usedSpace; i++) {
+            long[] data = mbr.datas[i];
+            for (int j = i + 1; j < mbr.usedSpace; j++) {
+                int dtDev = Utils.DtDev(data, mbr.datas[j], stats);
+                if (dtDev == 1) {
+                    mbr.delete(i);
+                    i--;
+                    break;
+                } else if (dtDev == -1) {
+                    mbr.delete(j--);
+                }
+            }
+        }
+        mbr.sortBySum(); // The deletions swap points out of the order by sum
     }
 
     /**
@@ -196,10 +239,12 @@ public class MBRSky {
      */
     private MBR[] getSTRMBR(long[][] points, int C, int d) {
         int N = points.length;
-        CenterComp cmp = new CenterComp();
 
-        // Sort points into chunks
-        sortChunks(points, d, C, cmp);
+        // Tile the points without reordering the caller's array
+        long sortStart = System.nanoTime();
+        int[] perm = STRTiler.tile(points, C);
+        IndexBuildEvent.sorted(sortStart);
+        PointStore store = new PointStore(points);
 
         MBR[] mbrs = new MBR[(int) Math.ceil(N / (double) C)];
 
@@ -210,7 +255,10 @@ public class MBRSky {
                 node = new MBR(d, C);
                 mbrs[posNode++] = node;
             }
-            node.addData(points[i]);
+            node.addData(store.points[perm[i]], store.sums[perm[i]]);
+        }
+        for (MBR mbr : mbrs) {
+            mbr.sortBySum();
         }
         Arrays.sort(mbrs);
         return mbrs;
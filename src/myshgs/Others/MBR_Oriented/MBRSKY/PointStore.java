@@ -0,0 +1,43 @@
+package myshgs.Others.MBR_Oriented.MBRSKY;
+
+import java.util.stream.IntStream;
+
+/**
+ * PointStore class: Holds the data points together with the L1 sum of each point.
+ * The sums are computed once, so dominance filters can compare sums without touching the coordinates.
+ */
+public class PointStore {
+    public final long[][] points; // The data points
+    public final long[] sums; // The sum of the coordinates of each data point
+
+    /**
+     * Constructs a PointStore object, computing the sums in parallel.
+     * @param points The data points
+     */
+    public PointStore(long[][] points) {
+        this.points = points;
+        this.sums = new long[points.length];
+        IntStream.range(0, points.length).parallel().forEach(i -> sums[i] = sum(points[i]));
+    }
+
+    /**
+     * Returns the number of data points in the store.
+     * @return The number of data points
+     */
+    public int size() {
+        return points.length;
+    }
+
+    /**
+     * Calculates the sum of the coordinates of a point.
+     * @param p The point
+     * @return The sum of its coordinates
+     */
+    public static long sum(long[] p) {
+        long s = 0;
+        for (long v : p) {
+            s += v;
+        }
+        return s;
+    }
+}
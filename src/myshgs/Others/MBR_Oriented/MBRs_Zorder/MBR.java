@@ -31,6 +31,7 @@ public class MBR implements Comparable<MBR> {
         this.d = d;
         this.space = C;
         this.isDominate = false;
+        Arrays.fill(min, Long.MAX_VALUE);
         this.datas = new long[C + 1][d];
         this.usedSpace = 0;
         this.minpt = new BitSet();
@@ -1,5 +1,9 @@
 package myshgs.Others.MBR_Oriented.MBRs_Zorder;
 
+import myshgs.Monitoring.IndexBuildEvent;
+import myshgs.Others.MBR_Oriented.DependencyGraph;
+import myshgs.Others.MBR_Oriented.WaveScheduler;
+import myshgs.QueryStats;
 import myshgs.Utils;
 
 import java.util.*;
@@ -37,6 +41,7 @@ public class ZMBRSky {
      * @param points Collection of all points
      */
     public void init(long[][] points) {
+        IndexBuildEvent event = IndexBuildEvent.start("ZMBRSky", points.length, d);
         this.points = points;
         if (Fanont != -1) {
             // Calculate C based on fanout and dimensionality
@@ -46,6 +51,7 @@ public class ZMBRSky {
 
         // Group points by Z-order and construct MBRs
         this.MBRs = getZOrederMBR(points, C);
+        event.finish();
     }
 
     /**
@@ -95,7 +101,9 @@ public class ZMBRSky {
         for (long[] p : points) {
             data.add(Utils.fromPtoZ(p));
         }
+        long sortStart = System.nanoTime();
         data.sort(Utils::compare);
+        IndexBuildEvent.sorted(sortStart);
 
         Deque<BitSet> deque = new ArrayDeque<>(data);
 
@@ -117,18 +125,21 @@ public class ZMBRSky {
      *
      * @param list   List of MBRs
      * @param p      Point to check
-     * @param count An array used to record the number of dominance test and accessing nodes during the computation process, count[0]: the number of dominance test,count[1]: the number of accessing nodes
+     * @param stats The statistics of the query
      * @return True if the point is dominated, otherwise false
      */
-    private boolean isDominated(ArrayList<MBR> list, long[] p, long[] count) {
+    private boolean isDominated(ArrayList<MBR> list, long[] p, QueryStats stats) {
+        BitSet z = Utils.fromPtoZ(p);
         for (MBR mbr : list) {
-            count[1]++;
+            stats.nodeVisit();
             if (!mbr.isDominate) {
-                if (Utils.compare(mbr.minpt, Utils.fromPtoZ(p)) >= 0)
-                    break;
+                // The dependency list follows the Z-order of the MBRs, not of their lower corners, so a lower corner
+                // behind p only rules out this MBR
+                if (Utils.compare(mbr.minpt, z) >= 0)
+                    continue;
 
                 for (int i = 0; i < mbr.usedSpace; i++) {
-                    int dtDev = Utils.DtDev(mbr.datas[i], p, count);
+                    int dtDev = Utils.DtDev(mbr.datas[i], p, stats);
                     if (dtDev == -1) {
                         return true;
                     } else if (dtDev == 1) {
@@ -143,32 +154,33 @@ public class ZMBRSky {
 
     /**
      * Performs MBR queries to find dependency group for each MBR.
+     * The graph is built by the parallel sweep of DependencyGraph, restricted to the MBRs preceding each MBR in Z-order.
      *
      * @param M      Array of MBRs
      * @param d      Dimensionality
-     * @param count An array used to record the number of dominance test and accessing nodes during the computation process, count[0]: the number of dominance test,count[1]: the number of accessing nodes
+     * @param stats The statistics of the query
      * @return Map of MBRs and their dependency group.
      */
-    private HashMap<MBR, ArrayList<MBR>> MBRQuery(MBR[] M, int d, long[] count) {
+    private HashMap<MBR, ArrayList<MBR>> MBRQuery(MBR[] M, int d, QueryStats stats) {
+        long[][] min = new long[M.length][];
+        long[][] max = new long[M.length][];
+        for (int i = 0; i < M.length; i++) {
+            min[i] = M[i].getMin();
+            max[i] = M[i].getMax();
+        }
+        DependencyGraph graph = DependencyGraph.build(min, max, true, stats);
+
         HashMap<MBR, ArrayList<MBR>> dependentQuery = new HashMap<>();
         for (int i = 0; i < M.length; i++) {
             MBR mbr = M[i];
-            count[1]++;
-            if (mbr.isDominate)
+            if (graph.isDominated(i)) {
+                mbr.setDominate(true);
+                stats.prune();
                 continue;
+            }
             ArrayList<MBR> dependent = new ArrayList<>();
-            for (int j = 0; j < i; j++) {
-                MBR value = M[j];
-                count[1]++;
-                if (value.isDominate)
-                    continue;
-                if (utils.DTDominated(value, mbr, d, count)) {
-                    mbr.setDominate(true);
-                    break;
-                }
-                if (Utils.isDominatedBy(value.getMin(), mbr.getMax(), count)) {
-                    dependent.add(value);
-                }
+            for (int j : graph.getDependents(i)) {
+                dependent.add(M[j]);
             }
             dependentQuery.put(mbr, dependent);
         }
@@ -182,29 +194,31 @@ public class ZMBRSky {
      * @return List of objects points
      */
     public List<long[]> skyline(long[] count) {
+        QueryStats.Counter stats = new QueryStats.Counter();
+        List<long[]> skyline = skyline(stats);
+        stats.addTo(count);
+        return skyline;
+    }
+
+    /**
+     * Computes the skyline set of points.
+     *
+     * @param stats The statistics of the query
+     * @return List of objects points
+     */
+    public List<long[]> skyline(QueryStats stats) {
+        long queryStart = stats.start();
         List<long[]> skyline = new ArrayList<>();
-        this.dgMap = MBRQuery(MBRs, d, count);
+        this.dgMap = MBRQuery(MBRs, d, stats);
 
         for (MBR mbr : this.MBRs) {
-            count[1]++;
-            for (int i = 0; i < mbr.usedSpace; i++) {
-                long[] data = mbr.datas[i];
-                for (int j = i + 1; j < mbr.usedSpace; j++) {
-                    int dtDev = Utils.DtDev(data, mbr.datas[j], count);
-                    if (dtDev == 1) {
-                        mbr.delete(i);
-                        i--;
-                        break;
-                    } else if (dtDev == -1) {
-                        mbr.delete(j--);
-                    }
-                }
-            }
+            stats.nodeVisit();
+            localSkyline(mbr, stats);
 
             if (!mbr.isDominate) {
                 for (int i = 0; i < mbr.usedSpace; i++) {
                     long[] p = mbr.datas[i];
-                    if (isDominated(dgMap.get(mbr), p, count)) {
+                    if (isDominated(dgMap.get(mbr), p, stats)) {
                         mbr.delete(i--);
                     } else {
                         skyline.add(p);
@@ -212,6 +226,97 @@ public class ZMBRSky {
                 }
             }
         }
-        return skyline;
+        return stats.finish(skyline, queryStart);
+    }
+
+    /**
+     * Computes the skyline set of points on all cores, see WaveScheduler. The waves follow the Z-order of the MBRs,
+     * and the points are filtered by isDominatedReadOnly, since isDominated removes the points it finds dominated.
+     *
+     * @param stats The statistics of the query
+     * @return List of objects points
+     */
+    public List<long[]> parallelSkyline(QueryStats stats) {
+        long queryStart = stats.start();
+        this.dgMap = MBRQuery(MBRs, d, stats);
+        WaveScheduler.run(MBRs.length, new WaveScheduler.MBRs() {
+            public boolean isDominated(int k) {
+                return MBRs[k].isDominate;
+            }
+
+            public int size(int k) {
+                return MBRs[k].usedSpace;
+            }
+
+            public void localSkyline(int k, QueryStats stats) {
+                ZMBRSky.this.localSkyline(MBRs[k], stats);
+            }
+
+            public boolean isDominated(int k, int i, QueryStats stats) {
+                MBR mbr = MBRs[k];
+                return isDominatedReadOnly(dgMap.get(mbr), mbr.datas[i], stats);
+            }
+
+            public void retain(int k, boolean[] alive) {
+                for (int i = alive.length - 1; i >= 0; i--) {
+                    if (!alive[i]) {
+                        MBRs[k].delete(i);
+                    }
+                }
+            }
+        }, stats);
+
+        List<long[]> skyline = new ArrayList<>();
+        for (MBR mbr : MBRs) {
+            if (!mbr.isDominate) {
+                skyline.addAll(Arrays.asList(mbr.datas).subList(0, mbr.usedSpace));
+            }
+        }
+        return stats.finish(skyline, queryStart);
+    }
+
+    /**
+     * Reduces the points of an MBR to its local skyline.
+     *
+     * @param mbr    The MBR to reduce
+     * @param stats The statistics of the query
+     */
+    private void localSkyline(MBR mbr, QueryStats stats) {
+        for (int i = 0; i < mbr.usedSpace; i++) {
+            long[] data = mbr.datas[i];
+            for (int j = i + 1; j < mbr.usedSpace; j++) {
+                int dtDev = Utils.DtDev(data, mbr.datas[j], stats);
+                if (dtDev == 1) {
+                    mbr.delete(i);
+                    i--;
+                    break;
+                } else if (dtDev == -1) {
+                    mbr.delete(j--);
+                }
+            }
+        }
+    }
+
+    /**
+     * Checks if an object is dominated by any MBR without removing the points it dominates.
+     *
+     * @param list   List of MBRs
+     * @param p      Point to check
+     * @param stats The statistics of the query
+     * @return True if the point is dominated, otherwise false
+     */
+    private boolean isDominatedReadOnly(ArrayList<MBR> list, long[] p, QueryStats stats) {
+        BitSet z = Utils.fromPtoZ(p);
+        for (MBR mbr : list) {
+            stats.nodeVisit();
+            if (Utils.compare(mbr.minpt, z) >= 0)
+                continue;
+            for (int i = 0; i < mbr.usedSpace; i++) {
+                if (Utils.isDominatedBy(mbr.datas[i], p, stats)) {
+                    return true;
+                }
+            }
+        }
+        return false;
     }
 }
@@ -7,42 +7,6 @@ import java.util.BitSet;
  */
 public class utils {
 
-    /**
-     * Determines if MBR 'a' dominates MBR 'b'.
-     *
-     * @param a The first MBR object.
-     * @param b The second MBR object.
-     * @param d The dimension.
-     * @param count A counter for the number of dominance test.
-     * @return true if 'a' dominates 'b'; otherwise, false.
-     */
-    public static boolean DTDominated(MBR a, MBR b, int d, long[] count) {
-        count[0]++;
-        boolean flag = false, isDominate = false, equ = true, equ1 = true;
-        for (int i = 0; i < d; i++) {
-            if (a.getMax()[i] > b.getMin()[i]) {
-                equ = false;
-                if (flag)
-                    return false;
-                else {
-                    flag = true;
-                    if (a.getMin()[i] < b.getMin()[i]) {
-                        isDominate = true;
-                    } else if (a.getMin()[i] > b.getMin()[i])
-                        return false;
-                }
-            } else if (a.getMax()[i] < b.getMin()[i]) {
-                equ = false;
-                isDominate = true;
-            }
-            if (a.getMin()[i] != a.getMax()[i])
-                equ1 = false;
-        }
-        if (equ && !equ1)
-            return true;
-        return isDominate;
-    }
-
     /**
      * Calculates the common area of two MBRs .
      *
@@ -0,0 +1,89 @@
+package myshgs.Others.MBR_Oriented;
+
+import myshgs.QueryStats;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.IntStream;
+
+/**
+ * Filters the MBRs of an MBR-oriented skyline on all cores, for the parallelSkyline of MBRSky and ZMBRSky.
+ * <p>
+ * The local skylines of the MBRs are computed concurrently. The MBRs are then filtered against their dependency
+ * groups in waves of consecutive MBRs: every dependency in an earlier wave already holds its final skyline points,
+ * and the points of an MBR are only removed once its wave is complete, so no MBR is modified while it is read.
+ * The dominance tests and node accesses of the tasks are counted locally and reported once at the end.
+ */
+public class WaveScheduler {
+
+    /**
+     * The MBRs to filter, by their index in the order of the waves.
+     */
+    public interface MBRs {
+        /**
+         * @return Whether the MBR is dominated by another MBR, so that it is skipped
+         */
+        boolean isDominated(int k);
+
+        /**
+         * @return The number of points of the MBR
+         */
+        int size(int k);
+
+        /**
+         * Reduces the points of the MBR to its local skyline.
+         */
+        void localSkyline(int k, QueryStats stats);
+
+        /**
+         * Checks if a point of the MBR is dominated by its dependency group, without modifying any MBR.
+         */
+        boolean isDominated(int k, int i, QueryStats stats);
+
+        /**
+         * Removes the points of the MBR that are not flagged alive.
+         */
+        void retain(int k, boolean[] alive);
+    }
+
+    /**
+     * Reduces every MBR to its points in the skyline.
+     *
+     * @param M     The number of MBRs
+     * @param mbrs  The MBRs
+     * @param stats The statistics of the query
+     */
+    public static void run(int M, MBRs mbrs, QueryStats stats) {
+        LongAdder dt = new LongAdder();
+        LongAdder io = new LongAdder();
+
+        IntStream.range(0, M).parallel().filter(k -> !mbrs.isDominated(k)).forEach(k -> {
+            QueryStats.Counter local = new QueryStats.Counter();
+            local.nodeVisit();
+            mbrs.localSkyline(k, local);
+            dt.add(local.dominanceTests);
+            io.add(local.nodeVisits);
+        });
+
+        int wave = Math.max(1, 4 * ForkJoinPool.getCommonPoolParallelism());
+        boolean[][] alive = new boolean[M][];
+        for (int from = 0; from < M; from += wave) {
+            int to = Math.min(M, from + wave);
+            IntStream.range(from, to).parallel().filter(k -> !mbrs.isDominated(k)).forEach(k -> {
+                QueryStats.Counter local = new QueryStats.Counter();
+                alive[k] = new boolean[mbrs.size(k)];
+                for (int i = 0; i < alive[k].length; i++) {
+                    alive[k][i] = !mbrs.isDominated(k, i, local);
+                }
+                dt.add(local.dominanceTests);
+                io.add(local.nodeVisits);
+            });
+            IntStream.range(from, to).parallel().filter(k -> !mbrs.isDominated(k)).forEach(k -> {
+                mbrs.retain(k, alive[k]);
+                alive[k] = null;
+            });
+        }
+        stats.dominanceTests(dt.sum());
+        stats.nodeVisits(io.sum());
+    }
+}
@@ -1,5 +1,7 @@
 package myshgs.Others.ZSearch;
 
+import myshgs.Data.BinaryDataset;
+import myshgs.Monitoring.IndexBuildEvent;
 import myshgs.Utils;
 
 import java.util.*;
@@ -97,21 +99,56 @@ public class RZLoad {
      * @return Returns the root node of the built ZB-tree
      */
     public ZBNode Loading(long[][] points) {
-        List<ZBNode> target = new ArrayList<>();
         List<BitSet> data = new ArrayList<>();
         for (long[] p : points) {
             data.add(Utils.fromPtoZ(p));
         }
+        long sortStart = System.nanoTime();
         data.sort(Utils::compare);
+        IndexBuildEvent.sorted(sortStart);
+        return pack(data.iterator());
+    }
+
+    /**
+     * Loads a dataset that is already sorted in Z-order, such as the output of ExternalZSort. The points are read
+     * from the file one leaf at a time, so only the tree itself is kept on the heap.
+     * @param sorted The dataset in Z-order
+     * @return Returns the root node of the built ZB-tree
+     */
+    public ZBNode Loading(BinaryDataset sorted) {
+        return pack(new Iterator<BitSet>() {
+            private final long[] p = new long[d];
+            private int next = 0;
 
-        Deque<BitSet> deque = new ArrayDeque<>(data);
+            @Override
+            public boolean hasNext() {
+                return next < sorted.size();
+            }
 
-        while (!deque.isEmpty()) {
+            @Override
+            public BitSet next() {
+                return Utils.fromPtoZ(sorted.get(next++, p));
+            }
+        });
+    }
+
+    /**
+     * Packs data in Z-order into leaves and directory levels
+     * @param data The Z-order values in ascending order
+     * @return Returns the root node of the built ZB-tree
+     */
+    private ZBNode pack(Iterator<BitSet> data) {
+        List<ZBNode> target = new ArrayList<>();
+        Deque<BitSet> deque = new ArrayDeque<>();
+        while (!deque.isEmpty() || data.hasNext()) {
+            // Unused data pushed back by the previous leaf comes before the unread data
             List<BitSet> window = new ArrayList<>();
-            int len = Math.min(deque.size(), C);
-            for (int i = 0; i < len; i++) {
+            while (window.size() < C && !deque.isEmpty()) {
                 window.add(deque.pop());
             }
+            while (window.size() < C && data.hasNext()) {
+                window.add(data.next());
+            }
 
             ZBNode node = createNode(window, deque);
             target.add(node);
@@ -1,8 +1,15 @@
 package myshgs.Others.ZSearch;
 
+import myshgs.Data.BinaryDataset;
+import myshgs.IndexStats;
+import myshgs.Monitoring.IndexBuildEvent;
+import myshgs.Monitoring.MemoryMeter;
+import myshgs.QueryStats;
 import myshgs.Utils;
 
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ForkJoinPool;
 
 public class ZBTree {
     public ZBNode root;
@@ -10,6 +17,9 @@ public class ZBTree {
     private int F = -1;
     private int d = 0;
     private ZBNode skyline;
+    private ZBNode[] nodeStack = new ZBNode[16]; // Scratch stack of the dominance probe: the nodes on the path
+    private int[] indexStack = new int[16]; // Scratch stack of the dominance probe: the next child of each node
+    private long[] dominator; // The last point or region corner found to dominate a query
 
     /**
      * Constructs a ZBTree instance with specified parameters.
@@ -37,21 +47,36 @@ public class ZBTree {
      * @param points A two-dimensional array of points to initialize the tree.
      */
     public void init(long[][] points) {
+        IndexBuildEvent event = IndexBuildEvent.start("ZBTree", points.length, d);
         RZLoad load = new RZLoad(d, C, F);
         this.root = load.Loading(points);
+        event.finish();
+    }
+
+    /**
+     * Initializes the ZBTree with a dataset that is already sorted in Z-order, reading the points from the file
+     * while the leaves are packed.
+     *
+     * @param sorted A dataset in Z-order, such as the output of ExternalZSort.
+     */
+    public void init(BinaryDataset sorted) {
+        IndexBuildEvent event = IndexBuildEvent.start("ZBTree", sorted.size(), d);
+        RZLoad load = new RZLoad(d, C, F);
+        this.root = load.Loading(sorted);
+        event.finish();
     }
 
     /**
      * Inserts a new point into the ZBTree.
      *
      * @param pointers The pointer array of the point to be inserted.
-     * @param count An array used to record the number of dominance test and accessing nodes during the computation process, count[0]: the number of dominance test,count[1]: the number of accessing nodes
+     * @param stats The statistics of the query
      */
-    private void insert(long[] pointers, long[] count) {
+    private void insert(long[] pointers, QueryStats stats) {
         ZBNode current = this.skyline;
         while (current instanceof ZBDirNode) {
             current = ((ZBDirNode) current).getChildren(current.getUsedSpace() - 1);
-            count[1]++;
+            stats.nodeVisit();
         }
         ZBDataNode currentRegion = (ZBDataNode) current;
         if (currentRegion.getUsedSpace() == 0) {
@@ -73,7 +98,7 @@ public class ZBTree {
             }
 
             ZBDirNode parent = (ZBDirNode) currentRegion.getParent();
-            count[1]++;
+            stats.nodeVisit();
 
             ZBDataNode rz = new ZBDataNode(parent, d, C);
 
@@ -106,7 +131,7 @@ public class ZBTree {
                         }
                     }
 
-                    count[1]++;
+                    stats.nodeVisit();
                     ZBDirNode region = (ZBDirNode) curNode.getParent();
 
                     ZBDirNode rzx = new ZBDirNode(region, d, F);
@@ -133,19 +158,55 @@ public class ZBTree {
                     int len = curNode.getUsedSpace() - 1;
                     curNode.setDatas(len, curNode.getChildren(len).getCurRzRegion());
                     curNode = (ZBDirNode) curNode.getParent();
-                    count[1]++;
+                    stats.nodeVisit();
                 }
             }
         } else {
             currentRegion.addData(pointers);
 
             ZBDirNode curNode = (ZBDirNode) currentRegion.getParent();
-            count[1]++;
+            stats.nodeVisit();
             while (curNode != null) {
                 curNode.setDatas(curNode.getUsedSpace() - 1, curNode.getChildren(curNode.getUsedSpace() - 1).getCurRzRegion());
                 curNode = (ZBDirNode) curNode.getParent();
-                count[1]++;
+                stats.nodeVisit();
+            }
+        }
+    }
+
+    /**
+     * Computes the statistics of the structure of the ZB-tree, without collecting its nodes.
+     *
+     * @return The statistics of the tree
+     */
+    public IndexStats stats() {
+        IndexStats stats = new IndexStats();
+        if (root.getUsedSpace() == 0) {
+            stats.node(0, true, 0, C, 0);
+        } else {
+            RZRegion region = root.getCurRzRegion();
+            stats(root, 0, IndexStats.volume(region.getMinpt(), region.getMaxpt()), stats);
+        }
+        stats.bytes = MemoryMeter.retainedSize(this);
+        return stats;
+    }
+
+    private void stats(ZBNode node, int level, double volume, IndexStats stats) {
+        int n = node.getUsedSpace();
+        if (node instanceof ZBDirNode dir) {
+            stats.node(level, false, n, F, volume);
+            long[][] min = new long[n][];
+            long[][] max = new long[n][];
+            for (int i = 0; i < n; i++) {
+                min[i] = node.getDatas(i).getMinpt();
+                max[i] = node.getDatas(i).getMaxpt();
             }
+            stats.siblings(level + 1, min, max, n);
+            for (int i = 0; i < n; i++) {
+                stats(dir.getChildren(i), level + 1, IndexStats.volume(min[i], max[i]), stats);
+            }
+        } else {
+            stats.node(level, true, n, C, volume);
         }
     }
 
@@ -156,109 +217,236 @@ public class ZBTree {
      * @return A list of points that form the skyline.
      */
     public List<long[]> skyline(long[] count) {
+        QueryStats.Counter stats = new QueryStats.Counter();
+        List<long[]> skyline = skyline(stats);
+        stats.addTo(count);
+        return skyline;
+    }
+
+    /**
+     * Computes the skyline of the ZBTree.
+     *
+     * @param stats The statistics of the query
+     * @return A list of points that form the skyline.
+     */
+    public List<long[]> skyline(QueryStats stats) {
+        long queryStart = stats.start();
         ZBNode SRC = this.root;
         List<long[]> skyline = new ArrayList<>();
         if (SRC instanceof ZBDataNode) { // Only one node in the tree
             for (int i = 0; i < SRC.getUsedSpace(); i++) {
                 long[] p = ((ZBDataNode) SRC).getData(i);
-                if (!Dominate(p, p, count)) {
-                    insert(p, count);
+                if (!Dominate(p, p, stats)) {
+                    insert(p, stats);
                     skyline.add(p);
                 }
             }
-            return skyline;
+            return stats.finish(skyline, queryStart);
         }
         Stack<RZRegion> deque = new Stack<>();
         Map<RZRegion, ZBNode> record = new HashMap<>();
 
         ZBDirNode r = (ZBDirNode) SRC;
         for (int i = r.getUsedSpace() - 1; i >= 0; i--) { // Include all data from root in the heap
-            count[1]++;
+            stats.nodeVisit();
             deque.add(r.getDatas(i));
             record.put(r.getDatas(i), r.getChildren(i));
         }
 
         while (!deque.isEmpty()) {
             RZRegion pop = deque.pop();
-            count[1]++;
-            if (!Dominate(pop.getMinpt(), pop.getMaxpt(), count)) {
+            stats.nodeVisit();
+            if (!Dominate(pop.getMinpt(), pop.getMaxpt(), stats)) {
                 ZBNode cur = record.get(pop);
                 record.remove(pop);
                 if (cur instanceof ZBDirNode) {
                     for (int i = cur.getUsedSpace() - 1; i >= 0; i--) {
-                        count[1]++;
+                        stats.nodeVisit();
                         deque.add(cur.getDatas(i));
                         record.put(cur.getDatas(i), ((ZBDirNode) cur).getChildren(i));
                     }
                 } else {
                     for (int i = 0; i < cur.getUsedSpace(); i++) {
                         long[] p = ((ZBDataNode) cur).getData(i);
-                        if (!Dominate(p, p, count)) {
-                            insert(p, count);
+                        if (!Dominate(p, p, stats)) {
+                            insert(p, stats);
                             skyline.add(p);
                         }
                     }
                 }
+            } else {
+                stats.prune();
             }
         }
-        return skyline;
+        return stats.finish(skyline, queryStart);
+    }
+
+    /**
+     * Computes the skyline of the ZBTree on several threads.
+     * The source tree is cut into at least two Z-partitions per thread by expanding directory nodes from the root
+     * in Z-order, and the local skyline of every partition is computed concurrently with its own skyline ZB-tree.
+     * A point can only be dominated by a point that precedes it in Z-order, so the partitions are then merged in
+     * order: each local skyline is filtered against the skyline of the partitions before it, as soon as it is done,
+     * while the later partitions are still being computed.
+     *
+     * @param stats The statistics of the query
+     * @return A list of points that form the skyline.
+     */
+    public List<long[]> parallelSkyline(QueryStats stats) {
+        if (this.root instanceof ZBDataNode) {
+            return skyline(stats);
+        }
+        long queryStart = stats.start();
+
+        // Expand the frontier in Z-order until there are enough partitions
+        int target = 2 * ForkJoinPool.getCommonPoolParallelism();
+        List<ZBNode> partitions = new ArrayList<>();
+        List<RZRegion> regions = new ArrayList<>();
+        partitions.add(this.root);
+        regions.add(null);
+        boolean expanded = true;
+        while (partitions.size() < target && expanded) {
+            expanded = false;
+            List<ZBNode> nextPartitions = new ArrayList<>();
+            List<RZRegion> nextRegions = new ArrayList<>();
+            for (int k = 0; k < partitions.size(); k++) {
+                ZBNode node = partitions.get(k);
+                if (node instanceof ZBDirNode dir) {
+                    stats.nodeVisit();
+                    for (int i = 0; i < dir.getUsedSpace(); i++) {
+                        nextPartitions.add(dir.getChildren(i));
+                        nextRegions.add(dir.getDatas(i));
+                    }
+                    expanded = true;
+                } else {
+                    nextPartitions.add(node);
+                    nextRegions.add(regions.get(k));
+                }
+            }
+            partitions = nextPartitions;
+            regions = nextRegions;
+        }
+
+        // Compute the local skyline of every partition concurrently
+        List<CompletableFuture<List<long[]>>> futures = new ArrayList<>();
+        long[][] counts = new long[partitions.size()][2];
+        for (int k = 0; k < partitions.size(); k++) {
+            ZBNode node = partitions.get(k);
+            long[] local = counts[k];
+            futures.add(CompletableFuture.supplyAsync(() -> {
+                ZBTree partition = new ZBTree(C, F, d);
+                partition.root = node;
+                return partition.skyline(local);
+            }));
+        }
+
+        // Merge the local skylines in Z-order
+        ZBTree merged = new ZBTree(C, F, d);
+        List<long[]> skyline = new ArrayList<>();
+        for (int k = 0; k < partitions.size(); k++) {
+            List<long[]> local = futures.get(k).join();
+            stats.dominanceTests(counts[k][0]);
+            stats.nodeVisits(counts[k][1]);
+            RZRegion region = regions.get(k);
+            if (k > 0 && region != null && merged.Dominate(region.getMinpt(), region.getMaxpt(), stats)) {
+                // The whole partition is dominated by the partitions before it
+                continue;
+            }
+            for (long[] p : local) {
+                if (k == 0 || !merged.Dominate(p, p, stats)) {
+                    merged.insert(p, stats);
+                    skyline.add(p);
+                }
+            }
+        }
+        return stats.finish(skyline, queryStart);
     }
 
     /**
-     * Determines if a point is dominated by any point in the skyline
+     * Determines if a point is dominated by any point in the skyline.
+     * The skyline ZB-tree is probed depth-first with explicit child indices kept in reusable scratch stacks, so a
+     * probe allocates nothing. The last dominator found is cached and tested first, since consecutive probes from
+     * siblings in Z-order are usually dominated by the same point or region.
      *
      * @param minpt The minimum bounding point of the query region
      * @param maxpt The maximum bounding point of the query region
-     * @param count An array used to record the number of dominance test and accessing nodes during the computation process, count[0]: the number of dominance test,count[1]: the number of accessing nodes
+     * @param stats The statistics of the query
      * @return true if there is at least one point in the skyline that dominates the query point; otherwise, returns false
      */
-    private Boolean Dominate(long[] minpt, long[] maxpt, long[] count) {
+    private boolean Dominate(long[] minpt, long[] maxpt, QueryStats stats) {
+        // The skyline only grows, so a previous dominator is still a valid witness
+        if (dominator != null && Utils.isDominatedBy(dominator, minpt, stats))
+            return true;
+
         // Check if the skyline consists of only one node
         if (this.skyline instanceof ZBDataNode) {
-            for (int i = 0; i < this.skyline.getUsedSpace(); i++) {
-                long[] p = ((ZBDataNode) this.skyline).getData(i);
-                // Check if the current point dominates the query point
-                if (Utils.isDominatedBy(p, minpt, count))
-                    return true;
-            }
-            return false;
+            return scan((ZBDataNode) this.skyline, minpt, stats);
         }
 
-        // Initialize data structures for breadth-first search
-        Queue<RZRegion> queue = new ArrayDeque<>();
-        Map<RZRegion, ZBNode> record = new HashMap<>();
-
-        // Start from the root node
-        ZBDirNode r = (ZBDirNode) this.skyline;
-        for (int i = 0; i < r.getUsedSpace(); i++) {
-            count[1]++;
-            queue.add(r.getDatas(i));
-            record.put(r.getDatas(i), r.getChildren(i));
-        }
-        // Breadth-first search to traverse the tree
-        while (!queue.isEmpty()) {
-            RZRegion region = queue.poll();
-            ZBNode poll = record.remove(region);
-            count[1]++;
-            if (poll instanceof ZBDirNode rz) {
-                for (int i = 0; i < poll.getUsedSpace(); i++) {
-                    count[1]++;
-                    // Check if the maximum point of the current region dominates the query point
-                    if (Utils.isDominatedBy(rz.getDatas(i).getMaxpt(), minpt, count)) {
+        // Depth-first search from the root node
+        int top = 0;
+        nodeStack[0] = this.skyline;
+        indexStack[0] = 0;
+        stats.nodeVisit();
+        while (top >= 0) {
+            ZBDirNode rz = (ZBDirNode) nodeStack[top];
+            int i = indexStack[top]++;
+            if (i == rz.getUsedSpace()) {
+                nodeStack[top--] = null;
+                continue;
+            }
+            stats.nodeVisit();
+            RZRegion region = rz.getDatas(i);
+            // Check if the maximum point of the current region dominates the query point
+            if (Utils.isDominatedBy(region.getMaxpt(), minpt, stats)) {
+                dominator = region.getMaxpt();
+                clearStack(top);
+                return true;
+            } else if (Utils.isDominatedBy(region.getMinpt(), maxpt, stats)) {
+                ZBNode child = rz.getChildren(i);
+                stats.nodeVisit();
+                if (child instanceof ZBDataNode) {
+                    if (scan((ZBDataNode) child, minpt, stats)) {
+                        clearStack(top);
                         return true;
-                    } else if (Utils.isDominatedBy(rz.getDatas(i).getMinpt(), maxpt, count)) {
-                        queue.add(rz.getDatas(i));
-                        record.put(rz.getDatas(i), rz.getChildren(i));
                     }
-                }
-            } else {
-                for (int i = 0; i < poll.getUsedSpace(); i++) {
-                    // Check if the current point dominates the query point
-                    if (Utils.isDominatedBy(((ZBDataNode) poll).getData(i), minpt, count))
-                        return true;
+                } else {
+                    if (++top == nodeStack.length) {
+                        nodeStack = Arrays.copyOf(nodeStack, top * 2);
+                        indexStack = Arrays.copyOf(indexStack, top * 2);
+                    }
+                    nodeStack[top] = child;
+                    indexStack[top] = 0;
                 }
             }
         }
         return false;
     }
+
+    /**
+     * Checks the points of a skyline leaf against the query point and caches the dominator found.
+     *
+     * @param node The leaf of the skyline ZB-tree
+     * @param minpt The minimum bounding point of the query region
+     * @param stats The statistics of the query
+     * @return true if a point of the leaf dominates the query point, otherwise false
+     */
+    private boolean scan(ZBDataNode node, long[] minpt, QueryStats stats) {
+        for (int i = 0; i < node.getUsedSpace(); i++) {
+            long[] p = node.getData(i);
+            // Check if the current point dominates the query point
+            if (Utils.isDominatedBy(p, minpt, stats)) {
+                dominator = p;
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Drops the node references left in the scratch stack by an early exit.
+     */
+    private void clearStack(int top) {
+        Arrays.fill(nodeStack, 0, top + 1, null);
+    }
 }
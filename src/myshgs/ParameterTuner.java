@@ -0,0 +1,187 @@
+package myshgs;
+
+import myshgs.Data.BinaryDataset;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Function;
+
+/**
+ * Recommends the capacity C, the fanout F and the threshold Q of an index for a dataset.
+ * <p>
+ * Trial indexes are built on a random sample of the dataset and queried. The parameters are tuned one after the
+ * other, C, then F, then Q, each over its candidates while the others keep the best values found so far, so a tuning
+ * builds a few dozen trial indexes instead of the whole grid. A candidate is scored by the median time of its
+ * skylines over the repetitions, and the dominance tests break ties. The skyline of a sample is smaller than the
+ * skyline of the dataset, so the sample must be large enough for the trial indexes to have several levels.
+ * <p>
+ * IQuadTree, IQuadPlusTree, IZBTree and ZIBBS accept AUTO for the parameters to tune when the index is built, for
+ * example new IZBTree(AUTO, AUTO, AUTO, d).
+ */
+public class ParameterTuner {
+    public static final int AUTO = -1; // A parameter to tune, below every valid C, F and Q
+    public int sampleSize = 20000; // The number of points of the sample
+    public int repetitions = 3; // The number of trial indexes built for a candidate
+    public long seed = 1; // The seed of the sample
+    public int[] capacities = {16, 32, 64, 128, 256, 512}; // The candidates of C
+    public int[] fanouts = {8, 16, 32, 64, 128, 256, 400}; // The candidates of F
+    public int[] thresholds = {10, 50, 100, 200, 500, 1000}; // The candidates of Q
+
+    /**
+     * Builds the trial indexes of an index family.
+     */
+    public interface Trial {
+        /**
+         * Builds a trial index.
+         *
+         * @param C      The capacity
+         * @param F      The fanout
+         * @param Q      The threshold
+         * @param sample The points of the index
+         * @return The skyline query of the index
+         */
+        Function<QueryStats, List<long[]>> build(int C, int F, int Q, long[][] sample);
+    }
+
+    /**
+     * The recommended parameters.
+     */
+    public static class Result {
+        public final int C;
+        public final int F;
+        public final int Q;
+        public final double time; // The median time of a skyline of the sample, in milliseconds
+        public final long dominanceTests; // The dominance tests of a skyline of the sample
+        public final int trials; // The number of trial indexes built
+
+        Result(int[] p, double[] score, int trials) {
+            this.C = p[0];
+            this.F = p[1];
+            this.Q = p[2];
+            this.time = score[0];
+            this.dominanceTests = (long) score[1];
+            this.trials = trials;
+        }
+
+        @Override
+        public String toString() {
+            return "C=" + C + ", F=" + F + ", Q=" + Q + " (" + time + " ms and " + dominanceTests
+                    + " dominance tests per skyline of the sample, " + trials + " trials)";
+        }
+    }
+
+    /**
+     * Tunes the parameters given as AUTO, and keeps the others.
+     *
+     * @param points The dataset
+     * @param C      The capacity, or AUTO
+     * @param F      The fanout, or AUTO
+     * @param Q      The threshold, or AUTO
+     * @param trial  Builds the trial indexes
+     * @return The recommended parameters
+     */
+    public Result tune(long[][] points, int C, int F, int Q, Trial trial) {
+        long[][] sample = points;
+        if (points.length > sampleSize) {
+            int[] ids = sample(points.length);
+            sample = new long[sampleSize][];
+            for (int i = 0; i < sampleSize; i++) {
+                sample[i] = points[ids[i]];
+            }
+        }
+        return search(sample, new int[]{C, F, Q}, trial);
+    }
+
+    /**
+     * Tunes the parameters given as AUTO on a sample read from a dataset file, and keeps the others.
+     *
+     * @param data  The dataset
+     * @param C     The capacity, or AUTO
+     * @param F     The fanout, or AUTO
+     * @param Q     The threshold, or AUTO
+     * @param trial Builds the trial indexes
+     * @return The recommended parameters
+     */
+    public Result tune(BinaryDataset data, int C, int F, int Q, Trial trial) {
+        int[] ids = data.size() > sampleSize ? sample(data.size()) : null;
+        long[][] sample = new long[Math.min(sampleSize, data.size())][];
+        for (int i = 0; i < sample.length; i++) {
+            sample[i] = data.get(ids == null ? i : ids[i], new long[data.dimension()]);
+        }
+        return search(sample, new int[]{C, F, Q}, trial);
+    }
+
+    /**
+     * @return sampleSize distinct indexes below n, in ascending order so that a file is read forward
+     */
+    private int[] sample(int n) {
+        int[] ids = new int[n];
+        for (int i = 0; i < n; i++) {
+            ids[i] = i;
+        }
+        Random random = new Random(seed);
+        for (int i = 0; i < sampleSize; i++) {
+            int j = i + random.nextInt(n - i);
+            int t = ids[i];
+            ids[i] = ids[j];
+            ids[j] = t;
+        }
+        int[] picked = Arrays.copyOf(ids, sampleSize);
+        Arrays.sort(picked);
+        return picked;
+    }
+
+    private Result search(long[][] sample, int[] fixed, Trial trial) {
+        if (sample.length == 0) {
+            throw new IllegalArgumentException("Cannot tune the parameters of an empty dataset");
+        }
+        int[][] candidates = {capacities, fanouts, thresholds};
+        int[] best = fixed.clone();
+        for (int k = 0; k < 3; k++) {
+            if (fixed[k] == AUTO) {
+                best[k] = candidates[k][candidates[k].length / 2];
+            }
+        }
+        measure(sample, best, trial); // Warms up the JIT, so that the first candidate is not slower
+        double[] bestScore = measure(sample, best, trial);
+        int trials = 2 * repetitions;
+        for (int k = 0; k < 3; k++) {
+            if (fixed[k] != AUTO) {
+                continue;
+            }
+            for (int value : candidates[k]) {
+                if (value == best[k]) {
+                    continue;
+                }
+                int[] p = best.clone();
+                p[k] = value;
+                double[] score = measure(sample, p, trial);
+                trials += repetitions;
+                if (score[0] < bestScore[0] || (score[0] == bestScore[0] && score[1] < bestScore[1])) {
+                    best = p;
+                    bestScore = score;
+                }
+            }
+        }
+        return new Result(best, bestScore, trials);
+    }
+
+    /**
+     * @return The median time of a skyline in milliseconds, and its dominance tests
+     */
+    private double[] measure(long[][] sample, int[] p, Trial trial) {
+        double[] times = new double[repetitions];
+        long dominanceTests = 0;
+        for (int i = 0; i < repetitions; i++) {
+            Function<QueryStats, List<long[]>> query = trial.build(p[0], p[1], p[2], sample);
+            QueryStats.Counter stats = new QueryStats.Counter();
+            long start = System.nanoTime();
+            query.apply(stats);
+            times[i] = (System.nanoTime() - start) / 1000000.0;
+            dominanceTests = stats.dominanceTests;
+        }
+        Arrays.sort(times);
+        return new double[]{times[repetitions / 2], dominanceTests};
+    }
+}
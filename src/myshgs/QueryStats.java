@@ -0,0 +1,214 @@
+package myshgs;
+
+import java.util.List;
+
+/**
+ * The statistics of a skyline query, reported by the algorithms while they run.
+ * <p>
+ * NONE ignores every report. Its methods are empty, so the JIT inlines the calls to nothing and queries can always
+ * report. Counter keeps named counters and, if asked to, the time spent in each phase of the query.
+ */
+public interface QueryStats {
+    /**
+     * The phases of a query that are timed.
+     */
+    enum Phase {
+        QUERY, // The whole query
+        NDG, // Identifying the nodes that may dominate a point (U-INDG)
+        DEPENDENCY_GRAPH, // Building the dependency graph of the MBRs (MBR-oriented)
+        POINTER_UPDATE // Updating the skyline pointers of the ancestors (U-INDG)
+    }
+
+    QueryStats NONE = new QueryStats() {
+    };
+
+    /**
+     * Reports a dominance test.
+     */
+    default void dominanceTest() {
+    }
+
+    /**
+     * Reports a number of dominance tests.
+     */
+    default void dominanceTests(long n) {
+    }
+
+    /**
+     * Reports the access of a node.
+     */
+    default void nodeVisit() {
+    }
+
+    /**
+     * Reports a number of node accesses.
+     */
+    default void nodeVisits(long n) {
+    }
+
+    /**
+     * Reports a node examined while identifying the nodes that may dominate a point.
+     */
+    default void graphNode() {
+    }
+
+    /**
+     * Reports the update of a skyline pointer.
+     */
+    default void pointerUpdate() {
+    }
+
+    /**
+     * Reports a subtree or MBR that is skipped because it is dominated.
+     */
+    default void prune() {
+    }
+
+    /**
+     * Reports the size of the skyline at the end of the query.
+     */
+    default void skylineSize(int size) {
+    }
+
+    /**
+     * Starts timing a phase.
+     *
+     * @return The start time to pass to stop
+     */
+    default long start() {
+        return 0;
+    }
+
+    /**
+     * Stops timing a phase.
+     *
+     * @param phase The phase
+     * @param start The time returned by start
+     */
+    default void stop(Phase phase, long start) {
+    }
+
+    /**
+     * Reports the end of a query: the size of the skyline and the time of the query.
+     *
+     * @param skyline The skyline
+     * @param start   The time returned by start when the query began
+     * @return The skyline
+     */
+    default List<long[]> finish(List<long[]> skyline, long start) {
+        skylineSize(skyline.size());
+        stop(Phase.QUERY, start);
+        return skyline;
+    }
+
+    /**
+     * Counts the reports of a query.
+     */
+    class Counter implements QueryStats {
+        public long dominanceTests; // DT
+        public long nodeVisits; // IO
+        public long graphNodes;
+        public long pointerUpdates;
+        public long prunedSubtrees;
+        public int skylineSize;
+        public final long[] time = new long[Phase.values().length]; // The nanoseconds spent in each phase
+        private final boolean timed;
+
+        /**
+         * Constructs a counter that does not time the phases.
+         */
+        public Counter() {
+            this(false);
+        }
+
+        /**
+         * Constructs a counter.
+         *
+         * @param timed Whether to time the phases, which reads the clock around every timed call
+         */
+        public Counter(boolean timed) {
+            this.timed = timed;
+        }
+
+        @Override
+        public void dominanceTest() {
+            dominanceTests++;
+        }
+
+        @Override
+        public void dominanceTests(long n) {
+            dominanceTests += n;
+        }
+
+        @Override
+        public void nodeVisit() {
+            nodeVisits++;
+        }
+
+        @Override
+        public void nodeVisits(long n) {
+            nodeVisits += n;
+        }
+
+        @Override
+        public void graphNode() {
+            graphNodes++;
+        }
+
+        @Override
+        public void pointerUpdate() {
+            pointerUpdates++;
+        }
+
+        @Override
+        public void prune() {
+            prunedSubtrees++;
+        }
+
+        @Override
+        public void skylineSize(int size) {
+            skylineSize = size;
+        }
+
+        @Override
+        public long start() {
+            return timed ? System.nanoTime() : 0;
+        }
+
+        @Override
+        public void stop(Phase phase, long start) {
+            if (timed) {
+                time[phase.ordinal()] += System.nanoTime() - start;
+            }
+        }
+
+        /**
+         * @return The milliseconds spent in a phase
+         */
+        public double time(Phase phase) {
+            return time[phase.ordinal()] / 1000000.0;
+        }
+
+        /**
+         * Adds the dominance tests and node accesses to a count array, count[0]: the number of dominance test,
+         * count[1]: the number of accessing nodes.
+         */
+        public void addTo(long[] count) {
+            count[0] += dominanceTests;
+            count[1] += nodeVisits;
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder sb = new StringBuilder("DT=" + dominanceTests + ", IO=" + nodeVisits + ", graphNodes="
+                    + graphNodes + ", pointerUpdates=" + pointerUpdates + ", pruned=" + prunedSubtrees + ", SL="
+                    + skylineSize);
+            if (timed) {
+                for (Phase phase : Phase.values()) {
+                    sb.append(", ").append(phase).append("=").append(time(phase)).append("ms");
+                }
+            }
+            return sb.toString();
+        }
+    }
+}
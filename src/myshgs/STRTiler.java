@@ -0,0 +1,102 @@
+package myshgs;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.stream.IntStream;
+
+/**
+ * STRTiler computes the Sort-Tile-Recursive order of a set of entries without moving them.
+ * The entries are given as rows of primitive coordinates (points, or node centres) and the tiler sorts an int[]
+ * permutation of the rows, one coordinate column at a time. The first column is sorted as a whole with a parallel
+ * sort, the slabs of the following columns are sorted concurrently. Every sort is stable, so the order matches
+ * sorting the entries themselves with a stable comparator.
+ */
+public class STRTiler {
+
+    /**
+     * Computes the STR order of the rows.
+     *
+     * @param coords The coordinates of the entries, one row per entry; never modified
+     * @param M      The number of entries in a tile (node capacity or fanout)
+     * @return A permutation of the row indexes in STR order
+     */
+    public static int[] tile(long[][] coords, int M) {
+        int n = coords.length;
+        int[] perm = new int[n];
+        for (int i = 0; i < n; i++) {
+            perm[i] = i;
+        }
+        if (n == 0) {
+            return perm;
+        }
+        int dims = coords[0].length;
+
+        sortRange(coords, perm, 0, n, 0, true);
+        int nToSplit = n;
+        for (int d = 1; d < dims; d++) {
+            int nodesPerAxis = (int) Math.pow((double) nToSplit / M, 1.0 / (dims - d + 1));
+            int chunkSize = (int) Math.ceil(Math.pow(nodesPerAxis, dims - d) * M);
+            if (chunkSize < M) {
+                break;
+            }
+            int dim = d;
+            int chunks = (n + chunkSize - 1) / chunkSize;
+            IntStream.range(0, chunks).parallel().forEach(c ->
+                    sortRange(coords, perm, c * chunkSize, Math.min(n, (c + 1) * chunkSize), dim, false));
+            nToSplit /= nodesPerAxis;
+        }
+        return perm;
+    }
+
+    /**
+     * Stably sorts perm[from, to) by one coordinate column.
+     * When the column spans less than 2^31 values in the range, the key and the position are packed into one long
+     * and sorted as primitives, otherwise the range falls back to a boxed stable sort.
+     *
+     * @param coords   The coordinates of the entries
+     * @param perm     The permutation to sort
+     * @param from     The first position of the range
+     * @param to       The end of the range
+     * @param dim      The column to sort by
+     * @param parallel Whether to sort the range with a parallel sort
+     */
+    private static void sortRange(long[][] coords, int[] perm, int from, int to, int dim, boolean parallel) {
+        int len = to - from;
+        if (len < 2) {
+            return;
+        }
+        long lo = Long.MAX_VALUE, hi = Long.MIN_VALUE;
+        for (int k = from; k < to; k++) {
+            long v = coords[perm[k]][dim];
+            lo = Math.min(lo, v);
+            hi = Math.max(hi, v);
+        }
+
+        long range = hi - lo;
+        if (range >= 0 && range < (1L << 31)) {
+            long[] keys = new long[len];
+            for (int k = 0; k < len; k++) {
+                keys[k] = ((coords[perm[from + k]][dim] - lo) << 32) | k;
+            }
+            if (parallel) {
+                Arrays.parallelSort(keys);
+            } else {
+                Arrays.sort(keys);
+            }
+            int[] sorted = new int[len];
+            for (int k = 0; k < len; k++) {
+                sorted[k] = perm[from + (int) (keys[k] & 0xffffffffL)];
+            }
+            System.arraycopy(sorted, 0, perm, from, len);
+        } else {
+            Integer[] boxed = new Integer[len];
+            for (int k = 0; k < len; k++) {
+                boxed[k] = perm[from + k];
+            }
+            Arrays.sort(boxed, Comparator.comparingLong(i -> coords[i][dim]));
+            for (int k = 0; k < len; k++) {
+                perm[from + k] = boxed[k];
+            }
+        }
+    }
+}
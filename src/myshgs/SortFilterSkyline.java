@@ -0,0 +1,77 @@
+package myshgs;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.IntStream;
+
+/**
+ * SortFilterSkyline computes the skyline of a dataset without an index, as the reference the indexes are checked
+ * against.
+ * <p>
+ * The points are presorted by the sum of their coordinates, so that a point can only be dominated by a point before
+ * it, and then filtered one block at a time. The points of a block are tested in parallel against the skyline of
+ * the blocks before it; the survivors are then tested in parallel against the survivors before them in the block,
+ * which is enough since a point of the block that is not a survivor is dominated by the skyline already. Duplicate
+ * points do not dominate each other, so every copy of a skyline point is kept.
+ */
+public class SortFilterSkyline {
+    private static final int BLOCK = 1 << 14; // The number of points filtered together
+
+    /**
+     * Computes the skyline of a dataset.
+     *
+     * @param points The dataset; never modified
+     * @return The skyline points, in ascending order of the sums of their coordinates
+     */
+    public static List<long[]> skyline(long[][] points) {
+        long[][] sorted = points.clone();
+        Arrays.parallelSort(sorted, Comparator.comparingLong(SortFilterSkyline::sum));
+        List<long[]> skyline = new ArrayList<>();
+        for (int from = 0; from < sorted.length; from += BLOCK) {
+            int start = from;
+            int to = Math.min(sorted.length, from + BLOCK);
+            long[][] window = skyline.toArray(new long[0][]);
+            long[][] survivors = IntStream.range(start, to).parallel()
+                    .filter(i -> !dominated(window, window.length, sorted[i]))
+                    .mapToObj(i -> sorted[i]).toArray(long[][]::new);
+            IntStream.range(0, survivors.length).parallel()
+                    .filter(i -> !dominated(survivors, i, survivors[i]))
+                    .forEachOrdered(i -> skyline.add(survivors[i]));
+        }
+        return skyline;
+    }
+
+    /**
+     * @return Whether one of the first n points dominates p
+     */
+    private static boolean dominated(long[][] points, int n, long[] p) {
+        for (int i = 0; i < n; i++) {
+            if (dominates(points[i], p)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean dominates(long[] a, long[] b) {
+        boolean strict = false;
+        for (int i = 0; i < a.length; i++) {
+            if (a[i] > b[i]) {
+                return false;
+            } else if (a[i] < b[i]) {
+                strict = true;
+            }
+        }
+        return strict;
+    }
+
+    private static long sum(long[] p) {
+        long s = 0;
+        for (long v : p) {
+            s += v;
+        }
+        return s;
+    }
+}
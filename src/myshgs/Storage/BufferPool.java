@@ -0,0 +1,109 @@
+package myshgs.Storage;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayDeque;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * An LRU buffer pool of page frames over a PageFile.
+ * A request served from a frame is a hit, otherwise the page is read from the file into the least recently used frame.
+ */
+public class BufferPool {
+    private final PageFile file;
+    private final int capacity; // The maximum number of frames in the pool
+    private final LinkedHashMap<Integer, ByteBuffer> frames;
+    private final ArrayDeque<ByteBuffer> free = new ArrayDeque<>(); // Frames released by eviction
+    private long requests; // The number of page requests
+    private long hits; // The number of requests served from the pool
+
+    /**
+     * Constructs a buffer pool
+     *
+     * @param file The page file to read from
+     * @param capacity The number of page frames kept in memory
+     */
+    public BufferPool(PageFile file, int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("The capacity of the buffer pool must be positive");
+        }
+        this.file = file;
+        this.capacity = capacity;
+        this.frames = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, ByteBuffer> eldest) {
+                if (size() > BufferPool.this.capacity) {
+                    free.push(eldest.getValue());
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Returns the frame holding a page, reading it from the file if it is not in the pool.
+     * The frame is only valid until the next request, since it may be evicted and reused.
+     *
+     * @param pageId The id of the page
+     * @return The buffer of the page in little-endian order
+     */
+    public ByteBuffer getPage(int pageId) {
+        requests++;
+        ByteBuffer frame = frames.get(pageId);
+        if (frame != null) {
+            hits++;
+            return frame;
+        }
+        frame = free.isEmpty() ? ByteBuffer.allocateDirect(PageFile.PAGE_SIZE).order(ByteOrder.LITTLE_ENDIAN) : free.pop();
+        try {
+            file.read(pageId, frame);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        frames.put(pageId, frame);
+        return frame;
+    }
+
+    /**
+     * Drops every page from the pool and resets the statistics
+     */
+    public void clear() {
+        for (ByteBuffer frame : frames.values()) {
+            free.push(frame);
+        }
+        frames.clear();
+        resetStatistics();
+    }
+
+    public void resetStatistics() {
+        requests = 0;
+        hits = 0;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public long getRequests() {
+        return requests;
+    }
+
+    public long getHits() {
+        return hits;
+    }
+
+    /**
+     * @return The number of pages read from the file, i.e. the requests that missed the pool
+     */
+    public long getPageReads() {
+        return requests - hits;
+    }
+
+    public double getHitRatio() {
+        return requests == 0 ? 0 : (double) hits / requests;
+    }
+}
@@ -0,0 +1,226 @@
+package myshgs.Storage;
+
+import myshgs.QueryStats;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A tree whose node records live in an off-heap arena of direct buffers.
+ * <p>
+ * A node record holds the header (id, leaf flag, used space, position in the parent, offset of the parent) followed
+ * by its entries. A leaf entry is a point of d coordinates, a directory entry is the offset of the child followed by
+ * the lower corner of the child. Nodes are addressed by the offset of their record; the arena is split into blocks
+ * of 64 MB and a record never straddles two blocks. Node ids number the records in breadth-first order, so query
+ * state can be kept in arrays indexed by id.
+ */
+public class OffHeapTree {
+    private static final int SHIFT = 26;
+    private static final int BLOCK = 1 << SHIFT; // The size of one arena block in bytes
+    private static final long MASK = BLOCK - 1;
+    private static final int NODE_HEADER = 4 * Integer.BYTES + Long.BYTES;
+
+    private final int d;
+    private final ByteBuffer[] blocks;
+    private final long root;
+    private final int nodeCount;
+    private final long bytes;
+
+    private OffHeapTree(int d, ByteBuffer[] blocks, long root, int nodeCount, long bytes) {
+        this.d = d;
+        this.blocks = blocks;
+        this.root = root;
+        this.nodeCount = nodeCount;
+        this.bytes = bytes;
+    }
+
+    /**
+     * Copies an in-memory tree into an off-heap arena. Only the leaf flag, the entries and the lower corners of the
+     * source are used, the level and the upper corners are not stored.
+     *
+     * @param d      The dimension of the data
+     * @param root   The root of the in-memory tree
+     * @param source The accessors of the in-memory nodes
+     * @param <N>    The node type of the tree
+     * @return The off-heap tree
+     */
+    public static <N> OffHeapTree build(int d, N root, PagedRTree.NodeSource<N> source) {
+        // Number the nodes in breadth-first order and place their records
+        List<N> nodes = new ArrayList<>();
+        List<Long> offsets = new ArrayList<>();
+        List<Integer> blockUsed = new ArrayList<>();
+        blockUsed.add(0);
+        nodes.add(root);
+        for (int k = 0; k < nodes.size(); k++) {
+            N node = nodes.get(k);
+            int size = recordSize(d, source.isLeaf(node), source.size(node));
+            if (size > BLOCK) {
+                throw new IllegalArgumentException("A node of " + size + " bytes does not fit in an arena block");
+            }
+            int b = blockUsed.size() - 1;
+            if (blockUsed.get(b) + size > BLOCK) {
+                blockUsed.add(0);
+                b++;
+            }
+            offsets.add(((long) b << SHIFT) | blockUsed.get(b));
+            blockUsed.set(b, blockUsed.get(b) + size);
+            if (!source.isLeaf(node)) {
+                for (int i = 0; i < source.size(node); i++) {
+                    nodes.add(source.child(node, i));
+                }
+            }
+        }
+
+        ByteBuffer[] blocks = new ByteBuffer[blockUsed.size()];
+        long bytes = 0;
+        for (int b = 0; b < blocks.length; b++) {
+            blocks[b] = ByteBuffer.allocateDirect(Math.max(1, blockUsed.get(b))).order(ByteOrder.LITTLE_ENDIAN);
+            bytes += blockUsed.get(b);
+        }
+
+        // Write the records, the children of the k-th node follow the children of the nodes before it
+        long[] parent = new long[nodes.size()];
+        int[] pos = new int[nodes.size()];
+        parent[0] = -1;
+        int next = 1;
+        for (int k = 0; k < nodes.size(); k++) {
+            N node = nodes.get(k);
+            boolean leaf = source.isLeaf(node);
+            int used = source.size(node);
+            long off = offsets.get(k);
+            ByteBuffer buf = blocks[(int) (off >>> SHIFT)];
+            int at = (int) (off & MASK);
+            buf.putInt(at, k);
+            buf.putInt(at + 4, leaf ? 1 : 0);
+            buf.putInt(at + 8, used);
+            buf.putInt(at + 12, pos[k]);
+            buf.putLong(at + 16, parent[k]);
+            at += NODE_HEADER;
+            for (int i = 0; i < used; i++) {
+                if (!leaf) {
+                    parent[next] = off;
+                    pos[next] = i;
+                    buf.putLong(at, offsets.get(next++));
+                    at += Long.BYTES;
+                }
+                long[] min = source.min(node, i);
+                for (int j = 0; j < d; j++) {
+                    buf.putLong(at, min[j]);
+                    at += Long.BYTES;
+                }
+            }
+        }
+        return new OffHeapTree(d, blocks, offsets.get(0), nodes.size(), bytes);
+    }
+
+    private static int recordSize(int d, boolean leaf, int used) {
+        return NODE_HEADER + used * (leaf ? d * Long.BYTES : Long.BYTES + d * Long.BYTES);
+    }
+
+    private int getInt(long off) {
+        return blocks[(int) (off >>> SHIFT)].getInt((int) (off & MASK));
+    }
+
+    private long getLong(long off) {
+        return blocks[(int) (off >>> SHIFT)].getLong((int) (off & MASK));
+    }
+
+    /**
+     * @return The offset of the first coordinate of the i-th entry's point or lower corner
+     */
+    private long entry(long node, int i) {
+        return isLeaf(node) ? node + NODE_HEADER + (long) i * d * Long.BYTES
+                : node + NODE_HEADER + (long) i * (d + 1) * Long.BYTES + Long.BYTES;
+    }
+
+    public long getRoot() {
+        return root;
+    }
+
+    public int getNodeCount() {
+        return nodeCount;
+    }
+
+    public int getDimension() {
+        return d;
+    }
+
+    /**
+     * @return The number of bytes used by the node records
+     */
+    public long getBytes() {
+        return bytes;
+    }
+
+    public int id(long node) {
+        return getInt(node);
+    }
+
+    public boolean isLeaf(long node) {
+        return getInt(node + 4) != 0;
+    }
+
+    public int size(long node) {
+        return getInt(node + 8);
+    }
+
+    public int pos(long node) {
+        return getInt(node + 12);
+    }
+
+    /**
+     * @return The offset of the parent, or -1 for the root
+     */
+    public long parent(long node) {
+        return getLong(node + 16);
+    }
+
+    /**
+     * @return The offset of the i-th child of a directory node
+     */
+    public long child(long node, int i) {
+        return getLong(node + NODE_HEADER + (long) i * (d + 1) * Long.BYTES);
+    }
+
+    /**
+     * Copies the point of a leaf entry, or the lower corner of the child of a directory entry.
+     *
+     * @param node The offset of the node
+     * @param i    The index of the entry
+     * @param dst  The array receiving the d coordinates
+     * @return dst
+     */
+    public long[] get(long node, int i, long[] dst) {
+        long at = entry(node, i);
+        for (int j = 0; j < d; j++) {
+            dst[j] = getLong(at + (long) j * Long.BYTES);
+        }
+        return dst;
+    }
+
+    /**
+     * Determines if the point or lower corner of an entry dominates a point, as Utils.isDominatedBy does.
+     *
+     * @param node  The offset of the node
+     * @param i     The index of the entry
+     * @param b     The point to check
+     * @param stats The statistics of the query, which count the dominance test
+     * @return true if the entry dominates b, otherwise false
+     */
+    public boolean dominates(long node, int i, long[] b, QueryStats stats) {
+        stats.dominanceTest();
+        long at = entry(node, i);
+        boolean isDominated = false;
+        for (int j = 0; j < d; j++) {
+            long a = getLong(at + (long) j * Long.BYTES);
+            if (b[j] > a) {
+                isDominated = true;
+            } else if (b[j] < a) {
+                return false;
+            }
+        }
+        return isDominated;
+    }
+}
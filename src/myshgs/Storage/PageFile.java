@@ -0,0 +1,104 @@
+package myshgs.Storage;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A file of fixed-size pages accessed through a FileChannel.
+ * Every read and write goes to the channel, so the counters report physical page I/O.
+ */
+public class PageFile implements Closeable {
+    public static final int PAGE_SIZE = 4 * 1024; // The size of a disk page in bytes
+    private final FileChannel channel;
+    private int pageCount; // The number of pages allocated in the file
+    private long reads; // The number of pages read from the file
+    private long writes; // The number of pages written to the file
+
+    /**
+     * Opens a page file
+     *
+     * @param path The path of the file
+     * @param create Whether to create (and truncate) the file instead of opening an existing one
+     * @throws IOException If the file cannot be opened
+     */
+    public PageFile(String path, boolean create) throws IOException {
+        if (create) {
+            channel = FileChannel.open(Path.of(path), StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                    StandardOpenOption.READ, StandardOpenOption.WRITE);
+            pageCount = 0;
+        } else {
+            channel = FileChannel.open(Path.of(path), StandardOpenOption.READ);
+            pageCount = (int) (channel.size() / PAGE_SIZE);
+        }
+    }
+
+    /**
+     * Allocates consecutive pages at the end of the file
+     *
+     * @param pages The number of pages to allocate
+     * @return The id of the first allocated page
+     */
+    public int allocate(int pages) {
+        int first = pageCount;
+        pageCount += pages;
+        return first;
+    }
+
+    /**
+     * Writes a page to the file
+     *
+     * @param pageId The id of the page
+     * @param src A buffer holding exactly one page of data between position 0 and PAGE_SIZE
+     * @throws IOException If the write fails
+     */
+    public void write(int pageId, ByteBuffer src) throws IOException {
+        src.clear();
+        long pos = (long) pageId * PAGE_SIZE;
+        while (src.hasRemaining()) {
+            pos += channel.write(src, pos);
+        }
+        writes++;
+    }
+
+    /**
+     * Reads a page from the file
+     *
+     * @param pageId The id of the page
+     * @param dst A buffer with room for one page, filled from position 0
+     * @throws IOException If the read fails or the page is beyond the end of the file
+     */
+    public void read(int pageId, ByteBuffer dst) throws IOException {
+        dst.clear();
+        long pos = (long) pageId * PAGE_SIZE;
+        while (dst.hasRemaining()) {
+            int n = channel.read(dst, pos);
+            if (n < 0) {
+                throw new IOException("Page " + pageId + " is beyond the end of the file");
+            }
+            pos += n;
+        }
+        dst.clear();
+        reads++;
+    }
+
+    public int getPageCount() {
+        return pageCount;
+    }
+
+    public long getReads() {
+        return reads;
+    }
+
+    public long getWrites() {
+        return writes;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
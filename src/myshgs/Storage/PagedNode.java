@@ -0,0 +1,35 @@
+package myshgs.Storage;
+
+/**
+ * A node of a PagedRTree decoded from its pages
+ */
+public class PagedNode {
+    public final int id; // The id of the node in the page file
+    public final int level; // The level of the node, 0 for leaf nodes
+    public final int parent; // The id of the parent node, -1 for the root
+    public final int pos; // The position of the node in its parent
+    public final int usedSpace; // The number of entries in the node
+    public final int[] children; // The ids of the child nodes, null for leaf nodes
+    public final long[][] min; // The lower corners of the entries, the points themselves for leaf nodes
+    public final long[][] max; // The upper corners of the entries, the points themselves for leaf nodes
+
+    PagedNode(int id, int level, int parent, int pos, int usedSpace, int d) {
+        this.id = id;
+        this.level = level;
+        this.parent = parent;
+        this.pos = pos;
+        this.usedSpace = usedSpace;
+        this.min = new long[usedSpace][d];
+        if (level == 0) {
+            this.children = null;
+            this.max = this.min;
+        } else {
+            this.children = new int[usedSpace];
+            this.max = new long[usedSpace][d];
+        }
+    }
+
+    public boolean isLeaf() {
+        return level == 0;
+    }
+}
@@ -0,0 +1,396 @@
+package myshgs.Storage;
+
+import myshgs.Monitoring.IndexBuildEvent;
+import myshgs.STRTiler;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.IntFunction;
+import java.util.stream.IntStream;
+
+/**
+ * An R-tree whose nodes are serialised into 4 KB pages of a file and read through an LRU buffer pool.
+ * <p>
+ * Page 0 holds the file header, followed by the nodes in breadth-first order and finally the node table.
+ * A node starts on a fresh page with the header (level, used space, parent, position) and spans as many
+ * consecutive pages as its entries need. Entries never straddle a page boundary. A leaf entry is a point
+ * of d coordinates, a directory entry is the id of the child followed by the lower and upper corners of its MBR.
+ * Only the node table (first page, level, parent and position of each node) is kept on the heap.
+ */
+public class PagedRTree implements Closeable {
+    private static final int MAGIC = 0x50525447;
+    private static final int VERSION = 1;
+    private static final int NODE_HEADER = 4 * Integer.BYTES;
+    private static final int TABLE_ENTRY = 4 * Integer.BYTES;
+
+    /**
+     * Gives OffHeapTree access to the nodes of an in-memory tree
+     *
+     * @param <N> The node type of the tree
+     */
+    public interface NodeSource<N> {
+        boolean isLeaf(N node);
+
+        int level(N node);
+
+        int size(N node);
+
+        N child(N node, int i);
+
+        long[] min(N node, int i);
+
+        long[] max(N node, int i);
+    }
+
+    private final PageFile file;
+    private final BufferPool pool;
+    private final int d;
+    private final int nodeCount;
+    private final int[] firstPage; // The first page of each node
+    private final int[] level; // The level of each node
+    private final int[] parent; // The parent of each node
+    private final int[] pos; // The position of each node in its parent
+
+    private PagedRTree(PageFile file, int poolPages, int d, int nodeCount) {
+        this.file = file;
+        this.pool = new BufferPool(file, poolPages);
+        this.d = d;
+        this.nodeCount = nodeCount;
+        this.firstPage = new int[nodeCount];
+        this.level = new int[nodeCount];
+        this.parent = new int[nodeCount];
+        this.pos = new int[nodeCount];
+    }
+
+    /**
+     * Bulk loads an R-tree straight into a page file, without building the tree on the heap.
+     * The points are packed into data nodes in the given order and every directory level packs the nodes below it,
+     * either ordered by STR over their centres as STRLoad does or kept in order as ZOrderLoad does. When a level does
+     * not fill its last node, its last two nodes share the remainder. Only the rectangles of the nodes are kept on the
+     * heap: the points are read once to compute the rectangles of the data nodes and once more to write them.
+     *
+     * @param path The path of the page file
+     * @param d The dimensionality of the data
+     * @param n The number of points
+     * @param points The i-th point in the load order
+     * @param C The capacity of a data node
+     * @param F The fanout of a directory node
+     * @param str Whether the directory levels are ordered by STR, otherwise they keep the order of the points
+     * @throws IOException If the file cannot be written
+     */
+    public static void load(String path, int d, int n, IntFunction<long[]> points, int C, int F, boolean str)
+            throws IOException {
+        if (entrySize(d, false) > PageFile.PAGE_SIZE - NODE_HEADER) {
+            throw new IllegalArgumentException("A directory entry of " + d + " dimensions does not fit in a page");
+        }
+        // The rectangles of the nodes of every level, the levels of the directory pack the level below them
+        List<long[][]> mins = new ArrayList<>();
+        List<long[][]> maxs = new ArrayList<>();
+        List<int[]> orders = new ArrayList<>(); // The children of each directory level in packing order
+        List<int[]> starts = new ArrayList<>(); // The first position in that order of each node of each level
+        int[] leafStart = split(n, C);
+        int m = leafStart.length - 1;
+        long[][] min = new long[m][d];
+        long[][] max = new long[m][d];
+        for (int k = 0; k < m; k++) {
+            Arrays.fill(min[k], Long.MAX_VALUE);
+            Arrays.fill(max[k], Long.MIN_VALUE);
+            for (int i = leafStart[k]; i < leafStart[k + 1]; i++) {
+                long[] p = points.apply(i);
+                for (int j = 0; j < d; j++) {
+                    min[k][j] = Math.min(min[k][j], p[j]);
+                    max[k][j] = Math.max(max[k][j], p[j]);
+                }
+            }
+        }
+        mins.add(min);
+        maxs.add(max);
+        orders.add(null);
+        starts.add(leafStart);
+        while (m > 1) {
+            int[] order;
+            if (str) {
+                long[][] centres = new long[m][d];
+                for (int k = 0; k < m; k++) {
+                    for (int j = 0; j < d; j++) {
+                        centres[k][j] = min[k][j] + max[k][j]; // *0.5
+                    }
+                }
+                long sortStart = System.nanoTime();
+                order = STRTiler.tile(centres, F);
+                IndexBuildEvent.sorted(sortStart);
+            } else {
+                order = IntStream.range(0, m).toArray();
+            }
+            int[] start = split(m, F);
+            int parents = start.length - 1;
+            long[][] pmin = new long[parents][];
+            long[][] pmax = new long[parents][];
+            for (int g = 0; g < parents; g++) {
+                pmin[g] = min[order[start[g]]].clone();
+                pmax[g] = max[order[start[g]]].clone();
+                for (int k = start[g] + 1; k < start[g + 1]; k++) {
+                    for (int j = 0; j < d; j++) {
+                        pmin[g][j] = Math.min(pmin[g][j], min[order[k]][j]);
+                        pmax[g][j] = Math.max(pmax[g][j], max[order[k]][j]);
+                    }
+                }
+            }
+            orders.add(order);
+            starts.add(start);
+            mins.add(min = pmin);
+            maxs.add(max = pmax);
+            m = parents;
+        }
+
+        // Number the nodes in breadth-first order from the root so that siblings are stored next to each other
+        int height = mins.size();
+        int total = 0;
+        int[] base = new int[height]; // The id of the first node of each level
+        for (int h = height - 1; h >= 0; h--) {
+            base[h] = total;
+            total += mins.get(h).length;
+        }
+        int[][] ids = new int[height][]; // The id of each node of each level
+        int[][] nodeAt = new int[height][]; // The node of each level with the id base + j
+        int[] parents = new int[total];
+        int[] positions = new int[total];
+        ids[height - 1] = new int[]{0};
+        nodeAt[height - 1] = new int[]{0};
+        parents[0] = -1;
+        for (int h = height - 1; h > 0; h--) {
+            int[] order = orders.get(h), start = starts.get(h);
+            int size = mins.get(h - 1).length;
+            ids[h - 1] = new int[size];
+            nodeAt[h - 1] = new int[size];
+            int next = base[h - 1];
+            for (int g : nodeAt[h]) {
+                for (int k = start[g]; k < start[g + 1]; k++) {
+                    ids[h - 1][order[k]] = next;
+                    nodeAt[h - 1][next - base[h - 1]] = order[k];
+                    parents[next] = ids[h][g];
+                    positions[next++] = k - start[g];
+                }
+            }
+        }
+
+        try (PageFile out = new PageFile(path, true)) {
+            ByteBuffer page = ByteBuffer.allocate(PageFile.PAGE_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            int header = out.allocate(1);
+            int[] first = new int[total];
+            int[] levels = new int[total];
+            for (int id = 0, h = height - 1; id < total; id++) {
+                if (h > 0 && id == base[h - 1]) {
+                    h--;
+                }
+                int g = nodeAt[h][id - base[h]];
+                levels[id] = h;
+                first[id] = out.allocate(pageCount(d, h == 0, starts.get(h)[g + 1] - starts.get(h)[g]));
+            }
+
+            for (int id = 0; id < total; id++) {
+                int h = levels[id];
+                int g = nodeAt[h][id - base[h]];
+                int[] start = starts.get(h);
+                boolean leaf = h == 0;
+                int esize = entrySize(d, leaf);
+                int pageId = first[id];
+                clear(page);
+                page.putInt(h).putInt(start[g + 1] - start[g]).putInt(parents[id]).putInt(positions[id]);
+                for (int k = start[g]; k < start[g + 1]; k++) {
+                    if (page.remaining() < esize) {
+                        out.write(pageId++, page);
+                        clear(page);
+                    }
+                    if (leaf) {
+                        for (long v : points.apply(k)) {
+                            page.putLong(v);
+                        }
+                    } else {
+                        int child = orders.get(h)[k];
+                        page.putInt(ids[h - 1][child]);
+                        for (long v : mins.get(h - 1)[child]) {
+                            page.putLong(v);
+                        }
+                        for (long v : maxs.get(h - 1)[child]) {
+                            page.putLong(v);
+                        }
+                    }
+                }
+                out.write(pageId, page);
+            }
+
+            int perPage = PageFile.PAGE_SIZE / TABLE_ENTRY;
+            int table = out.allocate((total + perPage - 1) / perPage);
+            clear(page);
+            int pageId = table;
+            for (int id = 0; id < total; id++) {
+                if (page.remaining() < TABLE_ENTRY) {
+                    out.write(pageId++, page);
+                    clear(page);
+                }
+                page.putInt(first[id]).putInt(levels[id]).putInt(parents[id]).putInt(positions[id]);
+            }
+            out.write(pageId, page);
+
+            clear(page);
+            page.putInt(MAGIC).putInt(VERSION).putInt(d).putInt(total).putInt(table);
+            out.write(header, page);
+        }
+    }
+
+    /**
+     * Opens a page file written by {@link #load}
+     *
+     * @param path The path of the page file
+     * @param poolPages The number of pages the buffer pool keeps in memory
+     * @return The paged tree
+     * @throws IOException If the file cannot be read or is not a paged R-tree
+     */
+    public static PagedRTree open(String path, int poolPages) throws IOException {
+        PageFile file = new PageFile(path, false);
+        ByteBuffer page = ByteBuffer.allocate(PageFile.PAGE_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        file.read(0, page);
+        if (page.getInt() != MAGIC || page.getInt() != VERSION) {
+            file.close();
+            throw new IOException(path + " is not a paged R-tree");
+        }
+        int d = page.getInt();
+        int n = page.getInt();
+        int table = page.getInt();
+
+        PagedRTree tree = new PagedRTree(file, poolPages, d, n);
+        int perPage = PageFile.PAGE_SIZE / TABLE_ENTRY;
+        for (int k = 0; k < n; k++) {
+            if (k % perPage == 0) {
+                file.read(table + k / perPage, page);
+            }
+            tree.firstPage[k] = page.getInt();
+            tree.level[k] = page.getInt();
+            tree.parent[k] = page.getInt();
+            tree.pos[k] = page.getInt();
+        }
+        return tree;
+    }
+
+    /**
+     * Reads a node through the buffer pool
+     *
+     * @param id The id of the node
+     * @return The decoded node
+     */
+    public PagedNode readNode(int id) {
+        int pageId = firstPage[id];
+        ByteBuffer page = pool.getPage(pageId);
+        int lvl = page.getInt(0);
+        int used = page.getInt(Integer.BYTES);
+        PagedNode node = new PagedNode(id, lvl, parent[id], pos[id], used, d);
+        boolean leaf = node.isLeaf();
+        int esize = entrySize(d, leaf);
+        int off = NODE_HEADER;
+        for (int i = 0; i < used; i++) {
+            if (off + esize > PageFile.PAGE_SIZE) {
+                page = pool.getPage(++pageId);
+                off = 0;
+            }
+            if (!leaf) {
+                node.children[i] = page.getInt(off);
+                off += Integer.BYTES;
+            }
+            long[] lo = node.min[i];
+            for (int j = 0; j < d; j++, off += Long.BYTES) {
+                lo[j] = page.getLong(off);
+            }
+            if (!leaf) {
+                long[] hi = node.max[i];
+                for (int j = 0; j < d; j++, off += Long.BYTES) {
+                    hi[j] = page.getLong(off);
+                }
+            }
+        }
+        return node;
+    }
+
+    public int getRoot() {
+        return 0;
+    }
+
+    public int getDims() {
+        return d;
+    }
+
+    public int getNodeCount() {
+        return nodeCount;
+    }
+
+    public boolean isLeaf(int id) {
+        return level[id] == 0;
+    }
+
+    public int getParent(int id) {
+        return parent[id];
+    }
+
+    public int getPos(int id) {
+        return pos[id];
+    }
+
+    public int getPageCount() {
+        return file.getPageCount();
+    }
+
+    public BufferPool getBufferPool() {
+        return pool;
+    }
+
+    @Override
+    public void close() throws IOException {
+        file.close();
+    }
+
+    private static int entrySize(int d, boolean leaf) {
+        return leaf ? d * Long.BYTES : Integer.BYTES + 2 * d * Long.BYTES;
+    }
+
+    private static int pageCount(int d, boolean leaf, int used) {
+        int esize = entrySize(d, leaf);
+        int first = (PageFile.PAGE_SIZE - NODE_HEADER) / esize;
+        if (used <= first) {
+            return 1;
+        }
+        int next = PageFile.PAGE_SIZE / esize;
+        return 1 + (used - first + next - 1) / next;
+    }
+
+    /**
+     * Splits entries into nodes of at most cap entries. When the entries do not fill the last node, the last two
+     * nodes share the remainder, as STRLoad and ZOrderLoad do.
+     *
+     * @return The first entry of each node, followed by the number of entries
+     */
+    private static int[] split(int n, int cap) {
+        int nodes = Math.max(1, (n + cap - 1) / cap);
+        int[] start = new int[nodes + 1];
+        int end = n % cap == 0 || n / cap == 0 ? n : (n / cap) * cap - cap;
+        int k = 0;
+        for (int i = 0; i < end; i += cap) {
+            start[k++] = i;
+        }
+        if (end != n) {
+            start[k++] = end;
+            start[k++] = end + (n - end) / 2;
+        }
+        start[nodes] = n;
+        return start;
+    }
+
+    private static void clear(ByteBuffer page) {
+        page.clear();
+        Arrays.fill(page.array(), (byte) 0);
+    }
+}
@@ -0,0 +1,228 @@
+package myshgs.Storage;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+import java.util.BitSet;
+
+/**
+ * The versioned binary snapshot of a built index.
+ * <p>
+ * A snapshot is a sequence of little-endian longs. It starts with a 64-byte header (magic, version, index type,
+ * dimension d and the parameters C, F and Q of the index, plus one reserved word), followed by the nodes of the
+ * index in pre-order. The layout of a node is defined by the index that writes it; every value, including flags,
+ * counts and the words of a Z-order value, takes one long, so the file can be read back as a mapped LongBuffer
+ * without any parsing. Restoring maps the file and rebuilds the node graph in one sequential pass.
+ */
+public class Snapshot {
+    public static final long MAGIC = 0x554E44474E415053L;
+    public static final int VERSION = 1;
+    public static final int HEADER = 8; // The number of longs in the header
+    // The index types
+    public static final int ZB_TREE = 1;
+    public static final int Z_RTREE = 2;
+    public static final int QUAD_TREE = 3;
+    public static final int QUAD_PLUS_TREE = 4;
+    private static final long CHUNK = (Integer.MAX_VALUE / Long.BYTES) * (long) Long.BYTES; // The largest mapping
+
+    /**
+     * Writes a snapshot one long at a time.
+     */
+    public static class Writer implements AutoCloseable {
+        private final RandomAccessFile file;
+        private final FileChannel channel;
+        private final ByteBuffer buffer;
+
+        /**
+         * Creates a snapshot and writes its header, replacing an existing file.
+         *
+         * @param path The path of the snapshot
+         * @param type The type of the index
+         * @param d    The dimension of the data
+         * @param C    The capacity of a leaf node
+         * @param F    The fanout of a directory node, or 0 if the index has none
+         * @param Q    The threshold of the skyline pointers
+         * @throws IOException if the file cannot be created
+         */
+        public Writer(String path, int type, int d, int C, int F, int Q) throws IOException {
+            this.file = new RandomAccessFile(path, "rw");
+            this.file.setLength(0);
+            this.channel = file.getChannel();
+            this.buffer = ByteBuffer.allocateDirect(1 << 16).order(ByteOrder.LITTLE_ENDIAN);
+            put(MAGIC);
+            put(VERSION);
+            put(type);
+            put(d);
+            put(C);
+            put(F);
+            put(Q);
+            put(0);
+        }
+
+        /**
+         * Appends one value.
+         *
+         * @param v The value
+         * @throws IOException if the file cannot be written
+         */
+        public void put(long v) throws IOException {
+            if (buffer.remaining() < Long.BYTES) {
+                flush();
+            }
+            buffer.putLong(v);
+        }
+
+        /**
+         * Appends the coordinates of a point.
+         *
+         * @param p The point
+         * @throws IOException if the file cannot be written
+         */
+        public void put(long[] p) throws IOException {
+            for (long v : p) {
+                put(v);
+            }
+        }
+
+        /**
+         * Appends a Z-order value as the number of its words followed by the words.
+         *
+         * @param z The Z-order value
+         * @throws IOException if the file cannot be written
+         */
+        public void put(BitSet z) throws IOException {
+            long[] words = z.toLongArray();
+            put(words.length);
+            put(words);
+        }
+
+        private void flush() throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            buffer.clear();
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                flush();
+            } finally {
+                file.close();
+            }
+        }
+    }
+
+    /**
+     * Reads a snapshot sequentially from a mapping of the file.
+     */
+    public static class Reader {
+        public final int d;
+        public final int C;
+        public final int F;
+        public final int Q;
+        private final LongBuffer[] chunks;
+        private int chunk = 0;
+
+        /**
+         * Maps a snapshot and checks its header.
+         *
+         * @param path The path of the snapshot
+         * @param type The expected type of the index
+         * @throws IOException if the file cannot be read, is not a snapshot of this type or has another version
+         */
+        public Reader(String path, int type) throws IOException {
+            try (RandomAccessFile file = new RandomAccessFile(path, "r"); FileChannel channel = file.getChannel()) {
+                long size = channel.size() / Long.BYTES * Long.BYTES;
+                chunks = new LongBuffer[(int) Math.max(1, (size + CHUNK - 1) / CHUNK)];
+                for (int c = 0; c < chunks.length; c++) {
+                    long at = c * CHUNK;
+                    chunks[c] = channel.map(FileChannel.MapMode.READ_ONLY, at, Math.min(CHUNK, size - at))
+                            .order(ByteOrder.LITTLE_ENDIAN).asLongBuffer();
+                }
+            }
+            if (chunks[0].remaining() < HEADER || next() != MAGIC) {
+                throw new IOException(path + " is not an index snapshot");
+            }
+            long version = next();
+            if (version != VERSION) {
+                throw new IOException("Unsupported snapshot version " + version);
+            }
+            long found = next();
+            if (found != type) {
+                throw new IOException(path + " holds an index of type " + found + ", expected " + type);
+            }
+            d = nextInt();
+            C = nextInt();
+            F = nextInt();
+            Q = nextInt();
+            next();
+        }
+
+        /**
+         * Checks that the snapshot was taken from an index with the given layout parameters.
+         *
+         * @param d The dimension of the data
+         * @param C The capacity of a leaf node
+         * @param F The fanout of a directory node, or 0 if the index has none
+         * @throws IOException if a parameter differs
+         */
+        public void expect(int d, int C, int F) throws IOException {
+            if (this.d != d || this.C != C || this.F != F) {
+                throw new IOException("The snapshot was taken with d=" + this.d + ", C=" + this.C + ", F=" + this.F
+                        + " but the index has d=" + d + ", C=" + C + ", F=" + F);
+            }
+        }
+
+        /**
+         * @return The next value
+         * @throws IOException if the snapshot is truncated
+         */
+        public long next() throws IOException {
+            while (!chunks[chunk].hasRemaining()) {
+                if (++chunk == chunks.length) {
+                    throw new IOException("The snapshot is truncated");
+                }
+            }
+            return chunks[chunk].get();
+        }
+
+        public int nextInt() throws IOException {
+            return (int) next();
+        }
+
+        /**
+         * Reads the coordinates of a point.
+         *
+         * @param d The dimension of the point
+         * @return The point
+         * @throws IOException if the snapshot is truncated
+         */
+        public long[] nextPoint(int d) throws IOException {
+            long[] p = new long[d];
+            LongBuffer buf = chunks[chunk];
+            if (buf.remaining() >= d) {
+                buf.get(p);
+            } else {
+                for (int j = 0; j < d; j++) {
+                    p[j] = next();
+                }
+            }
+            return p;
+        }
+
+        /**
+         * Reads a Z-order value written by Writer.put(BitSet).
+         *
+         * @return The Z-order value
+         * @throws IOException if the snapshot is truncated
+         */
+        public BitSet nextBits() throws IOException {
+            return BitSet.valueOf(nextPoint(nextInt()));
+        }
+    }
+}
@@ -1,9 +1,10 @@
 package myshgs;
 
-import java.io.BufferedReader;
-import java.io.FileReader;
+import myshgs.Data.CsvLoader;
+import myshgs.Data.DataGenerator;
+
 import java.io.IOException;
-import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.BitSet;
 import java.util.List;
 import java.util.Random;
@@ -13,7 +14,7 @@ import java.util.Random;
  */
 public class Utils {
     /**
-     * Generates anti-correlated data.
+     * Generates anti-correlated data from a random seed, see DataGenerator for reproducible datasets.
      *
      * @param numberOfDimensions The number of dimensions for the data.
      * @param numberOfData The number of data points to generate.
@@ -22,21 +23,13 @@ public class Utils {
      * @return An array of anti-correlated data points.
      */
     public static long[][] generateAntiCorrelatedData(int numberOfDimensions, int numberOfData, long maxDataValue, double spread) {
-        long[][] data = new long[numberOfData][numberOfDimensions];
-        Random random = new Random();
-        for (int i = 0; i < numberOfData; i++) {
-            data[i][0] = random.nextLong(maxDataValue);
-            long relatedValue = maxDataValue - data[i][0];
-            for (int j = 1; j < numberOfDimensions; j++) {
-                long t = (long) (relatedValue + (relatedValue * (random.nextDouble() - 0.5) * spread));
-                data[i][j] = Math.min(Math.max(t, 0), maxDataValue); // Ensure the value stays within bounds;
-            }
-        }
-        return data;
+        DataGenerator generator = new DataGenerator(new Random().nextLong());
+        generator.spread = spread;
+        return generator.points(DataGenerator.Distribution.ANTI_CORRELATED, numberOfDimensions, numberOfData, maxDataValue);
     }
 
     /**
-     * Generates independent data.
+     * Generates independent data from a random seed, see DataGenerator for reproducible datasets.
      *
      * @param numberOfDimensions The number of dimensions for the data.
      * @param numberOfData The number of data points to generate.
@@ -44,14 +37,8 @@ public class Utils {
      * @return An array of independent data points.
      */
     public static long[][] generateIndependentData(int numberOfDimensions, int numberOfData, int maxDataValue) {
-        long[][] data = new long[numberOfData][numberOfDimensions];
-        Random random = new Random();
-        for (int i = 0; i < numberOfData; i++) {
-            for (int j = 0; j < numberOfDimensions; j++) {
-                data[i][j] = random.nextLong(maxDataValue);
-            }
-        }
-        return data;
+        DataGenerator generator = new DataGenerator(new Random().nextLong());
+        return generator.points(DataGenerator.Distribution.INDEPENDENT, numberOfDimensions, numberOfData, maxDataValue);
     }
 
     /**
@@ -64,6 +51,19 @@ public class Utils {
      */
     public static boolean isDominatedBy(long[] a, long[] b, long[] count) {
         count[0]++;
+        return isDominatedBy(a, b, QueryStats.NONE);
+    }
+
+    /**
+     * Checks if object a is dominated by object b.
+     *
+     * @param a The first object.
+     * @param b The second object.
+     * @param stats The statistics of the query, which count the dominance test.
+     * @return True if a is dominated by b, false otherwise.
+     */
+    public static boolean isDominatedBy(long[] a, long[] b, QueryStats stats) {
+        stats.dominanceTest();
         boolean isDominated = false;
         for (int i = 0; i < a.length; i++) {
             if (b[i] > a[i]) {
@@ -124,6 +124,19 @@ public class Utils {
      */
     public static int DtDev(long[] p1, long[] p2, long[] count) {
         count[0]++;
+        return DtDev(p1, p2, QueryStats.NONE);
+    }
+
+    /**
+     * Compares two objects for dominance test.
+     *
+     * @param p1 The first object.
+     * @param p2 The second object.
+     * @param stats The statistics of the query, which count the dominance test.
+     * @return -1 if p1 dominates p2, 1 if p2 dominates p1, 0 otherwise.
+     */
+    public static int DtDev(long[] p1, long[] p2, QueryStats stats) {
+        stats.dominanceTest();
         boolean t1_better = false, t2_better = false;
         for (int d = 0; d < p1.length; d++) {
             t1_better = p1[d] < p2[d] || t1_better;
@@ -141,6 +154,48 @@ public class Utils {
         return 0;
     }
 
+    /**
+     * Sorts the indexes 0 to n - 1 by their keys, equal keys by index.
+     * Each key is packed with its index into one long, so the sort runs on primitives. Keys that span 2^31 values
+     * or more are replaced by their rank among the distinct keys first.
+     *
+     * @param keys The keys of the indexes
+     * @param n    The number of indexes
+     * @return The indexes in ascending order of their keys
+     */
+    public static int[] sortByKey(long[] keys, int n) {
+        long lo = Long.MAX_VALUE, hi = Long.MIN_VALUE;
+        for (int i = 0; i < n; i++) {
+            lo = Math.min(lo, keys[i]);
+            hi = Math.max(hi, keys[i]);
+        }
+        long[] packed = new long[n];
+        long range = hi - lo;
+        if (n > 0 && (range < 0 || range >= (1L << 31))) {
+            long[] distinct = Arrays.copyOf(keys, n);
+            Arrays.sort(distinct);
+            int m = 0;
+            for (int i = 0; i < n; i++) {
+                if (m == 0 || distinct[m - 1] != distinct[i]) {
+                    distinct[m++] = distinct[i];
+                }
+            }
+            for (int i = 0; i < n; i++) {
+                packed[i] = ((long) Arrays.binarySearch(distinct, 0, m, keys[i]) << 32) | i;
+            }
+        } else {
+            for (int i = 0; i < n; i++) {
+                packed[i] = ((keys[i] - lo) << 32) | i;
+            }
+        }
+        Arrays.sort(packed);
+        int[] order = new int[n];
+        for (int k = 0; k < n; k++) {
+            order[k] = (int) (packed[k] & 0xffffffffL);
+        }
+        return order;
+    }
+
     /**
      * Compares two Z-order values.
      *
@@ -168,86 +223,28 @@ public class Utils {
     }
 
     /**
-     * Reads real data from a txt file.
+     * Reads real data from a txt file. The dimension is taken from the "7D"-style token in the file name, or from
+     * the first line when the name has none.
      *
      * @param csvFile The path to the txt file.
      * @return An array of long arrays containing the data from the CSV file.
      */
     public static long[][] getRealData(String csvFile) {
-        List<long[]> points = new ArrayList<>();
-        String line;
-        String csvDelimiter = ",";
-
-        try (BufferedReader br = new BufferedReader(new FileReader(csvFile))) {
-            while ((line = br.readLine()) != null) {
-                String[] values = line.split(csvDelimiter);
-                int index = 0;
-
-                if (csvFile.contains("vehicles7D-390585.txt")) {
-                    int d = 7;
-                    long[] p = new long[d];
-                    for (int i = 0; i < d; i++) {
-                        p[index++] = (long) Double.parseDouble(values[i]);
-                    }
-                    points.add(p);
-                } else if (csvFile.contains("htsensor8D.txt")) {
-                    int d = 8;
-                    long[] p = new long[d];
-                    for (int i = 0; i < d; i++) {
-                        p[index++] = Integer.parseInt(values[i]);
-                    }
-                    points.add(p);
-                } else if (csvFile.contains("house9D-227570.txt")) {
-                    int d = 9;
-                    long[] p = new long[d];
-                    for (int i = 0; i < d; i++) {
-                        p[index++] = (long) Double.parseDouble(values[i]);
-                    }
-                    points.add(p);
-                } else if (csvFile.contains("covtype10D.txt")) {
-                    int d = 10;
-                    long[] p = new long[d];
-                    for (int i = 0; i < d; i++) {
-                        p[index++] = (long) Double.parseDouble(values[i]);
-                    }
-                    points.add(p);
-                }
-            }
+        try {
+            return new CsvLoader().load(csvFile).toArray();
         } catch (IOException e) {
             System.out.println(e.toString());
         }
-        long[][] result = new long[points.size()][];
-        int dex = 0;
-        for (long[] p : points) {
-            result[dex++] = p;
-        }
-        return result;
+        return new long[0][];
     }
 
     /**
-     * For test the 正确性correctness of algorithms, to find a set of points for the skyline.
+     * For test the 正确性correctness of algorithms, to find a set of points for the skyline. See SortFilterSkyline.
      *
      * @param points The set of points to find the skyline of.
      * @return A list of points that form the skyline.
      */
     public static List<long[]> findSkyline(long[][] points) {
-        List<long[]> skyline = new ArrayList<>();
-        for (int i = 0; i < points.length; i++) {
-            long[] current = points[i];
-            boolean isSkyline = true;
-            for (int j = 0; j < points.length; j++) {
-                if (i != j) {
-                    long[] other = points[j];
-                    if (isDominatedBy(other, current, new long[]{0, 0})) {
-                        isSkyline = false;
-                        break;
-                    }
-                }
-            }
-            if (isSkyline) {
-                skyline.add(current);
-            }
-        }
-        return skyline;
+        return SortFilterSkyline.skyline(points);
     }
 }